@@ -0,0 +1,83 @@
+package project3;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The ConcurrentBenchmark class measures a mix of searches and updates made by several threads
+ * on a shared ConcurrentSortedList and a shared concurrent RecordList
+ * A write adds a record and removes it again, so the lists keep their size however long they run
+ * The number of threads is set with the -t option of JMH
+ *
+ * @author Thales Gao
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = "-Xmx4g")
+@Threads(4)
+@State(Scope.Benchmark)
+public class ConcurrentBenchmark {
+     //percentage of writes
+     private static final int WRITE_PERCENT = 10;
+
+     @Param({"1000", "100000", "10000000"})
+     public int size;
+
+     private int users;
+     private ConcurrentSortedList<Record> list;
+     private RecordList recordList;
+     private String[] names;
+     private Record[] extra;
+
+     @Setup(Level.Trial)
+     public void setUp() {
+          users = Math.max(1, size / 20);
+          Record[] records = LogData.records(size, users);
+          list = new ConcurrentSortedList<>();
+          list.addAll(Arrays.asList(records));
+          recordList = new RecordList(new UserDictionary(), true);
+          recordList.addAll(Arrays.asList(records));
+          names = LogData.names(users);
+          extra = LogData.records(Math.max(2, size / 10), users);
+     }
+
+     @Benchmark
+     public long get() {
+          ThreadLocalRandom random = ThreadLocalRandom.current();
+          if (random.nextInt(100) < WRITE_PERCENT) {
+               Record r = extra[random.nextInt(extra.length)];
+               list.add(r);
+               return list.remove(r) ? 1 : 0;
+          }
+          return list.get(random.nextInt(size)).getTerminal();
+     }
+
+     @Benchmark
+     public long query() {
+          ThreadLocalRandom random = ThreadLocalRandom.current();
+          if (random.nextInt(100) < WRITE_PERCENT) {
+               Record r = extra[random.nextInt(extra.length)];
+               recordList.add(r);
+               return recordList.remove(r) ? 1 : 0;
+          }
+          String name = names[random.nextInt(users)];
+          return LogData.query(() -> recordList.getTotalTime(name));
+     }
+}
@@ -0,0 +1,174 @@
+package project3;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The ListBenchmark class measures SortedLinkedList: filling a list with ordered, reversed and
+ * random records, and get(i), indexOf, contains, remove and streams on a full list
+ * The fill benchmarks give the time to add all the records of a list, the others the time of one call
+ *
+ * @author Thales Gao
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = "-Xmx4g")
+public class ListBenchmark {
+
+     /**
+      * The records of a list, in time order, reversed and shuffled
+      */
+     @State(Scope.Benchmark)
+     public static class Data {
+          @Param({"1000", "10000", "100000", "1000000", "10000000"})
+          public int size;
+
+          Record[] ordered;
+          Record[] reversed;
+          Record[] shuffled;
+
+          @Setup(Level.Trial)
+          public void setUp() {
+               ordered = LogData.records(size, Math.max(1, size / 20));
+               reversed = ordered.clone();
+               Collections.reverse(Arrays.asList(reversed));
+               shuffled = ordered.clone();
+               Collections.shuffle(Arrays.asList(shuffled), new Random(LogData.SEED));
+          }
+     }
+
+     /**
+      * A list holding the records of Data and the positions looked up in it
+      */
+     abstract static class Lookups {
+          private static final int LOOKUPS = 1 << 14;
+
+          SortedLinkedList<Record> list;
+          Record[] ordered;
+          int[] indexes;
+          int next;
+
+          void fill(Data data, boolean hashIndexed) {
+               list = new SortedLinkedList<>();
+               list.addAll(Arrays.asList(data.shuffled));
+               list.setHashIndexed(hashIndexed);
+               ordered = data.ordered;
+               indexes = new Random(LogData.SEED).ints(LOOKUPS, 0, data.size).toArray();
+          }
+
+          int nextIndex() {
+               next = (next + 1) & (LOOKUPS - 1);
+               return indexes[next];
+          }
+     }
+
+     /**
+      * A full list, for the accesses by position and the streams
+      */
+     @State(Scope.Thread)
+     public static class Filled extends Lookups {
+          @Setup(Level.Trial)
+          public void setUp(Data data) {
+               this.fill(data, false);
+          }
+     }
+
+     /**
+      * A full list, with or without its hash index, for the searches by element
+      */
+     @State(Scope.Thread)
+     public static class Searched extends Lookups {
+          @Param({"false", "true"})
+          public boolean hashIndexed;
+
+          @Setup(Level.Trial)
+          public void setUp(Data data) {
+               this.fill(data, hashIndexed);
+          }
+     }
+
+     @Benchmark
+     @OutputTimeUnit(TimeUnit.MICROSECONDS)
+     public SortedLinkedList<Record> addOrdered(Data data) {
+          return fill(data.ordered);
+     }
+
+     @Benchmark
+     @OutputTimeUnit(TimeUnit.MICROSECONDS)
+     public SortedLinkedList<Record> addReversed(Data data) {
+          return fill(data.reversed);
+     }
+
+     @Benchmark
+     @OutputTimeUnit(TimeUnit.MICROSECONDS)
+     public SortedLinkedList<Record> addRandom(Data data) {
+          return fill(data.shuffled);
+     }
+
+     @Benchmark
+     @OutputTimeUnit(TimeUnit.MICROSECONDS)
+     public SortedLinkedList<Record> addAllRandom(Data data) {
+          SortedLinkedList<Record> list = new SortedLinkedList<>();
+          list.addAll(Arrays.asList(data.shuffled));
+          return list;
+     }
+
+     @Benchmark
+     public Record get(Filled filled) {
+          return filled.list.get(filled.nextIndex());
+     }
+
+     @Benchmark
+     public int indexOf(Searched filled) {
+          return filled.list.indexOf(filled.ordered[filled.nextIndex()]);
+     }
+
+     @Benchmark
+     public boolean contains(Searched filled) {
+          return filled.list.contains(filled.ordered[filled.nextIndex()]);
+     }
+
+     @Benchmark
+     public boolean removeAndAdd(Searched filled) {
+          Record r = filled.ordered[filled.nextIndex()];
+          filled.list.remove(r);
+          return filled.list.add(r);
+     }
+
+     @Benchmark
+     @OutputTimeUnit(TimeUnit.MICROSECONDS)
+     public long stream(Filled filled) {
+          return filled.list.stream().mapToLong(Record::getTerminal).sum();
+     }
+
+     @Benchmark
+     @OutputTimeUnit(TimeUnit.MICROSECONDS)
+     public long parallelStream(Filled filled) {
+          return filled.list.parallelStream().mapToLong(Record::getTerminal).sum();
+     }
+
+     private static SortedLinkedList<Record> fill(Record[] records) {
+          SortedLinkedList<Record> list = new SortedLinkedList<>();
+          for (Record r : records) {
+               list.add(r);
+          }
+          return list;
+     }
+}
@@ -0,0 +1,108 @@
+package project3;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.function.LongSupplier;
+
+/**
+ * The LogData class generates the logs the benchmarks run on
+ * The data comes from a fixed seed, so every run and every revision measures the same input
+ *
+ * @author Thales Gao
+ */
+final class LogData {
+     static final long SEED = 42;
+     //start of the generated log, and the most seconds a session lasts
+     static final long EPOCH = 1600000000000L;
+     private static final int MAX_DURATION = 4 * 3600;
+
+     private LogData() {
+     }
+
+     /**
+      * Generates the records of a log: sessions of random users on random terminals, in the order of their times
+      * @param size The number of records, two for each session
+      * @param users The number of distinct users, at most half the number of records
+      * @return the records sorted by time
+      */
+     static Record[] records(int size, int users) {
+          Random random = new Random(SEED);
+          String[] names = names(users);
+          List<Record> records = new ArrayList<>(size);
+          //spread the logins over a period that grows with the size of the log
+          long span = (long) size * MAX_DURATION / 20 + 1;
+          while (records.size() + 1 < size) {
+               String name = names[random.nextInt(users)];
+               int terminal = 1 + random.nextInt(8);
+               long login = EPOCH + 1000 * (long) (random.nextDouble() * span);
+               long logout = login + 1000 * (1 + random.nextInt(MAX_DURATION));
+               records.add(new Record(terminal, true, name, new Date(login)));
+               records.add(new Record(terminal, false, name, new Date(logout)));
+          }
+          if (records.size() < size) {
+               records.add(new Record(1, true, names[0], new Date(EPOCH)));
+          }
+          records.sort(null);
+          return records.toArray(new Record[0]);
+     }
+
+     /**
+      * Returns the usernames of the generated logs
+      * @param users The number of distinct users
+      * @return the usernames u0 to u(users - 1)
+      */
+     static String[] names(int users) {
+          String[] names = new String[users];
+          for (int u = 0; u < users; u++) {
+               names[u] = "u" + u;
+          }
+          return names;
+     }
+
+     /**
+      * Returns the number of users a log of the given size can hold, since a user needs a session
+      * @param size The number of records
+      * @param users The number of users asked for
+      * @return the number of users of the generated log
+      */
+     static int users(int size, int users) {
+          return Math.max(1, Math.min(users, size / 2));
+     }
+
+     /**
+      * Writes the records of a generated log to a temporary file, in the format LoginStats reads
+      * @param size The number of lines
+      * @param users The number of distinct users
+      * @return the file, to be deleted by the caller
+      * @throws IOException if the file cannot be written
+      */
+     static Path writeLog(int size, int users) throws IOException {
+          Path file = Files.createTempFile("logins", ".txt");
+          try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+               for (Record r : records(size, users)) {
+                    out.write((r.isLogin() ? r.getTerminal() : -r.getTerminal()) + " " + r.getTime().getTime() + " " + r.getUsername());
+                    out.newLine();
+               }
+          }
+          return file;
+     }
+
+     /**
+      * Runs a query, counting a user without sessions as 0
+      */
+     static long query(LongSupplier query) {
+          try {
+               return query.getAsLong();
+          } catch (NoSuchElementException e) {
+               return 0;
+          }
+     }
+}
@@ -0,0 +1,66 @@
+package project3;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The ParseBenchmark class measures reading a generated log file into a RecordList,
+ * one record at a time with LogParser and in parallel chunks with ParallelLoader
+ *
+ * @author Thales Gao
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ParseBenchmark {
+     @Param({"1000", "10000", "100000", "1000000", "10000000"})
+     public int size;
+
+     @Param({"10", "1000", "100000"})
+     public int users;
+
+     private Path file;
+
+     @Setup(Level.Trial)
+     public void setUp() throws IOException {
+          file = LogData.writeLog(size, LogData.users(size, users));
+     }
+
+     @TearDown(Level.Trial)
+     public void tearDown() throws IOException {
+          Files.delete(file);
+     }
+
+     @Benchmark
+     public RecordList parse() throws IOException {
+          RecordList list = new RecordList();
+          new LogParser(file, list.getUserDictionary()).parse(list::add);
+          return list;
+     }
+
+     @Benchmark
+     public RecordList loadParallel() throws IOException {
+          RecordList list = new RecordList();
+          new ParallelLoader(file).load(list);
+          return list;
+     }
+}
@@ -0,0 +1,123 @@
+package project3;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The QueryBenchmark class measures the session queries of a RecordList for one random user at a time,
+ * and the queries about all users
+ * A log cannot have more users than sessions, so the smaller logs are generated with fewer users
+ *
+ * @author Thales Gao
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class QueryBenchmark {
+     private static final int LOOKUPS = 1 << 14;
+
+     @Param({"1000", "10000", "100000", "1000000", "10000000"})
+     public int size;
+
+     @Param({"10", "1000", "100000"})
+     public int users;
+
+     private RecordList list;
+     private String[] names;
+     private int next;
+     private Record extra;
+
+     @Setup(Level.Trial)
+     public void setUp() {
+          int count = LogData.users(size, users);
+          list = new RecordList();
+          list.addAll(Arrays.asList(LogData.records(size, count)));
+          String[] all = LogData.names(count);
+          Random random = new Random(LogData.SEED);
+          names = new String[LOOKUPS];
+          for (int i = 0; i < names.length; i++) {
+               names[i] = all[random.nextInt(count)];
+          }
+          extra = new Record(1, true, all[0], new Date(LogData.EPOCH));
+     }
+
+     private String nextName() {
+          next = (next + 1) & (LOOKUPS - 1);
+          return names[next];
+     }
+
+     @Benchmark
+     public long getFirstSession() {
+          String name = this.nextName();
+          return LogData.query(() -> list.getFirstSession(name).getTerminal());
+     }
+
+     @Benchmark
+     public long getLastSession() {
+          String name = this.nextName();
+          return LogData.query(() -> list.getLastSession(name).getTerminal());
+     }
+
+     @Benchmark
+     public long getAllSessions() {
+          String name = this.nextName();
+          return LogData.query(() -> list.getAllSessions(name).size());
+     }
+
+     @Benchmark
+     public long getTotalTime() {
+          String name = this.nextName();
+          return LogData.query(() -> list.getTotalTime(name));
+     }
+
+     /**
+      * The first ten sessions of a user, paired lazily since no other query of this trial fills the cache
+      */
+     @Benchmark
+     public long iterateSessionsFirst10() {
+          String name = this.nextName();
+          return LogData.query(() -> list.streamSessions(name).limit(10).count());
+     }
+
+     /**
+      * A query right after a change, which pairs the sessions of the changed user again
+      */
+     @Benchmark
+     public long firstQueryAfterAdd() {
+          list.add(extra);
+          long total = LogData.query(() -> list.getTotalTime(extra.getUsername()));
+          list.remove(extra);
+          return total;
+     }
+
+     @Benchmark
+     @OutputTimeUnit(TimeUnit.MICROSECONDS)
+     public int analyzeConcurrency() {
+          return list.analyzeConcurrency(null).getPeak();
+     }
+
+     @Benchmark
+     @OutputTimeUnit(TimeUnit.MICROSECONDS)
+     public List<UserTotal> topUsers() {
+          return list.topUsers(10);
+     }
+}
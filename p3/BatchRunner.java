@@ -0,0 +1,173 @@
+package project3;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The BatchRunner class answers a file of LoginStats commands, one per line, and writes
+ * the answers to another file in the order of the commands, like the interactive program
+ * would print them
+ * The sessions of all users are paired once before the commands run, so the commands only
+ * read them and run in parallel on a ForkJoinPool, and a command repeated in the file is
+ * answered only once
+ * A line containing quit ends the batch
+ *
+ * @author Thales Gao
+ */
+public class BatchRunner {
+     //smallest number of commands worth handing to its own task
+     private static final int MIN_TASK = 16;
+
+     private SessionQueries list;
+     private ForkJoinPool pool;
+     private OutputFormat format = OutputFormat.TEXT;
+     private int distinct;
+
+     /**
+      * Constructor initializes a runner for the given records running on the common pool
+      * @param list The records to query
+      * @throws IllegalArgumentException if the list is null
+      */
+     public BatchRunner(SessionQueries list) throws IllegalArgumentException {
+          this(list, ForkJoinPool.commonPool());
+     }
+
+     /**
+      * Constructor initializes a runner for the given records running on the given pool
+      * @param list The records to query, which must not change while the batch runs
+      * @param pool The pool the commands are answered on
+      * @throws IllegalArgumentException if the list or the pool is null
+      */
+     public BatchRunner(SessionQueries list, ForkJoinPool pool) throws IllegalArgumentException {
+          if (list == null || pool == null)
+               throw new IllegalArgumentException("List and pool cannot be null");
+          this.list = list;
+          this.pool = pool;
+     }
+
+     /**
+      * Sets the format the sessions and login times are written in, TEXT unless set
+      * @param format The format of the answers
+      * @throws IllegalArgumentException if the format is null
+      */
+     public void setFormat(OutputFormat format) throws IllegalArgumentException {
+          if (format == null)
+               throw new IllegalArgumentException("Format cannot be null");
+          this.format = format;
+     }
+
+     /**
+      * Answers the commands of a file and writes the answers to another file
+      * @param in The file of commands
+      * @param out The file the answers are written to, replaced if it exists
+      * @return the number of commands answered
+      * @throws IOException if a file cannot be read or written
+      */
+     public int run(Path in, Path out) throws IOException {
+          //every distinct command once, and the position of each line's command among them
+          ArrayList<String> commands = new ArrayList<>();
+          HashMap<String, Integer> positions = new HashMap<>();
+          ArrayList<Integer> lines = new ArrayList<>();
+          for (String line : Files.readAllLines(in, StandardCharsets.UTF_8)) {
+               line = line.trim();
+               if (line.equalsIgnoreCase("quit")) {
+                    break;
+               }
+               Integer position = positions.get(line);
+               if (position == null) {
+                    position = commands.size();
+                    positions.put(line, position);
+                    commands.add(line);
+               }
+               lines.add(position);
+          }
+          distinct = commands.size();
+
+          //a snapshot pairs the sessions of every user in one pass over the list and never changes;
+          //a columnar list is sorted and indexed by user before the threads read it,
+          //and a sharded list pairs the sessions of all its shards at once;
+          //the index of all sessions by time is only built up front if a command asks for it
+          SessionQueries queries = list;
+          if (list instanceof RecordList) {
+               queries = ((RecordList) list).snapshot();
+          } else if (hasTimeCommand(commands)) {
+               list.getSessionIndex();
+          } else if (list instanceof ColumnarRecordList) {
+               ((ColumnarRecordList) list).prepare();
+          } else if (list instanceof ShardedRecordList) {
+               ((ShardedRecordList) list).prepare();
+          }
+          String[] answers = new String[commands.size()];
+          pool.invoke(new AnswerTask(queries, format, commands, answers, 0, answers.length));
+
+          try (BufferedWriter writer = Files.newBufferedWriter(out, StandardCharsets.UTF_8)) {
+               for (int position : lines) {
+                    writer.write(answers[position]);
+               }
+          }
+          return lines.size();
+     }
+
+     /**
+      * Tells whether any command is answered from the index of all sessions by time
+      */
+     private static boolean hasTimeCommand(List<String> commands) {
+          for (String command : commands) {
+               String word = command.split(" ", 2)[0];
+               if (word.equalsIgnoreCase("at") || word.equalsIgnoreCase("during") || word.equalsIgnoreCase("terminal")) {
+                    return true;
+               }
+          }
+          return false;
+     }
+
+     /**
+      * Returns the number of different commands in the last batch, each of which was answered once
+      * @return the number of distinct commands
+      */
+     public int getDistinctCount() {
+          return distinct;
+     }
+
+     /* Answers a range of the distinct commands, splitting it in halves while it is large. */
+     private static class AnswerTask extends RecursiveAction {
+          private static final long serialVersionUID = 1L;
+
+          private final SessionQueries queries;
+          private final OutputFormat format;
+          private final List<String> commands;
+          private final String[] answers;
+          private final int from;
+          private final int to;
+
+          AnswerTask(SessionQueries queries, OutputFormat format, List<String> commands, String[] answers, int from, int to) {
+               this.queries = queries;
+               this.format = format;
+               this.commands = commands;
+               this.answers = answers;
+               this.from = from;
+               this.to = to;
+          }
+
+          @Override
+          protected void compute() {
+               if (to - from <= MIN_TASK) {
+                    for (int i = from; i < to; i++) {
+                         answers[i] = LoginStats.answer(queries, commands.get(i).split(" "), format);
+                    }
+                    return;
+               }
+               int mid = (from + to) >>> 1;
+               invokeAll(new AnswerTask(queries, format, commands, answers, from, mid),
+                         new AnswerTask(queries, format, commands, answers, mid, to));
+          }
+     }
+}
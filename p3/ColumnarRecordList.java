@@ -0,0 +1,487 @@
+package project3;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * The ColumnarRecordList class stores login records in parallel primitive arrays
+ * instead of Record objects: one array of times, one of terminals, one of user ids
+ * and a bit set of logins, sorted by time in the same order a RecordList would use
+ * Usernames are stored once in a UserDictionary and referred to by their id
+ * Record and Session objects are only created for the results of a query,
+ * so a log takes about 20 bytes per record in memory
+ *
+ * @author Thales Gao
+ */
+public class ColumnarRecordList implements SessionQueries {
+     private long[] times = new long[16];
+     private int[] terminals = new int[16];
+     private int[] users = new int[16];
+     private BitSet logins = new BitSet();
+     private int size;
+     //the records before this position are in list order, those after it were appended out of order
+     private int sortedSize;
+
+     private UserDictionary dictionary;
+
+     //positions of the records of each user, in list order: the records of user u are at
+     //userPositions[userStart[u]] to userPositions[userStart[u + 1] - 1]; null until needed
+     private int[] userStart;
+     private int[] userPositions;
+     //index of all sessions by time, null until needed and after a record is added
+     private SessionIndex sessionIndex;
+
+     /**
+      * Constructor initializes an empty list
+      */
+     public ColumnarRecordList() {
+          this(new UserDictionary());
+     }
+
+     /**
+      * Constructor initializes an empty list that stores usernames in the given dictionary
+      * @param dictionary The dictionary of usernames
+      * @throws IllegalArgumentException if the dictionary is null
+      */
+     public ColumnarRecordList(UserDictionary dictionary) throws IllegalArgumentException {
+          if (dictionary == null)
+               throw new IllegalArgumentException("Dictionary cannot be null");
+          this.dictionary = dictionary;
+     }
+
+     /**
+      * Returns the dictionary the usernames of the list are stored in
+      * @return the dictionary of usernames
+      */
+     public UserDictionary getUserDictionary() {
+          return dictionary;
+     }
+
+     /**
+      * Reads all records of a log file with the given parser and adds them to the list
+      * The user ids of the parser are used as they are when it shares the dictionary of the list
+      * @param parser The parser of the log file
+      * @throws IOException if the file cannot be read
+      */
+     public void load(LogParser parser) throws IOException {
+          UserDictionary source = parser.getUserDictionary();
+          parser.parseFields((terminal, login, userId, username, time) ->
+                    this.append(terminal, login, source == dictionary ? userId : dictionary.intern(username), time));
+     }
+
+     /**
+      * Adds a record to the list
+      * @param r The record to add
+      * @return true if the record was added, false otherwise (if r is null)
+      */
+     public boolean add(Record r) {
+          if (r == null) {
+               return false;
+          }
+          this.add(r.getTerminal(), r.isLogin(), r.getUsername(), r.getTime().getTime());
+          return true;
+     }
+
+     /**
+      * Adds a record to the list given its fields
+      * @param terminal The terminal number
+      * @param login true for a login, false for a logout
+      * @param username The username
+      * @param time The time in milliseconds since the epoch
+      * @throws IllegalArgumentException when the terminal number is negative or the username is null
+      */
+     public void add(int terminal, boolean login, String username, long time) throws IllegalArgumentException {
+          if (terminal < 0)
+               throw new IllegalArgumentException ("Invalid terminal value: " + "Must be a positive integer.");
+          this.append(terminal, login, dictionary.intern(username), time);
+     }
+
+     /**
+      * Appends a record whose username already has an id in the dictionary
+      */
+     private void append(int terminal, boolean login, int id, long time) {
+          if (size == times.length) {
+               int capacity = Math.max(16, size + (size >> 1));
+               times = Arrays.copyOf(times, capacity);
+               terminals = Arrays.copyOf(terminals, capacity);
+               users = Arrays.copyOf(users, capacity);
+          }
+          //like add on a RecordList, a record goes before records with the same time
+          if (sortedSize == size && (size == 0 || time > times[size - 1])) {
+               sortedSize++;
+          }
+          Metrics.ingested(1);
+          times[size] = time;
+          terminals[size] = terminal;
+          users[size] = id;
+          logins.set(size, login);
+          size++;
+          userStart = null;
+          sessionIndex = null;
+     }
+
+     /**
+      * Returns the number of records in the list
+      * @return the number of records
+      */
+     public int size() {
+          return size;
+     }
+
+     /**
+      * Returns the record at the specified index in the list
+      * @param index the index of the record to return
+      * @return a new Record with the fields stored at the index
+      * @throws IndexOutOfBoundsException if the index is out of range
+      */
+     public Record get(int index) throws IndexOutOfBoundsException {
+          if (index < 0 || index >= size) {
+               throw new IndexOutOfBoundsException("index not in range");
+          }
+          this.ensureSorted();
+          return this.record(index);
+     }
+
+     /**
+      * Returns the first login session of a specific user
+      * i.e. earliest login time
+      * @param user The user whose information is to be accessed
+      * @return the first login session of a specific user
+      * @throws NoSuchElementException where the specific user does not match any record
+      * @throws IllegalArgumentException when the argument string is invalid
+      */
+     public Session getFirstSession(String user) throws NoSuchElementException, IllegalArgumentException {
+          int u = this.userOf(user);
+          if (u >= 0) {
+               for (int i = userStart[u]; i < userStart[u + 1]; i++) {
+                    if (logins.get(userPositions[i])) {
+                         return this.session(userPositions[i], this.logoutAfter(u, i));
+                    }
+               }
+          }
+          throw new NoSuchElementException("The given user does not have a login record.");
+     }
+
+     /**
+      * Returns the last logout session of a specific user
+      * i.e. latest logout time
+      * @param user The user whose information is to be accessed
+      * @return the last logout session of a specific user
+      * @throws NoSuchElementException where the specific user does not match any record
+      * @throws IllegalArgumentException when the argument string is invalid
+      */
+     public Session getLastSession(String user) throws NoSuchElementException, IllegalArgumentException {
+          int u = this.userOf(user);
+          if (u >= 0) {
+               for (int i = userStart[u + 1] - 1; i >= userStart[u]; i--) {
+                    if (logins.get(userPositions[i])) {
+                         return this.session(userPositions[i], this.logoutAfter(u, i));
+                    }
+               }
+          }
+          throw new NoSuchElementException("The given user does not have a login record.");
+     }
+
+     /**
+      * Provides the total login time of a specified user
+      * @param user The user whose information is to be accessed
+      * @return the total duration of the user
+      * @throws NoSuchElementException where the specific user does not match any record
+      * @throws IllegalArgumentException when the argument string is invalid
+      */
+     public long getTotalTime(String user) throws NoSuchElementException, IllegalArgumentException {
+          int[] pairs = this.pairsOf(user);
+          long total = 0;
+          for (int i = 0; i < pairs.length; i += 2) {
+               if (pairs[i + 1] >= 0) {
+                    total += times[pairs[i + 1]] - times[pairs[i]];
+               }
+          }
+          return total;
+     }
+
+     /**
+      * Generate a sorted linked list of all the session of a given user
+      * @param user The user whose information is to be accessed
+      * @return A sorted linked list of all the sessions of the user
+      * @throws NoSuchElementException where the specific user does not match any record
+      * @throws IllegalArgumentException when the argument string is invalid
+      */
+     public SortedLinkedList<Session> getAllSessions(String user) throws NoSuchElementException, IllegalArgumentException {
+          int[] pairs = this.pairsOf(user);
+          ArrayList<Session> sessions = new ArrayList<>(pairs.length / 2);
+          for (int i = 0; i < pairs.length; i += 2) {
+               sessions.add(this.session(pairs[i], pairs[i + 1]));
+          }
+          SortedLinkedList<Session> sll = new SortedLinkedList<>();
+          sll.addAll(sessions);
+          return sll;
+     }
+
+     /**
+      * Sorts the columns and builds the positions of every user's records, so that
+      * queries made from several threads only read them
+      */
+     void prepare() {
+          this.ensureSorted();
+          this.ensureIndexed();
+     }
+
+     /**
+      * Returns the index of the sessions of all users by time
+      * @return the index of all sessions as they are now
+      */
+     public SessionIndex getSessionIndex() {
+          if (sessionIndex == null) {
+               this.ensureSorted();
+               this.ensureIndexed();
+               ArrayList<Session> all = new ArrayList<>();
+               for (int u = 0; u + 1 < userStart.length; u++) {
+                    int[] pairs = this.pairsOf(u);
+                    for (int i = 0; i < pairs.length; i += 2) {
+                         all.add(this.session(pairs[i], pairs[i + 1]));
+                    }
+               }
+               sessionIndex = new SessionIndex(all);
+          }
+          return sessionIndex;
+     }
+
+     /**
+      * Returns the users with the largest login time between two times, adding up the
+      * sessions of all users in one pass over the columns
+      * @param k The largest number of users to return
+      * @param from The start of the window in milliseconds since the epoch
+      * @param to The end of the window in milliseconds since the epoch
+      * @return at most k users with a positive total in the window, the largest total first
+      * @throws IllegalArgumentException if k is not positive or from is after to
+      */
+     public List<UserTotal> topUsers(int k, long from, long to) throws IllegalArgumentException {
+          if (k <= 0)
+               throw new IllegalArgumentException("Invalid count: " + k);
+          UserTotals totals = new UserTotals(dictionary, from, to);
+          this.ensureSorted();
+          for (int i = 0; i < size; i++) {
+               totals.accept(terminals[i], logins.get(i), users[i], null, times[i]);
+          }
+          return totals.top(k);
+     }
+
+     /**
+      * Measures the number of sessions open at the same time in one pass over the columns
+      * @param listener The listener receiving every change of the number of open sessions, or null
+      * @return the analyzer holding the peaks and the time spent at each number of open sessions
+      */
+     public ConcurrencyAnalyzer analyzeConcurrency(ConcurrencyAnalyzer.Listener listener) {
+          this.ensureSorted();
+          ConcurrencyAnalyzer analyzer = new ConcurrencyAnalyzer(dictionary, listener);
+          for (int i = 0; i < size; i++) {
+               analyzer.accept(terminals[i], logins.get(i), users[i], null, times[i]);
+          }
+          analyzer.flush();
+          return analyzer;
+     }
+
+     /**
+      * Checks the username and returns its id, sorting and indexing the columns first if needed
+      * @return the id of the user, -1 if there are no records of the user
+      */
+     private int userOf(String user) throws IllegalArgumentException {
+          if (user == null || user.isEmpty())
+               throw new IllegalArgumentException("Invalid username");
+          this.ensureSorted();
+          this.ensureIndexed();
+          int id = dictionary.idOf(user);
+          //the dictionary can be shared, so a user may be known without having records here
+          return id < 0 || id >= userStart.length - 1 || userStart[id] == userStart[id + 1] ? -1 : id;
+     }
+
+     /**
+      * Pairs the records of a user into sessions with the same rule as SessionTracker
+      * @return the position of each login of the user followed by the position of its logout
+      * (-1 for an active session), in the order of the logins
+      */
+     private int[] pairsOf(String user) throws NoSuchElementException, IllegalArgumentException {
+          int u = this.userOf(user);
+          int[] pairs = u < 0 ? new int[0] : this.pairsOf(u);
+          if (pairs.length == 0)
+               throw new NoSuchElementException("The given user does not have a login record.");
+          return pairs;
+     }
+
+     /**
+      * Pairs the records of the user with the given id, once the columns are sorted and indexed
+      * @return the pairs of positions like pairsOf(String), empty if the user has no login
+      */
+     private int[] pairsOf(int u) {
+          int[] pairs = new int[2 * (userStart[u + 1] - userStart[u])];
+          int n = 0;
+          //open logins of each terminal, as indexes into pairs
+          HashMap<Integer, ArrayList<Integer>> open = new HashMap<>();
+          for (int i = userStart[u]; i < userStart[u + 1]; i++) {
+               int p = userPositions[i];
+               if (logins.get(p)) {
+                    pairs[n] = p;
+                    pairs[n + 1] = -1;
+                    open.computeIfAbsent(terminals[p], k -> new ArrayList<>(1)).add(n);
+                    n += 2;
+               } else {
+                    ArrayList<Integer> pending = open.get(terminals[p]);
+                    if (pending != null) {
+                         pending.removeIf(k -> {
+                              if (times[pairs[k]] < times[p]) {
+                                   pairs[k + 1] = p;
+                                   return true;
+                              }
+                              return false;
+                         });
+                    }
+               }
+          }
+          return Arrays.copyOf(pairs, n);
+     }
+
+     /**
+      * Finds the logout ending the login at index i of the user's positions:
+      * the first later logout of the user on the same terminal
+      * @return the position of the logout, -1 if the session is still active
+      */
+     private int logoutAfter(int u, int i) {
+          int login = userPositions[i];
+          for (int j = i + 1; j < userStart[u + 1]; j++) {
+               int p = userPositions[j];
+               if (!logins.get(p) && terminals[p] == terminals[login] && times[p] > times[login]) {
+                    return p;
+               }
+          }
+          return -1;
+     }
+
+     private Record record(int p) {
+          return new Record(terminals[p], logins.get(p), dictionary.name(users[p]), users[p], new Date(times[p]));
+     }
+
+     private Session session(int login, int logout) {
+          return new Session(this.record(login), logout < 0 ? null : this.record(logout));
+     }
+
+     /**
+      * Sorts the columns by time if records were added out of order
+      * The records appended since the columns were last sorted are sorted and merged into
+      * the sorted ones, each going before the records with the same time that were there
+      * before it, as add on a RecordList does
+      */
+     private void ensureSorted() {
+          if (sortedSize == size) {
+               return;
+          }
+          int[] tail = new int[size - sortedSize];
+          for (int i = 0; i < tail.length; i++) {
+               tail[i] = sortedSize + i;
+          }
+          this.sortOrder(tail, 0, tail.length - 1);
+          long[] sortedTimes = new long[size];
+          int[] sortedTerminals = new int[size];
+          int[] sortedUsers = new int[size];
+          BitSet sortedLogins = new BitSet(size);
+          int i = 0;
+          int j = 0;
+          for (int n = 0; n < size; n++) {
+               //on equal times the appended record goes first, since it was added later
+               int p = j < tail.length && (i == sortedSize || times[tail[j]] <= times[i]) ? tail[j++] : i++;
+               sortedTimes[n] = times[p];
+               sortedTerminals[n] = terminals[p];
+               sortedUsers[n] = users[p];
+               sortedLogins.set(n, logins.get(p));
+          }
+          times = sortedTimes;
+          terminals = sortedTerminals;
+          users = sortedUsers;
+          logins = sortedLogins;
+          sortedSize = size;
+          userStart = null;
+     }
+
+     /* Record a goes before record b if it is earlier, or at the same time and appended later,
+      * which the positions tell as long as neither has been moved by a sort. */
+     private boolean before(int a, int b) {
+          return times[a] < times[b] || (times[a] == times[b] && a > b);
+     }
+
+     /* Quicksort of record positions by the before order, with insertion sort for short ranges. */
+     private void sortOrder(int[] order, int lo, int hi) {
+          while (hi - lo > 16) {
+               int mid = (lo + hi) >>> 1;
+               //median of the first, middle and last positions as the pivot
+               int a = order[lo];
+               int b = order[mid];
+               int c = order[hi];
+               int pivot = before(a, b) ? (before(b, c) ? b : (before(a, c) ? c : a))
+                                        : (before(a, c) ? a : (before(b, c) ? c : b));
+               int i = lo;
+               int j = hi;
+               while (i <= j) {
+                    while (before(order[i], pivot)) {
+                         i++;
+                    }
+                    while (before(pivot, order[j])) {
+                         j--;
+                    }
+                    if (i <= j) {
+                         int tmp = order[i];
+                         order[i] = order[j];
+                         order[j] = tmp;
+                         i++;
+                         j--;
+                    }
+               }
+               //recurse into the smaller part and loop on the larger one
+               if (j - lo < hi - i) {
+                    this.sortOrder(order, lo, j);
+                    lo = i;
+               } else {
+                    this.sortOrder(order, i, hi);
+                    hi = j;
+               }
+          }
+          for (int i = lo + 1; i <= hi; i++) {
+               int x = order[i];
+               int j = i - 1;
+               while (j >= lo && before(x, order[j])) {
+                    order[j + 1] = order[j];
+                    j--;
+               }
+               order[j + 1] = x;
+          }
+     }
+
+     /**
+      * Builds the positions of the records of every user if they are not up to date
+      */
+     private void ensureIndexed() {
+          if (userStart != null) {
+               return;
+          }
+          int count = dictionary.size();
+          int[] start = new int[count + 1];
+          for (int i = 0; i < size; i++) {
+               start[users[i] + 1]++;
+          }
+          for (int u = 0; u < count; u++) {
+               start[u + 1] += start[u];
+          }
+          int[] next = Arrays.copyOf(start, count);
+          int[] positions = new int[size];
+          for (int i = 0; i < size; i++) {
+               positions[next[users[i]]++] = i;
+          }
+          userPositions = positions;
+          userStart = start;
+     }
+}
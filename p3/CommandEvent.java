@@ -0,0 +1,25 @@
+package project3;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The CommandEvent class is the Flight Recorder event of answering one LoginStats command
+ * It is only recorded while a flight recording with the event enabled is running
+ *
+ * @author Thales Gao
+ */
+@Name("project3.Command")
+@Label("Command")
+@Category("LoginStats")
+@Description("Answering one command")
+public class CommandEvent extends jdk.jfr.Event {
+     @Label("Command")
+     String command;
+
+     @Label("Answer Length")
+     @Description("Number of characters in the answer")
+     int answerLength;
+}
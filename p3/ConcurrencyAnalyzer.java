@@ -0,0 +1,366 @@
+package project3;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+
+/**
+ * The ConcurrencyAnalyzer class measures how many sessions are open at the same time
+ * in a single pass over the records in time order, pairing logins and logouts with the
+ * same rule as SessionTracker without building the sessions
+ * It keeps the peak number of open sessions in total and on each terminal, the time spent
+ * at each number of open sessions and the time each terminal was in use, and can pass every
+ * change of the total to a listener as a time series
+ * Changes made at the same millisecond are counted together, and the time covered is the time
+ * between the first and the last record that opened or closed a session
+ * The memory used follows the number of open sessions and of terminals, not the number of records:
+ * the open logins of a user on a terminal are dropped once they are all closed, and each terminal
+ * keeps only its counters, which are the results asked for at the end
+ *
+ * @author Thales Gao
+ */
+public class ConcurrencyAnalyzer implements LogParser.FieldSink {
+     private static final int MIN_CAPACITY = 16;
+
+     /**
+      * Receives the concurrency time series built by a ConcurrencyAnalyzer
+      */
+     public interface Listener {
+          /**
+           * Called every time the number of open sessions changes
+           * @param time The time of the change in milliseconds since the epoch
+           * @param level The number of sessions open from that time on
+           */
+          void levelChanged(long time, int level);
+     }
+
+     private final UserDictionary users;
+     private final Listener listener;
+
+     //open logins of each user and terminal; only the number of sessions a logout completes is needed
+     private final OpenLogins open = new OpenLogins((userId, terminal, login, logout) -> { });
+
+     //statistics of each terminal, in an open addressing table keyed by terminal number;
+     //a terminal is never removed, since its peak and busy time are asked for after the last record
+     private Terminal[] terminals = new Terminal[MIN_CAPACITY];
+     private int terminalCount;
+     //terminals changed at the current time
+     private ArrayList<Terminal> touched = new ArrayList<>();
+
+     private long lastRecord = Long.MIN_VALUE;
+     private boolean started;
+     //changes were made at the current time that are not in the statistics yet
+     private boolean pending;
+     private long start;
+     private long time;
+     private int level;
+     private int reported;
+     private int peak;
+     private long peakTime;
+     private long[] timeAtLevel = new long[MIN_CAPACITY];
+
+     private static class Terminal {
+          final int number;
+          int count;
+          int peak;
+          long peakTime;
+          long busy;
+          //time the terminal was last taken while it had no session, -1 while it is free
+          long busySince = -1;
+          boolean touched;
+
+          Terminal(int number) {
+               this.number = number;
+          }
+     }
+
+     /**
+      * Constructor initializes an analyzer that has seen no records
+      * @param users The dictionary the user ids of the records come from
+      * @param listener The listener receiving every change of the number of open sessions, or null
+      * @throws IllegalArgumentException if the dictionary is null
+      */
+     public ConcurrencyAnalyzer(UserDictionary users, Listener listener) throws IllegalArgumentException {
+          if (users == null)
+               throw new IllegalArgumentException("Dictionary cannot be null");
+          this.users = users;
+          this.listener = listener;
+     }
+
+     /**
+      * Builds the statistics of already paired sessions
+      * Gives the same results as the records the sessions were paired from
+      * @param sessions The sessions to analyze, in any order
+      * @param users The dictionary of the users of the sessions
+      * @param listener The listener receiving every change of the number of open sessions, or null
+      * @return the analyzer holding the statistics
+      */
+     static ConcurrencyAnalyzer of(Collection<Session> sessions, UserDictionary users, Listener listener) {
+          ConcurrencyAnalyzer analyzer = new ConcurrencyAnalyzer(users, listener);
+          Session[] logins = sessions.toArray(new Session[0]);
+          Arrays.sort(logins, Comparator.comparingLong(s -> s.getLoginTime().getTime()));
+          Session[] logouts = sessions.stream().filter(s -> s.getLogoutTime() != null)
+                    .sorted(Comparator.comparingLong(s -> s.getLogoutTime().getTime())).toArray(Session[]::new);
+          int j = 0;
+          for (Session s : logins) {
+               long t = s.getLoginTime().getTime();
+               for (; j < logouts.length && logouts[j].getLogoutTime().getTime() < t; j++) {
+                    analyzer.change(logouts[j].getLogoutTime().getTime(), logouts[j].getTerminal(), -1);
+               }
+               analyzer.change(t, s.getTerminal(), 1);
+          }
+          for (; j < logouts.length; j++) {
+               analyzer.change(logouts[j].getLogoutTime().getTime(), logouts[j].getTerminal(), -1);
+          }
+          analyzer.flush();
+          return analyzer;
+     }
+
+     /**
+      * Processes the next record
+      * @param r The next record in time order
+      * @throws IllegalArgumentException if the record is earlier than the previous one
+      */
+     public void accept(Record r) throws IllegalArgumentException {
+          if (r == null) {
+               return;
+          }
+          this.accept(r.getTerminal(), r.isLogin(), users.idOf(r), r.getUsername(), r.getTime().getTime());
+     }
+
+     /**
+      * Processes the fields of the next record
+      * @param terminal The terminal number
+      * @param login true for a login, false for a logout
+      * @param userId The id of the user in the dictionary of the analyzer
+      * @param username The username, not used
+      * @param time The time in milliseconds since the epoch
+      * @throws IllegalArgumentException if the record is earlier than the previous one
+      */
+     @Override
+     public void accept(int terminal, boolean login, int userId, String username, long time) throws IllegalArgumentException {
+          if (time < lastRecord)
+               throw new IllegalArgumentException("Records must be given in time order");
+          lastRecord = time;
+          if (login) {
+               open.login(userId, terminal, time);
+               this.change(time, terminal, 1);
+          } else {
+               int closed = open.logout(userId, terminal, time);
+               if (closed > 0) {
+                    this.change(time, terminal, -closed);
+               }
+          }
+     }
+
+     /**
+      * Returns the number of sessions open after the last record
+      * @return the number of open sessions
+      */
+     public int getLevel() {
+          return level;
+     }
+
+     /**
+      * Returns the largest number of sessions that were open at the same time
+      * @return the peak number of open sessions
+      */
+     public int getPeak() {
+          this.flush();
+          return peak;
+     }
+
+     /**
+      * Returns the time the peak was first reached
+      * @return the time in milliseconds since the epoch, 0 if no session was opened
+      */
+     public long getPeakTime() {
+          this.flush();
+          return peakTime;
+     }
+
+     /**
+      * Returns the time of the first record that opened a session
+      * @return the time in milliseconds since the epoch, 0 if there was none
+      */
+     public long getStart() {
+          return start;
+     }
+
+     /**
+      * Returns the time of the last record that opened or closed a session
+      * @return the time in milliseconds since the epoch, 0 if there was none
+      */
+     public long getEnd() {
+          return time;
+     }
+
+     /**
+      * Returns the time during which exactly the given number of sessions were open
+      * @param level The number of open sessions
+      * @return the time in milliseconds, between the start and the end
+      */
+     public long getTimeAtLevel(int level) {
+          return level >= 0 && level < timeAtLevel.length ? timeAtLevel[level] : 0;
+     }
+
+     /**
+      * Returns the numbers of the terminals that had at least one session
+      * @return the terminal numbers in increasing order
+      */
+     public int[] getTerminals() {
+          int[] numbers = new int[terminalCount];
+          int n = 0;
+          for (Terminal t : terminals) {
+               if (t != null) {
+                    numbers[n++] = t.number;
+               }
+          }
+          Arrays.sort(numbers);
+          return numbers;
+     }
+
+     /**
+      * Returns the largest number of sessions that were open at the same time on a terminal
+      * @param terminal The terminal number
+      * @return the peak number of open sessions, 0 for an unknown terminal
+      */
+     public int getTerminalPeak(int terminal) {
+          this.flush();
+          Terminal t = this.find(terminal);
+          return t == null ? 0 : t.peak;
+     }
+
+     /**
+      * Returns the time the peak of a terminal was first reached
+      * @param terminal The terminal number
+      * @return the time in milliseconds since the epoch, 0 for an unknown terminal
+      */
+     public long getTerminalPeakTime(int terminal) {
+          this.flush();
+          Terminal t = this.find(terminal);
+          return t == null ? 0 : t.peakTime;
+     }
+
+     /**
+      * Returns the time during which a terminal had at least one open session, up to the end
+      * @param terminal The terminal number
+      * @return the time in milliseconds, 0 for an unknown terminal
+      */
+     public long getTerminalBusyTime(int terminal) {
+          this.flush();
+          Terminal t = this.find(terminal);
+          if (t == null) {
+               return 0;
+          }
+          return t.busySince < 0 ? t.busy : t.busy + time - t.busySince;
+     }
+
+     /**
+      * Opens or closes sessions on a terminal
+      * @param time The time of the change, not earlier than the previous one
+      * @param terminal The terminal number
+      * @param delta The number of sessions opened, negative for the number closed
+      */
+     void change(long time, int terminal, int delta) {
+          if (!started) {
+               started = true;
+               start = time;
+               this.time = time;
+          } else if (time > this.time) {
+               this.flush();
+               timeAtLevel[level] += time - this.time;
+               this.time = time;
+          }
+          pending = true;
+          level += delta;
+          Terminal t = this.terminal(terminal);
+          t.count += delta;
+          if (!t.touched) {
+               t.touched = true;
+               touched.add(t);
+          }
+     }
+
+     /**
+      * Adds the changes made at the time of the last record to the statistics and passes them to the listener
+      * They are otherwise only added when a later record comes in or a statistic is read,
+      * so this should be called once the last record was processed
+      */
+     public void flush() {
+          if (!pending) {
+               return;
+          }
+          pending = false;
+          if (level >= timeAtLevel.length) {
+               timeAtLevel = Arrays.copyOf(timeAtLevel, Math.max(level + 1, 2 * timeAtLevel.length));
+          }
+          if (level > peak) {
+               peak = level;
+               peakTime = time;
+          }
+          if (level != reported) {
+               reported = level;
+               if (listener != null) {
+                    listener.levelChanged(time, level);
+               }
+          }
+          for (Terminal t : touched) {
+               t.touched = false;
+               if (t.count > t.peak) {
+                    t.peak = t.count;
+                    t.peakTime = time;
+               }
+               if (t.count > 0 && t.busySince < 0) {
+                    t.busySince = time;
+               } else if (t.count == 0 && t.busySince >= 0) {
+                    t.busy += time - t.busySince;
+                    t.busySince = -1;
+               }
+          }
+          touched.clear();
+     }
+
+     /**
+      * Returns the statistics of a terminal, adding them if needed
+      */
+     private Terminal terminal(int number) {
+          Terminal t = this.find(number);
+          if (t != null) {
+               return t;
+          }
+          if (2 * (terminalCount + 1) > terminals.length) {
+               Terminal[] old = terminals;
+               terminals = new Terminal[2 * old.length];
+               for (Terminal o : old) {
+                    if (o != null) {
+                         this.place(o);
+                    }
+               }
+          }
+          t = new Terminal(number);
+          this.place(t);
+          terminalCount++;
+          return t;
+     }
+
+     private Terminal find(int number) {
+          int mask = terminals.length - 1;
+          for (int i = OpenLogins.hash(number) & mask; terminals[i] != null; i = (i + 1) & mask) {
+               if (terminals[i].number == number) {
+                    return terminals[i];
+               }
+          }
+          return null;
+     }
+
+     private void place(Terminal t) {
+          int mask = terminals.length - 1;
+          int i = OpenLogins.hash(t.number) & mask;
+          while (terminals[i] != null) {
+               i = (i + 1) & mask;
+          }
+          terminals[i] = t;
+     }
+}
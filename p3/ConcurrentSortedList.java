@@ -0,0 +1,24 @@
+package project3;
+
+/**
+ * This is a sorted linked list that can be used by several threads at once.
+ * Searches, positional access and iteration can run in parallel, while
+ * adding and removing elements takes the list exclusively for the time of
+ * the change. Bulk loads are sorted before the list is locked.
+ * Iterators are weakly consistent: they never fail because of concurrent
+ * changes and never see a partly linked element, and they may or may not
+ * show changes made after they were created.
+ *
+ * @author Thales Gao
+ *
+ * @param <E> the type of elements held in this list
+ */
+public class ConcurrentSortedList<E extends Comparable<E>> extends SortedLinkedList<E> {
+
+    /**
+     * Constructs a new empty concurrent sorted list.
+     */
+    public ConcurrentSortedList() {
+        super(true);
+    }
+}
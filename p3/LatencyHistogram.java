@@ -0,0 +1,140 @@
+package project3;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The LatencyHistogram class counts how long an operation takes, in buckets of powers of two
+ * nanoseconds, so recording a time takes a few atomic additions and no allocation
+ * Percentiles are given as the upper bound of the bucket they fall in, i.e. within a factor of two
+ * Times can be recorded by several threads at once
+ *
+ * @author Thales Gao
+ */
+public class LatencyHistogram {
+     //bucket i counts the times t with 2^(i-1) <= t < 2^i nanoseconds, bucket 0 the times of 0
+     private final AtomicLongArray buckets = new AtomicLongArray(64);
+     private final LongAdder count = new LongAdder();
+     private final LongAdder total = new LongAdder();
+     private final AtomicLong max = new AtomicLong();
+     private final String name;
+
+     /**
+      * Constructor initializes an empty histogram
+      * @param name The name of the measured operation
+      */
+     public LatencyHistogram(String name) {
+          this.name = name;
+     }
+
+     /**
+      * Returns the name of the measured operation
+      * @return the name
+      */
+     public String getName() {
+          return name;
+     }
+
+     /**
+      * Records the time taken by one operation
+      * @param nanos The time in nanoseconds, negative times being counted as 0
+      */
+     public void record(long nanos) {
+          if (nanos < 0) {
+               nanos = 0;
+          }
+          buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(nanos));
+          count.increment();
+          total.add(nanos);
+          max.accumulateAndGet(nanos, Math::max);
+     }
+
+     /**
+      * Returns the number of times recorded
+      * @return the number of operations
+      */
+     public long getCount() {
+          return count.sum();
+     }
+
+     /**
+      * Returns the sum of the times recorded
+      * @return the total time in nanoseconds
+      */
+     public long getTotal() {
+          return total.sum();
+     }
+
+     /**
+      * Returns the longest time recorded
+      * @return the time in nanoseconds
+      */
+     public long getMax() {
+          return max.get();
+     }
+
+     /**
+      * Returns a time that the given fraction of the operations did not exceed
+      * @param fraction The fraction of operations, between 0 and 1
+      * @return the upper bound of the bucket holding the percentile in nanoseconds, 0 if nothing was recorded
+      * @throws IllegalArgumentException if the fraction is not between 0 and 1
+      */
+     public long getPercentile(double fraction) throws IllegalArgumentException {
+          if (!(fraction >= 0 && fraction <= 1))
+               throw new IllegalArgumentException("Invalid fraction: " + fraction);
+          long n = this.getCount();
+          if (n == 0) {
+               return 0;
+          }
+          long rank = Math.max(1, (long) Math.ceil(fraction * n));
+          long seen = 0;
+          for (int i = 0; i < 64; i++) {
+               seen += buckets.get(i);
+               if (seen >= rank) {
+                    //the bucket cannot hold a time above the largest one recorded
+                    return i == 0 ? 0 : Math.min(i == 63 ? Long.MAX_VALUE : (1L << i) - 1, this.getMax());
+               }
+          }
+          return this.getMax();
+     }
+
+     /**
+      * Forgets every time recorded
+      * Times recorded by other threads during the reset may be partly kept
+      */
+     public void reset() {
+          for (int i = 0; i < 64; i++) {
+               buckets.set(i, 0);
+          }
+          count.reset();
+          total.reset();
+          max.set(0);
+     }
+
+     /**
+      * Returns the number of operations and their mean, median, 99th percentile and longest times
+      * @return a line of text describing the histogram
+      */
+     @Override
+     public String toString() {
+          long n = this.getCount();
+          return String.format("%-28s %10d ops, mean %s, p50 %s, p99 %s, max %s", name, n,
+                    format(n == 0 ? 0 : this.getTotal() / n), format(this.getPercentile(0.5)),
+                    format(this.getPercentile(0.99)), format(this.getMax()));
+     }
+
+     /**
+      * Formats a time in the most readable unit
+      */
+     private static String format(long nanos) {
+          if (nanos < 10000) {
+               return nanos + " ns";
+          } else if (nanos < 10000000) {
+               return String.format("%.1f us", nanos / 1e3);
+          } else if (nanos < 10000000000L) {
+               return String.format("%.1f ms", nanos / 1e6);
+          }
+          return String.format("%.1f s", nanos / 1e9);
+     }
+}
@@ -0,0 +1,28 @@
+package project3;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The LoadEvent class is the Flight Recorder event of loading a log or a snapshot into memory
+ * It is only recorded while a flight recording with the event enabled is running
+ *
+ * @author Thales Gao
+ */
+@Name("project3.Load")
+@Label("Log Load")
+@Category("LoginStats")
+@Description("Loading a log or a snapshot")
+public class LoadEvent extends jdk.jfr.Event {
+     @Label("File")
+     String file;
+
+     @Label("Mode")
+     @Description("How the file is loaded: records, columnar, sharded, snapshot or stream")
+     String mode;
+
+     @Label("Records")
+     long records;
+}
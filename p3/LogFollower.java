@@ -0,0 +1,137 @@
+package project3;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The LogFollower class keeps a RecordList up to date with a log file that is still being appended to
+ * Every poll checks the size of the file and parses only the complete lines written since the last one,
+ * adding their records to the list one by one, so only the sessions of the users who logged in or out
+ * are paired again by the next query
+ * The list is locked while records are added, so queries made by other threads must also
+ * synchronize on the list
+ * If the file becomes shorter than what was already read, it is assumed to have been truncated
+ * and is read again from the beginning
+ *
+ * @author Thales Gao
+ */
+public class LogFollower implements Closeable {
+     private Path file;
+     private RecordList list;
+     private LogParser parser;
+     private FileChannel channel;
+     //offset right after the last complete line that was read
+     private long position;
+     private ScheduledExecutorService timer;
+
+     /**
+      * Constructor initializes a follower adding the lines of the file after the given offset to the list
+      * @param file The path of the log file
+      * @param list The list receiving the new records
+      * @param position The offset where the new lines start, usually the size of the file when it was loaded
+      * @throws IOException if the file cannot be opened
+      * @throws IllegalArgumentException if the path or the list is null, or the offset is negative
+      */
+     public LogFollower(Path file, RecordList list, long position) throws IOException, IllegalArgumentException {
+          if (file == null || list == null)
+               throw new IllegalArgumentException("File and list cannot be null");
+          if (position < 0)
+               throw new IllegalArgumentException("Invalid position: " + position);
+          this.file = file;
+          this.list = list;
+          this.parser = new LogParser(file, list.getUserDictionary());
+          this.channel = FileChannel.open(file, StandardOpenOption.READ);
+          this.position = position;
+     }
+
+     /**
+      * Reads the lines appended to the file since the last poll and adds their records to the list
+      * A last line without a newline is left for the next poll, as it may still be being written
+      * @return the number of records added
+      * @throws IOException if the file cannot be read
+      */
+     public synchronized int poll() throws IOException {
+          if (!channel.isOpen()) {
+               return 0;
+          }
+          long size = channel.size();
+          if (size < position) {
+               position = 0;
+          }
+          if (size == position) {
+               return 0;
+          }
+          ArrayList<Record> records = new ArrayList<>();
+          position = parser.parse(channel, position, size, false, records::add);
+          synchronized (list) {
+               for (Record r : records) {
+                    list.add(r);
+               }
+          }
+          return records.size();
+     }
+
+     /**
+      * Starts polling the file on a background thread
+      * Errors and malformed lines are reported on the standard error stream and polling goes on
+      * @param interval The time between the end of a poll and the start of the next, in milliseconds
+      * @throws IllegalStateException if the follower was already started
+      */
+     public synchronized void start(long interval) throws IllegalStateException {
+          if (timer != null)
+               throw new IllegalStateException("Already started");
+          timer = Executors.newSingleThreadScheduledExecutor(r -> {
+               Thread thread = new Thread(r, "log-follower");
+               thread.setDaemon(true);
+               return thread;
+          });
+          timer.scheduleWithFixedDelay(() -> {
+               List<Long> malformed = parser.getMalformedOffsets();
+               int reported = malformed.size();
+               try {
+                    this.poll();
+                    for (int i = reported; i < malformed.size(); i++) {
+                         System.err.println("Warning: skipping malformed line at byte " + malformed.get(i) + " of " + file.getFileName());
+                    }
+               } catch (IOException e) {
+                    System.err.println("Warning: the log cannot be read: " + e.getMessage());
+               }
+          }, interval, interval, TimeUnit.MILLISECONDS);
+     }
+
+     /**
+      * Returns the offset right after the last line that was read
+      * @return the offset in the file
+      */
+     public synchronized long getPosition() {
+          return position;
+     }
+
+     /**
+      * Returns the byte offsets of the new lines that could not be parsed
+      * @return the offsets of the malformed lines, in file order
+      */
+     public synchronized List<Long> getMalformedOffsets() {
+          return new ArrayList<>(parser.getMalformedOffsets());
+     }
+
+     /**
+      * Stops polling and closes the file
+      * @throws IOException if the file cannot be closed
+      */
+     @Override
+     public synchronized void close() throws IOException {
+          if (timer != null) {
+               timer.shutdown();
+          }
+          channel.close();
+     }
+}
@@ -0,0 +1,346 @@
+package project3;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * The LogParser class reads a login log file and turns each line into a Record
+ * Each line has the form "TERMINAL TIME USERNAME", where a positive terminal is a login,
+ * any other terminal is a logout from the terminal with the same absolute value,
+ * and the time is the number of milliseconds since the epoch
+ * The file is memory-mapped and the numbers are read straight from the bytes,
+ * and each distinct username is decoded only once and given an id in a UserDictionary
+ * Lines that cannot be parsed are skipped and their byte offsets are recorded
+ *
+ * @author Thales Gao
+ */
+public class LogParser {
+     //largest part of the file mapped at once
+     private static final long MAX_REGION = 1L << 30;
+
+     private Path file;
+     private UserDictionary users;
+     private long regionSize;
+     private NameCache names = new NameCache();
+     private ArrayList<Long> malformed = new ArrayList<>();
+
+     /**
+      * Constructor initializes a parser for the given file
+      * @param file The path of the log file
+      * @throws IllegalArgumentException if the path is null
+      */
+     public LogParser(Path file) throws IllegalArgumentException {
+          this(file, new UserDictionary());
+     }
+
+     /**
+      * Constructor initializes a parser for the given file that gives usernames ids in the given dictionary
+      * @param file The path of the log file
+      * @param users The dictionary of usernames, which can be shared with other parsers
+      * @throws IllegalArgumentException if the path or the dictionary is null
+      */
+     public LogParser(Path file, UserDictionary users) throws IllegalArgumentException {
+          this(file, users, MAX_REGION);
+     }
+
+     /**
+      * Constructor initializes a parser that maps at most regionSize bytes at once, so tests can split lines across regions
+      */
+     LogParser(Path file, UserDictionary users, long regionSize) throws IllegalArgumentException {
+          if (file == null || users == null)
+               throw new IllegalArgumentException("File and dictionary cannot be null");
+          this.file = file;
+          this.users = users;
+          this.regionSize = regionSize;
+     }
+
+     /**
+      * Returns the dictionary the usernames are added to
+      * @return the dictionary of usernames
+      */
+     public UserDictionary getUserDictionary() {
+          return users;
+     }
+
+     /**
+      * Receives the fields of each parsed line, without a Record being created for it
+      */
+     public interface FieldSink {
+          /**
+           * Called once for every line that was parsed
+           * @param terminal The terminal number
+           * @param login true for a login, false for a logout
+           * @param userId The id of the username in the parser's dictionary
+           * @param username The username
+           * @param time The time in milliseconds since the epoch
+           */
+          void accept(int terminal, boolean login, int userId, String username, long time);
+     }
+
+     /**
+      * Parses the whole file, passing every record to the consumer in the order of the file
+      * @param sink The consumer receiving the records
+      * @throws IOException if the file cannot be read
+      */
+     public void parse(Consumer<Record> sink) throws IOException {
+          parseFields(toRecords(sink));
+     }
+
+     /**
+      * Parses the whole file, passing the fields of every line to the sink in the order of the file
+      * @param sink The sink receiving the fields
+      * @throws IOException if the file cannot be read
+      */
+     public void parseFields(FieldSink sink) throws IOException {
+          try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+               parseFields(channel, 0, channel.size(), true, sink);
+          }
+     }
+
+     /**
+      * Parses the lines between two byte offsets of an open channel
+      * Parsing starts at the beginning of a line and stops after the last complete line before end
+      * @param channel The channel to read from
+      * @param start The offset of the first line
+      * @param end The offset where parsing stops
+      * @param atEnd true if end is the end of the input, so that a last line without a newline is parsed too
+      * @param sink The consumer receiving the records
+      * @return the offset right after the last line that was parsed
+      * @throws IOException if the channel cannot be read
+      */
+     public long parse(FileChannel channel, long start, long end, boolean atEnd, Consumer<Record> sink) throws IOException {
+          return parseFields(channel, start, end, atEnd, toRecords(sink));
+     }
+
+     /**
+      * Parses the lines between two byte offsets of an open channel, passing the fields of every line to the sink
+      * Parsing starts at the beginning of a line and stops after the last complete line before end
+      * @param channel The channel to read from
+      * @param start The offset of the first line
+      * @param end The offset where parsing stops
+      * @param atEnd true if end is the end of the input, so that a last line without a newline is parsed too
+      * @param sink The sink receiving the fields
+      * @return the offset right after the last line that was parsed
+      * @throws IOException if the channel cannot be read
+      */
+     public long parseFields(FileChannel channel, long start, long end, boolean atEnd, FieldSink sink) throws IOException {
+          long begin = Metrics.start();
+          //the lines are only counted while metrics are collected
+          long[] count = new long[1];
+          if (begin != 0) {
+               FieldSink target = sink;
+               sink = (terminal, login, userId, username, time) -> {
+                    count[0]++;
+                    target.accept(terminal, login, userId, username, time);
+               };
+          }
+          long position = start;
+          while (position < end) {
+               long length = Math.min(regionSize, end - position);
+               boolean last = position + length == end;
+               MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+               int consumed = parseRegion(buffer, (int) length, position, last && atEnd, sink);
+               if (consumed == 0) {
+                    if (last) {
+                         break;
+                    }
+                    //a single line longer than a whole region
+                    malformed.add(position);
+                    consumed = (int) length;
+               }
+               position += consumed;
+          }
+          Metrics.parsed(count[0]);
+          Metrics.stop(Metrics.PARSE, begin);
+          return position;
+     }
+
+     /**
+      * Returns the byte offsets of the lines that could not be parsed so far
+      * @return the offsets of the malformed lines, in the order they were found
+      */
+     public List<Long> getMalformedOffsets() {
+          return malformed;
+     }
+
+     /**
+      * Parses the complete lines of a mapped region
+      * @return the number of bytes consumed
+      */
+     private int parseRegion(MappedByteBuffer buffer, int length, long base, boolean atEnd, FieldSink sink) {
+          int lineStart = 0;
+          while (lineStart < length) {
+               int lineEnd = lineStart;
+               while (lineEnd < length && buffer.get(lineEnd) != '\n') {
+                    lineEnd++;
+               }
+               if (lineEnd == length && !atEnd) {
+                    //incomplete line, left for the next region
+                    break;
+               }
+               if (!parseLine(buffer, lineStart, lineEnd, sink)) {
+                    malformed.add(base + lineStart);
+               }
+               lineStart = lineEnd + 1;
+          }
+          return Math.min(lineStart, length);
+     }
+
+     /**
+      * Parses one line and passes its fields to the sink, returning false if it is malformed
+      */
+     private boolean parseLine(MappedByteBuffer buffer, int start, int end, FieldSink sink) {
+          if (end > start && buffer.get(end - 1) == '\r') {
+               end--;
+          }
+          int i = start;
+          //terminal, the sign tells login from logout
+          boolean negative = false;
+          if (i < end && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+               negative = buffer.get(i) == '-';
+               i++;
+          }
+          int digits = i;
+          long terminal = 0;
+          while (i < end && isDigit(buffer.get(i))) {
+               terminal = terminal * 10 + (buffer.get(i) - '0');
+               if (terminal > Integer.MAX_VALUE) {
+                    return false;
+               }
+               i++;
+          }
+          if (i == digits || i == end || buffer.get(i) != ' ') {
+               return false;
+          }
+          boolean login = !negative && terminal > 0;
+          i = skipSpaces(buffer, i, end);
+          //time in milliseconds
+          boolean negativeTime = false;
+          if (i < end && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+               negativeTime = buffer.get(i) == '-';
+               i++;
+          }
+          digits = i;
+          long time = 0;
+          while (i < end && isDigit(buffer.get(i))) {
+               int d = buffer.get(i) - '0';
+               if (time > (Long.MAX_VALUE - d) / 10) {
+                    return false;
+               }
+               time = time * 10 + d;
+               i++;
+          }
+          if (i == digits || i == end || buffer.get(i) != ' ') {
+               return false;
+          }
+          i = skipSpaces(buffer, i, end);
+          //username, up to the next space
+          int nameStart = i;
+          while (i < end && buffer.get(i) != ' ') {
+               i++;
+          }
+          if (i == nameStart) {
+               return false;
+          }
+          int userId = names.get(buffer, nameStart, i, users);
+          sink.accept((int) terminal, login, userId, users.name(userId), negativeTime ? -time : time);
+          return true;
+     }
+
+     private static FieldSink toRecords(Consumer<Record> sink) {
+          return (terminal, login, userId, username, time) -> sink.accept(new Record(terminal, login, username, userId, new Date(time)));
+     }
+
+     private static boolean isDigit(byte b) {
+          return b >= '0' && b <= '9';
+     }
+
+     private static int skipSpaces(MappedByteBuffer buffer, int i, int end) {
+          while (i < end && buffer.get(i) == ' ') {
+               i++;
+          }
+          return i;
+     }
+
+     /* Open addressing table from the bytes of a username to its id, so that
+      * a name is only decoded and looked up in the dictionary the first time
+      * this parser sees it. */
+     private static class NameCache {
+          private byte[][] keys = new byte[64][];
+          private int[] values = new int[64];
+          private int[] hashes = new int[64];
+          private int count;
+
+          int get(MappedByteBuffer buffer, int start, int end, UserDictionary users) {
+               int hash = 1;
+               for (int i = start; i < end; i++) {
+                    hash = 31 * hash + buffer.get(i);
+               }
+               int mask = keys.length - 1;
+               int slot = mix(hash) & mask;
+               while (keys[slot] != null) {
+                    if (hashes[slot] == hash && matches(keys[slot], buffer, start, end)) {
+                         return values[slot];
+                    }
+                    slot = (slot + 1) & mask;
+               }
+               byte[] key = new byte[end - start];
+               for (int i = start; i < end; i++) {
+                    key[i - start] = buffer.get(i);
+               }
+               int id = users.intern(new String(key, StandardCharsets.UTF_8));
+               keys[slot] = key;
+               values[slot] = id;
+               hashes[slot] = hash;
+               if (++count * 2 > keys.length) {
+                    grow();
+               }
+               return id;
+          }
+
+          private static boolean matches(byte[] key, MappedByteBuffer buffer, int start, int end) {
+               if (key.length != end - start) {
+                    return false;
+               }
+               for (int i = 0; i < key.length; i++) {
+                    if (key[i] != buffer.get(start + i)) {
+                         return false;
+                    }
+               }
+               return true;
+          }
+
+          private static int mix(int hash) {
+               return hash ^ (hash >>> 16);
+          }
+
+          private void grow() {
+               byte[][] oldKeys = keys;
+               int[] oldValues = values;
+               int[] oldHashes = hashes;
+               keys = new byte[oldKeys.length * 2][];
+               values = new int[keys.length];
+               hashes = new int[keys.length];
+               int mask = keys.length - 1;
+               for (int j = 0; j < oldKeys.length; j++) {
+                    if (oldKeys[j] != null) {
+                         int slot = mix(oldHashes[j]) & mask;
+                         while (keys[slot] != null) {
+                              slot = (slot + 1) & mask;
+                         }
+                         keys[slot] = oldKeys[j];
+                         values[slot] = oldValues[j];
+                         hashes[slot] = oldHashes[j];
+                    }
+               }
+          }
+     }
+}
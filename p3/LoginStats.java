@@ -1,10 +1,16 @@
 package project3;
 
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Scanner;
-import java.util.Date;
+
+import jdk.jfr.EventType;
 
 /**
  * This class is the program performing the login and logout actions
@@ -15,20 +21,128 @@ import java.util.Date;
  *
  */
 public class LoginStats {
+     //milliseconds between two checks of a followed log
+     private static final long FOLLOW_INTERVAL = 50;
+     //Flight Recorder settings of the command event, which tell if a recording takes it
+     private static final EventType COMMAND_EVENT = EventType.getEventType(CommandEvent.class);
+
      /**
       * the main() method of this program
       * 
       * @param args array of Strings input on the command line by the user
       */
      public static void main(String[] args) {
+          //options come before the file name
+          boolean columnar = false;
+          boolean fromSnapshot = false;
+          boolean follow = false;
+          boolean stream = false;
+          int port = -1;
+          int shards = 0;
+          String snapshotName = null;
+          String sessionsName = null;
+          String batchIn = null;
+          String batchOut = null;
+          String fileName = null;
+          OutputFormat format = OutputFormat.TEXT;
+          for (int i = 0; i < args.length; i++) {
+               if (args[i].equals("--columnar")) {
+                    columnar = true;
+               } else if (args[i].equals("--load-snapshot")) {
+                    //the file is a snapshot saved by an earlier run instead of a text log
+                    fromSnapshot = true;
+               } else if (args[i].equals("--follow")) {
+                    //keep reading the lines appended to the log while taking commands
+                    follow = true;
+               } else if (args[i].equals("--serve") && i + 1 < args.length) {
+                    //also answer the commands of clients on a local port
+                    try {
+                         port = Integer.parseInt(args[++i]);
+                    } catch (NumberFormatException e) {
+                         port = -1;
+                    }
+                    if (port < 0 || port > 65535) {
+                         System.err.println("Usage Error: invalid port " + args[i] + "\n");
+                         System.exit(1);
+                    }
+               } else if (args[i].equals("--shards") && i + 1 < args.length) {
+                    //split the records of the users into this many lists queried in parallel
+                    try {
+                         shards = Integer.parseInt(args[++i]);
+                    } catch (NumberFormatException e) {
+                         shards = 0;
+                    }
+                    if (shards <= 0) {
+                         System.err.println("Usage Error: invalid number of shards " + args[i] + "\n");
+                         System.exit(1);
+                    }
+               } else if (args[i].equals("--save-snapshot") && i + 1 < args.length) {
+                    snapshotName = args[++i];
+               } else if (args[i].equals("--stream")) {
+                    //read a time ordered log once without keeping its records
+                    stream = true;
+               } else if (args[i].equals("--sessions") && i + 1 < args.length) {
+                    //write the sessions of a streamed log to a file
+                    sessionsName = args[++i];
+               } else if (args[i].equals("--batch") && i + 2 < args.length) {
+                    //answer the commands of a file instead of reading them from the keyboard
+                    batchIn = args[++i];
+                    batchOut = args[++i];
+               } else if (args[i].equals("--format") && i + 1 < args.length) {
+                    //write sessions and login times as text, csv or json
+                    try {
+                         format = OutputFormat.of(args[++i]);
+                    } catch (IllegalArgumentException e) {
+                         System.err.println("Usage Error: unknown format " + args[i] + "; use text, csv or json.\n");
+                         System.exit(1);
+                    }
+               } else if (args[i].equals("--metrics")) {
+                    //collect counters and latency histograms, shown by the stats command
+                    Metrics.setEnabled(true);
+               } else if (args[i].startsWith("--")) {
+                    System.err.println("Usage Error: unknown option " + args[i] + "\n");
+                    System.exit(1);
+               } else {
+                    fileName = args[i];
+               }
+          }
+
           //verify that the user has input a command line argument
-          if (args.length == 0 ) {
+          if (fileName == null) {
                System.err.println("Usage Error: the program expects file name as an argument.\n");
                System.exit(1);
           }
+          if (columnar && (fromSnapshot || snapshotName != null)) {
+               System.err.println("Usage Error: snapshots cannot be used with --columnar.\n");
+               System.exit(1);
+          }
+          if (follow && (columnar || fromSnapshot)) {
+               System.err.println("Usage Error: --follow needs a text log and cannot be used with --columnar.\n");
+               System.exit(1);
+          }
+          if (stream && (columnar || fromSnapshot || snapshotName != null || follow || port >= 0)) {
+               System.err.println("Usage Error: --stream cannot be used with --columnar, snapshots, --follow or --serve.\n");
+               System.exit(1);
+          }
+          if (sessionsName != null && !stream) {
+               System.err.println("Usage Error: --sessions can only be used with --stream.\n");
+               System.exit(1);
+          }
+          if (batchIn != null && (follow || port >= 0)) {
+               System.err.println("Usage Error: --batch cannot be used with --follow or --serve.\n");
+               System.exit(1);
+          }
+          if (shards > 0 && (columnar || stream || fromSnapshot || snapshotName != null || follow || port >= 0)) {
+               System.err.println("Usage Error: --shards cannot be used with --columnar, --stream, snapshots, --follow or --serve.\n");
+               System.exit(1);
+          }
+          if (columnar && port >= 0) {
+               System.err.println("Usage Error: --serve cannot be used with --columnar.\n");
+               System.exit(1);
+          }
 
           //verify that command line argument contains an existing file and can be opened
-          File testFile = new File(args[0]);
+          File testFile = new File(fileName);
           if (!testFile.exists()) {
                System.err.println("Error: the file " + testFile.getAbsolutePath() + " does not exist.\n");
                System.exit(1);
@@ -38,48 +152,48 @@ public class LoginStats {
                System.exit(1);
           }
 
-          //open the file and start reading
-          Scanner fileScanner = null;
-
-          try {
-               fileScanner = new Scanner (testFile) ;
-          } catch (FileNotFoundException e) {
-               System.err.println("Error: the file " + testFile.getAbsolutePath() + " cannot be found.\n");
-               System.exit(1);
-          }
-
-          //read the content of the file and save the data in a list of Records
-          RecordList list = new RecordList();
-          String line = null;
-          //Scanner parseLine = null;
-          //each term passed in order
-          int term = 0;
-          boolean loginLogout = false;
-          String username = null;
-          long inputDate = 0;
-          Record current = null;
-          while (fileScanner.hasNextLine()) {
-               //Splitting each line of the file to three component 
-               String [] inputSplit = fileScanner.nextLine().split(" ");
-               //terminal number
-               term = Integer.parseInt(inputSplit[0]);
-               //assigning terminal numbers and isLogin values
-               if (term > 0) {
-                    loginLogout = true;
-               } else {
-                    term = Math.abs(term);
-                    loginLogout = false;
+          //read the content of the file and save the data
+          SessionQueries list;
+          QueryServer server = null;
+          LoadEvent load = new LoadEvent();
+          load.begin();
+          long loadStart = Metrics.start();
+          if (columnar) {
+               ColumnarRecordList columns = loadColumns(testFile);
+               load.mode = "columnar";
+               load.records = columns.size();
+               list = columns;
+          } else if (shards > 0) {
+               ShardedRecordList sharded = loadShards(testFile, shards);
+               load.mode = "sharded";
+               load.records = sharded.size();
+               list = sharded;
+          } else if (stream) {
+               StreamSummary summary = streamSessions(testFile, sessionsName);
+               load.mode = "stream";
+               load.records = summary.getRecordCount();
+               list = summary;
+          } else {
+               RecordList records = fromSnapshot ? loadSnapshot(testFile) : loadRecords(testFile, follow);
+               load.mode = fromSnapshot ? "snapshot" : "records";
+               load.records = records.size();
+               if (snapshotName != null) {
+                    saveSnapshot(records, new File(snapshotName));
                }
-               //assigning date values
-               Date dateValue = new Date(Long.parseLong(inputSplit[1]));
-               //assigning username values
-               username = inputSplit[2];
-               //creating new Record objects and adding to the list
-               current = new Record(term, loginLogout, username, dateValue);
-               list.add(current);
+               if (port >= 0) {
+                    server = serve(records, port);
+               }
+               list = records;
           }
-          
+          Metrics.stop(Metrics.histogram("LoginStats.load"), loadStart);
+          load.file = testFile.getPath();
+          load.commit();
 
+          //batch mode
+          if (batchIn != null) {
+               runBatch(list, new File(batchIn), new File(batchOut), format);
+               return;
+          }
 
           //interactive mode
           System.out.println("Welcome to Login Stats!\n");
@@ -88,79 +202,486 @@ public class LoginStats {
           System.out.println("  last USERNAME " + "   -   " + "retrieves last login session for the USER");
           System.out.println("  all USERNAME  " + "   -   " + "retrieves all login sessions for the USER");
           System.out.println("  total USERNAME" + "   -   " + "retrieves total login duration for the USER");
+          System.out.println("  at TIME       " + "   -   " + "retrieves all sessions active at TIME");
+          System.out.println("  during T1 T2  " + "   -   " + "retrieves all sessions active between T1 and T2");
+          System.out.println("  terminal N T  " + "   -   " + "retrieves the sessions active on terminal N at time T");
+          System.out.println("  top K [T1 T2] " + "   -   " + "retrieves the K users with the longest total login duration, between T1 and T2 if given");
+          System.out.println("  peak          " + "   -   " + "retrieves the peak number of sessions open at once, in total and per terminal");
+          System.out.println("  stats         " + "   -   " + "retrieves the counters and latencies measured with --metrics");
+          System.out.println("                " + "       " + "(times are in milliseconds since the epoch, like in the log)");
           System.out.println("  quit          " + "   -   " + "terminates this program\n");
 
           //scanner to store user input
           Scanner userInput  = new Scanner (System.in);
           String userInputLine = "";
+          //every answer is built in the same buffer and printed through one buffered writer
+          StringBuilder answer = new StringBuilder();
+          Writer console = new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16);
 
           do {
                //get value of from the user
                userInputLine = userInput.nextLine().trim();
                //splitting into an array of String, with the first component being first/last, second being the username
                String[] userString = userInputLine.split(" ");
-               String outString = "";
                if (!userString[0].equalsIgnoreCase("quit")) {
-                    if (userString.length != 2){
-                         //to ensure there's no runtime error in the following codes
-                         System.out.println("Error: this is not a valid command. Try again.\n");
-                    } else if (userString[0].equalsIgnoreCase("first")){
-                         //search for first session, handling exceptions
-                         try {
-                              outString = list.getFirstSession(userString[1]).toString();
-                              System.out.println(outString);
-                         } catch (NoSuchElementException ex) {
-                              System.out.println("No user matching " + userString[1] + " found\n");
-                              continue;
-                         } catch (IllegalArgumentException exx) {
-                              System.out.println("Invalid username; username cannot be null or empty.\n");
-                              continue;
-                         }
-                    } else if (userString[0].equalsIgnoreCase("last")) {
-                         //search for last session
-                         try {
-                              outString = list.getLastSession(userString[1]).toString();
-                              System.out.println(outString);
-                         } catch (NoSuchElementException ex) {
-                              System.out.println("No user matching " + userString[1] + " found\n");
-                              continue;
-                         } catch (IllegalArgumentException exx) {
-                              System.out.println("Invalid username; username cannot be null or empty.\n");
-                              continue;
-                         }
-                    } else if (userString[0].equalsIgnoreCase("all")) {
-                         try {
-                              SortedLinkedList<Session> outList = list.getAllSessions(userString[1]);
-                              for (Session s : outList) {
-                                   System.out.println(s.toString());
-                                   System.out.println();
-                              }
-                         } catch (NoSuchElementException ex) {
-                              System.out.println("No user matching " + userString[1] + " found\n");
-                              continue;
-                         } catch (IllegalArgumentException exx) {
-                              System.out.println("Invalid username; username cannot be null or empty.\n");
-                              continue;
-                         }
-                    } else if (userString[0].equalsIgnoreCase("total")) {
-                         try {
-                              outString = userString[1] + " , total duration " + list.getTotalTimeString(userString[1]);
-                              System.out.println(outString);
-                         } catch (NoSuchElementException ex) {
-                              System.out.println("No user matching " + userString[1] + " found\n");
-                              continue;
-                         } catch (IllegalArgumentException exx) {
-                              System.out.println("Invalid username; username cannot be null or empty.\n");
-                              continue;
-                         }
-                    } else {
-                              //error otherwise
-                              System.out.println("Error: this is not a valid command. Try again.\n");
-                         }
-
+                    //a followed log adds records from another thread, which locks the list too
+                    synchronized (list) {
+                         answer.setLength(0);
+                         answer(list, userString, format, answer);
+                    }
+                    print(console, answer);
                }
           } while (!userInputLine.equalsIgnoreCase("quit"));
 
           userInput.close();
+          if (server != null) {
+               try {
+                    server.close();
+               } catch (IOException e) {
+                    System.err.println("Warning: the server cannot be stopped: " + e.getMessage());
+               }
+          }
+     }
+
+     /**
+      * Prints an answer through the writer of the console and flushes it
+      * The answer is copied in chunks, so no String of the whole answer is made
+      * @param console The writer of the standard output
+      * @param answer The answer to print
+      */
+     private static void print(Writer console, StringBuilder answer) {
+          char[] chunk = new char[8192];
+          try {
+               for (int i = 0; i < answer.length(); i += chunk.length) {
+                    int end = Math.min(answer.length(), i + chunk.length);
+                    answer.getChars(i, end, chunk, 0);
+                    console.write(chunk, 0, end - i);
+               }
+               console.flush();
+          } catch (IOException e) {
+               System.err.println("Error: the answer cannot be printed: " + e.getMessage());
+          }
+     }
+
+     /**
+      * Runs one command against the list and returns what should be printed for it
+      * Used by the query server and by batches, so they answer in the same way as the interactive loop
+      * @param list The records to query
+      * @param userString The words of the command, the first being first/last/all/total and the second the username
+      * @return the answer to the command, ending with a new line
+      */
+     static String answer(SessionQueries list, String[] userString) {
+          return answer(list, userString, OutputFormat.TEXT);
+     }
+
+     /**
+      * Runs one command against the list and returns what should be printed for it in the given format
+      * @param list The records to query
+      * @param userString The words of the command
+      * @param format The format of the sessions and login times in the answer
+      * @return the answer to the command, ending with a new line
+      */
+     static String answer(SessionQueries list, String[] userString, OutputFormat format) {
+          StringBuilder out = new StringBuilder();
+          answer(list, userString, format, out);
+          return out.toString();
+     }
+
+     /**
+      * Runs one command against the list and appends what should be printed for it
+      * Sessions are written straight into the buffer, so a buffer reused from one command to the
+      * next answers without building a String for each session
+      * @param list The records to query
+      * @param userString The words of the command
+      * @param format The format of the sessions and login times in the answer
+      * @param out The buffer the answer is appended to, ending with a new line
+      */
+     static void answer(SessionQueries list, String[] userString, OutputFormat format, StringBuilder out) {
+          //the event is only created while a recording takes it
+          CommandEvent event = null;
+          if (COMMAND_EVENT.isEnabled()) {
+               event = new CommandEvent();
+               event.begin();
+          }
+          long start = Metrics.start();
+          int length = out.length();
+          try {
+               answerCommand(list, userString, format, out);
+          } catch (UnsupportedOperationException e) {
+               out.setLength(length);
+               out.append("Error: this command is not available in this mode.\n\n");
+          } catch (IOException e) {
+               //a StringBuilder is never the cause
+               throw new UncheckedIOException(e);
+          }
+          if (start != 0) {
+               Metrics.stop(Command.of(userString[0]).time, start);
+          }
+          if (event != null && event.shouldCommit()) {
+               event.command = String.join(" ", userString);
+               event.answerLength = out.length() - length;
+               event.commit();
+          }
+     }
+
+     /* The commands measured under their own histogram; mistyped commands share the one of OTHER. */
+     private enum Command {
+          FIRST, LAST, ALL, TOTAL, AT, DURING, TERMINAL, TOP, PEAK, STATS, OTHER;
+
+          private static final Command[] VALUES = values();
+
+          final LatencyHistogram time = Metrics.histogram("command " + this.name().toLowerCase());
+
+          /**
+           * Returns the command a word starts, without building a String for it
+           * @param word The first word of the command
+           * @return the command, or OTHER if the word is not a command
+           */
+          static Command of(String word) {
+               for (Command c : VALUES) {
+                    if (c != OTHER && c.name().equalsIgnoreCase(word)) {
+                         return c;
+                    }
+               }
+               return OTHER;
+          }
+     }
+
+     /**
+      * Runs one command against the list, which may not support every query
+      * @param list The records to query
+      * @param userString The words of the command
+      * @param format The format of the sessions and login times in the answer
+      * @param out Where the answer goes, ending with a new line
+      * @throws UnsupportedOperationException if the list does not keep what the command needs
+      * @throws IOException if out cannot be written
+      */
+     private static void answerCommand(SessionQueries list, String[] userString, OutputFormat format, Appendable out)
+               throws UnsupportedOperationException, IOException {
+          if ((userString.length == 2 && userString[0].equalsIgnoreCase("at"))
+                    || (userString.length == 3 && (userString[0].equalsIgnoreCase("during") || userString[0].equalsIgnoreCase("terminal")))) {
+               answerTime(list, userString, format, out);
+               return;
+          }
+          if (userString.length == 1 && userString[0].equalsIgnoreCase("peak")) {
+               answerPeak(list, out);
+               return;
+          }
+          if (userString.length == 1 && userString[0].equalsIgnoreCase("stats")) {
+               out.append(Metrics.report()).append('\n');
+               return;
+          }
+          if ((userString.length == 2 || userString.length == 4) && userString[0].equalsIgnoreCase("top")) {
+               answerTop(list, userString, format, out);
+               return;
+          }
+          if (userString.length != 2){
+               //to ensure there's no runtime error in the following codes
+               out.append("Error: this is not a valid command. Try again.\n\n");
+               return;
+          }
+          //the query runs before anything is written, so an error replaces the whole answer
+          try {
+               if (userString[0].equalsIgnoreCase("first")){
+                    //search for first session
+                    format.writeSession(list.getFirstSession(userString[1]), out);
+               } else if (userString[0].equalsIgnoreCase("last")) {
+                    //search for last session
+                    format.writeSession(list.getLastSession(userString[1]), out);
+               } else if (userString[0].equalsIgnoreCase("all")) {
+                    format.writeSessions(list.getAllSessions(userString[1]), out);
+               } else if (userString[0].equalsIgnoreCase("total")) {
+                    format.writeTotal(userString[1], list.getTotalTime(userString[1]), out);
+               } else {
+                    //error otherwise
+                    out.append("Error: this is not a valid command. Try again.\n\n");
+               }
+          } catch (NoSuchElementException ex) {
+               out.append("No user matching " + userString[1] + " found\n\n");
+          } catch (IllegalArgumentException exx) {
+               out.append("Invalid username; username cannot be null or empty.\n\n");
+          }
+     }
+
+     /**
+      * Runs one of the commands about the sessions of all users at a time or in a time range
+      * @param list The records to query
+      * @param words The words of the command: at TIME, during FROM TO or terminal N TIME
+      * @param format The format of the sessions
+      * @param out Where the sessions found go, in order of login time, or an error message
+      * @throws IOException if out cannot be written
+      */
+     private static void answerTime(SessionQueries list, String[] words, OutputFormat format, Appendable out) throws IOException {
+          List<Session> sessions;
+          try {
+               SessionIndex index = list.getSessionIndex();
+               if (words[0].equalsIgnoreCase("at")) {
+                    sessions = index.at(Long.parseLong(words[1]));
+               } else if (words[0].equalsIgnoreCase("during")) {
+                    sessions = index.during(Long.parseLong(words[1]), Long.parseLong(words[2]));
+               } else {
+                    sessions = index.terminal(Integer.parseInt(words[1])).at(Long.parseLong(words[2]));
+               }
+          } catch (NumberFormatException e) {
+               out.append("Invalid number; times are in milliseconds since the epoch and terminals are integers.\n\n");
+               return;
+          } catch (IllegalArgumentException e) {
+               out.append("Invalid range; the end of the range is before its start.\n\n");
+               return;
+          }
+          if (sessions.isEmpty() && format == OutputFormat.TEXT) {
+               out.append("No sessions found\n\n");
+               return;
+          }
+          format.writeSessions(sessions, out);
+     }
+
+     /**
+      * Runs the command listing the users with the longest total login time
+      * @param list The records to query
+      * @param words The words of the command: top K, or top K FROM TO
+      * @param format The format of the users and their totals
+      * @param out Where the users go, the longest total first, or an error message
+      * @throws IOException if out cannot be written
+      */
+     private static void answerTop(SessionQueries list, String[] words, OutputFormat format, Appendable out) throws IOException {
+          List<UserTotal> top;
+          try {
+               int k = Integer.parseInt(words[1]);
+               if (k <= 0) {
+                    out.append("Invalid count; the number of users must be positive.\n\n");
+                    return;
+               }
+               top = words.length == 2 ? list.topUsers(k) : list.topUsers(k, Long.parseLong(words[2]), Long.parseLong(words[3]));
+          } catch (NumberFormatException e) {
+               out.append("Invalid number; times are in milliseconds since the epoch and counts are integers.\n\n");
+               return;
+          } catch (IllegalArgumentException e) {
+               out.append("Invalid range; the end of the range is before its start.\n\n");
+               return;
+          }
+          if (top.isEmpty() && format == OutputFormat.TEXT) {
+               out.append("No sessions found\n\n");
+               return;
+          }
+          format.writeTop(top, out);
+     }
+
+     /**
+      * Runs the command giving the peak number of open sessions and the time spent at each number
+      * @param list The records to query
+      * @param out Where the peaks go, or a message if there are no sessions
+      * @throws IOException if out cannot be written
+      */
+     private static void answerPeak(SessionQueries list, Appendable out) throws IOException {
+          ConcurrencyAnalyzer analyzer = list.analyzeConcurrency(null);
+          if (analyzer.getPeak() == 0) {
+               out.append("No sessions found\n\n");
+               return;
+          }
+          out.append("Peak of ");
+          TextFormat.appendLong(out, analyzer.getPeak());
+          out.append(" open sessions at ");
+          TextFormat.appendDate(out, analyzer.getPeakTime());
+          out.append("\nTime with each number of open sessions, from ");
+          TextFormat.appendDate(out, analyzer.getStart());
+          out.append(" to ");
+          TextFormat.appendDate(out, analyzer.getEnd());
+          out.append(":\n");
+          for (int level = 0; level <= analyzer.getPeak(); level++) {
+               out.append("  ");
+               TextFormat.appendLong(out, level);
+               out.append(" sessions: ");
+               TextFormat.appendDuration(out, analyzer.getTimeAtLevel(level));
+               out.append('\n');
+          }
+          out.append("Terminals:\n");
+          for (int terminal : analyzer.getTerminals()) {
+               out.append("  terminal ");
+               TextFormat.appendLong(out, terminal);
+               out.append(": peak of ");
+               TextFormat.appendLong(out, analyzer.getTerminalPeak(terminal));
+               out.append(" at ");
+               TextFormat.appendDate(out, analyzer.getTerminalPeakTime(terminal));
+               out.append(", in use ");
+               TextFormat.appendDuration(out, analyzer.getTerminalBusyTime(terminal));
+               out.append('\n');
+          }
+          out.append('\n');
+     }
+
+     /**
+      * Reads the log file into a list of Records
+      * The file is parsed in chunks on several threads and the sorted chunks are merged into the list
+      * @param file The log file
+      * @param follow true to keep adding the lines appended to the file after it was loaded
+      * @return the list of all records in the file
+      */
+     private static RecordList loadRecords(File file, boolean follow) {
+          RecordList list = new RecordList();
+          ParallelLoader loader = new ParallelLoader(file.toPath());
+          try {
+               //a followed log may end in a line that is still being written, which the follower reads later
+               loader.load(list, follow);
+          } catch (IOException e) {
+               System.err.println("Error: the file " + file.getAbsolutePath() + " cannot be read.\n");
+               System.exit(1);
+          }
+          reportMalformed(file, loader.getMalformedOffsets());
+          if (follow) {
+               try {
+                    new LogFollower(file.toPath(), list, loader.getEndOffset()).start(FOLLOW_INTERVAL);
+               } catch (IOException e) {
+                    System.err.println("Error: the file " + file.getAbsolutePath() + " cannot be followed.\n");
+                    System.exit(1);
+               }
+          }
+          return list;
+     }
+
+     /**
+      * Answers the commands of a file and writes the answers to another file, in the order of the commands
+      * @param list The records to query
+      * @param in The file of commands
+      * @param out The file the answers are written to
+      */
+     private static void runBatch(SessionQueries list, File in, File out, OutputFormat format) {
+          BatchRunner runner = new BatchRunner(list);
+          runner.setFormat(format);
+          try {
+               int count = runner.run(in.toPath(), out.toPath());
+               System.out.println("Answered " + count + " commands (" + runner.getDistinctCount() + " distinct) into " + out.getPath());
+          } catch (IOException e) {
+               System.err.println("Error: the batch cannot be run: " + e.getMessage() + "\n");
+               System.exit(1);
+          }
+     }
+
+     /**
+      * Starts answering the commands of clients on a local port
+      * @param list The list of all records
+      * @param port The port to listen on
+      * @return the running server
+      */
+     private static QueryServer serve(RecordList list, int port) {
+          try {
+               QueryServer server = new QueryServer(list, port);
+               server.start();
+               System.out.println("Serving queries on port " + server.getPort() + "\n");
+               return server;
+          } catch (IOException e) {
+               System.err.println("Error: cannot listen on port " + port + ": " + e.getMessage() + "\n");
+               System.exit(1);
+               return null;
+          }
+     }
+
+     /**
+      * Reads a snapshot saved by an earlier run into a list of Records
+      * @param file The snapshot file
+      * @return the list of all records in the snapshot
+      */
+     private static RecordList loadSnapshot(File file) {
+          try {
+               return new RecordSnapshot(file.toPath()).read();
+          } catch (IOException e) {
+               System.err.println("Error: the snapshot " + file.getAbsolutePath() + " cannot be read: " + e.getMessage() + "\n");
+               System.exit(1);
+               return null;
+          }
+     }
+
+     /**
+      * Saves the list to a snapshot file, so later runs can load it with --load-snapshot
+      * @param list The list of all records
+      * @param file The snapshot file to write
+      */
+     private static void saveSnapshot(RecordList list, File file) {
+          try {
+               new RecordSnapshot(file.toPath()).write(list);
+          } catch (IOException e) {
+               System.err.println("Warning: the snapshot " + file.getAbsolutePath() + " cannot be written: " + e.getMessage());
+          }
+     }
+
+     /**
+      * Reads a time ordered log file once, keeping only the open sessions and a summary of every user
+      * @param file The log file
+      * @param sessionsName The file every session is written to, or null
+      * @return the summary answering the per-user queries
+      */
+     private static StreamSummary streamSessions(File file, String sessionsName) {
+          UserDictionary users = new UserDictionary();
+          SessionStream stream = new SessionStream(file.toPath(), users);
+          StreamSummary summary = new StreamSummary(users);
+          stream.addSink(summary);
+          stream.addRecordSink(summary);
+          SessionWriter writer = null;
+          try {
+               if (sessionsName != null) {
+                    writer = new SessionWriter(new File(sessionsName).toPath());
+                    stream.addSink(writer);
+               }
+               stream.run();
+               if (writer != null) {
+                    writer.close();
+               }
+          } catch (IOException e) {
+               System.err.println("Error: the file " + file.getAbsolutePath() + " cannot be streamed: " + e.getMessage() + "\n");
+               System.exit(1);
+          } catch (IllegalStateException e) {
+               System.err.println("Error: " + e.getMessage() + "; --stream needs a log in time order.\n");
+               System.exit(1);
+          }
+          reportMalformed(file, stream.getMalformedOffsets());
+          return summary;
+     }
+
+     /**
+      * Reads the log file into a list split by user into shards, which are filled at the same time
+      * @param file The log file
+      * @param count The number of shards
+      * @return the sharded list of all records in the file
+      */
+     private static ShardedRecordList loadShards(File file, int count) {
+          ShardedRecordList list = new ShardedRecordList(count);
+          ParallelLoader loader = new ParallelLoader(file.toPath());
+          try {
+               loader.load(list);
+          } catch (IOException e) {
+               System.err.println("Error: the file " + file.getAbsolutePath() + " cannot be read.\n");
+               System.exit(1);
+          }
+          reportMalformed(file, loader.getMalformedOffsets());
+          return list;
+     }
+
+     /**
+      * Reads the log file into columns of primitive values, for logs too large to keep as Record objects
+      * @param file The log file
+      * @return the columnar list of all records in the file
+      */
+     private static ColumnarRecordList loadColumns(File file) {
+          ColumnarRecordList list = new ColumnarRecordList();
+          LogParser parser = new LogParser(file.toPath(), list.getUserDictionary());
+          try {
+               list.load(parser);
+          } catch (IOException e) {
+               System.err.println("Error: the file " + file.getAbsolutePath() + " cannot be read.\n");
+               System.exit(1);
+          }
+          reportMalformed(file, parser.getMalformedOffsets());
+          return list;
+     }
+
+     /**
+      * Reports the lines of the log file that could not be parsed and were skipped
+      * @param file The log file
+      * @param offsets The byte offsets of the malformed lines
+      */
+     private static void reportMalformed(File file, List<Long> offsets) {
+          for (long offset : offsets) {
+               System.err.println("Warning: skipping malformed line at byte " + offset + " of " + file.getName());
+          }
      }
 }
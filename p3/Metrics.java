@@ -0,0 +1,197 @@
+package project3;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The Metrics class collects counters and latency histograms of the loading and query code
+ * It is off unless the system property project3.metrics is true or setEnabled is called,
+ * and while it is off every hook is a single check of a flag, so the hot paths pay nothing else
+ * The counters are the records parsed and added to lists, the list nodes traversed and the
+ * comparisons made while searching, and the sessions built
+ *
+ * @author Thales Gao
+ */
+public final class Metrics {
+     private static volatile boolean enabled = Boolean.getBoolean("project3.metrics");
+
+     private static final ConcurrentHashMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+     private static final LongAdder parsed = new LongAdder();
+     private static final LongAdder ingested = new LongAdder();
+     private static final LongAdder nodes = new LongAdder();
+     private static final LongAdder comparisons = new LongAdder();
+     private static final LongAdder sessions = new LongAdder();
+
+     //histograms of the hot paths, looked up once
+     static final LatencyHistogram ADD = histogram("SortedLinkedList.add");
+     static final LatencyHistogram PARSE = histogram("LogParser.parse");
+     static final LatencyHistogram FIRST = histogram("RecordList.getFirstSession");
+     static final LatencyHistogram LAST = histogram("RecordList.getLastSession");
+     static final LatencyHistogram TOTAL = histogram("RecordList.getTotalTime");
+     static final LatencyHistogram ALL = histogram("RecordList.getAllSessions");
+     static final LatencyHistogram INDEX = histogram("RecordList.getSessionIndex");
+
+     private Metrics() {
+     }
+
+     /**
+      * Tells if metrics are being collected
+      * @return true if the metrics are on
+      */
+     public static boolean isEnabled() {
+          return enabled;
+     }
+
+     /**
+      * Turns the collection of metrics on or off
+      * @param on true to collect metrics
+      */
+     public static void setEnabled(boolean on) {
+          enabled = on;
+     }
+
+     /**
+      * Returns the histogram with the given name, creating it if needed
+      * @param name The name of the measured operation
+      * @return the histogram of the operation
+      */
+     public static LatencyHistogram histogram(String name) {
+          return histograms.computeIfAbsent(name, LatencyHistogram::new);
+     }
+
+     /**
+      * Starts timing an operation
+      * @return the start time to give to stop, 0 if the metrics are off
+      */
+     public static long start() {
+          return enabled ? System.nanoTime() : 0;
+     }
+
+     /**
+      * Records the time an operation took since start was called
+      * @param histogram The histogram of the operation
+      * @param start The value returned by start, nothing is recorded if it is 0
+      */
+     public static void stop(LatencyHistogram histogram, long start) {
+          if (start != 0) {
+               histogram.record(System.nanoTime() - start);
+          }
+     }
+
+     /**
+      * Counts records read from a log
+      * @param count The number of records parsed
+      */
+     static void parsed(long count) {
+          if (enabled) {
+               parsed.add(count);
+          }
+     }
+
+     /**
+      * Counts records added to a list
+      * @param count The number of records added
+      */
+     static void ingested(long count) {
+          if (enabled) {
+               ingested.add(count);
+          }
+     }
+
+     /**
+      * Counts the work of a search in a list
+      * @param traversed The number of nodes moved through
+      * @param compared The number of comparisons made
+      */
+     static void searched(long traversed, long compared) {
+          if (enabled) {
+               nodes.add(traversed);
+               comparisons.add(compared);
+          }
+     }
+
+     /**
+      * Counts a session built from a login and a logout
+      */
+     static void sessionBuilt() {
+          if (enabled) {
+               sessions.increment();
+          }
+     }
+
+     /**
+      * Returns the number of records read from logs
+      * @return the number of records parsed
+      */
+     public static long getParsed() {
+          return parsed.sum();
+     }
+
+     /**
+      * Returns the number of records added to lists
+      * @return the number of records ingested
+      */
+     public static long getIngested() {
+          return ingested.sum();
+     }
+
+     /**
+      * Returns the number of list nodes moved through by searches
+      * @return the number of nodes traversed
+      */
+     public static long getNodesTraversed() {
+          return nodes.sum();
+     }
+
+     /**
+      * Returns the number of comparisons made by searches
+      * @return the number of comparisons
+      */
+     public static long getComparisons() {
+          return comparisons.sum();
+     }
+
+     /**
+      * Returns the number of sessions built
+      * @return the number of sessions
+      */
+     public static long getSessionsBuilt() {
+          return sessions.sum();
+     }
+
+     /**
+      * Sets every counter and histogram back to zero
+      */
+     public static void reset() {
+          parsed.reset();
+          ingested.reset();
+          nodes.reset();
+          comparisons.reset();
+          sessions.reset();
+          for (LatencyHistogram h : histograms.values()) {
+               h.reset();
+          }
+     }
+
+     /**
+      * Returns the counters and the histograms of the operations that were measured, one per line
+      * @return the report of the metrics
+      */
+     public static String report() {
+          StringBuilder out = new StringBuilder();
+          out.append("Metrics are ").append(enabled ? "on" : "off").append('\n');
+          out.append(String.format("%-28s %10d%n", "records parsed", getParsed()));
+          out.append(String.format("%-28s %10d%n", "records ingested", getIngested()));
+          out.append(String.format("%-28s %10d%n", "nodes traversed", getNodesTraversed()));
+          out.append(String.format("%-28s %10d%n", "comparisons", getComparisons()));
+          out.append(String.format("%-28s %10d%n", "sessions built", getSessionsBuilt()));
+          for (Map.Entry<String, LatencyHistogram> e : new TreeMap<>(histograms).entrySet()) {
+               if (e.getValue().getCount() > 0) {
+                    out.append(e.getValue()).append('\n');
+               }
+          }
+          return out.toString();
+     }
+}
@@ -0,0 +1,223 @@
+package project3;
+
+import java.util.Arrays;
+
+/**
+ * The OpenLogins class pairs the login and logout fields of records given in time order,
+ * with the same rule as SessionTracker, without creating Record or Session objects
+ * The open logins of each user and terminal are kept in an open addressing table of primitive
+ * arrays; the slot of a user and terminal is freed when their last open login is closed and reused
+ * by later logins, and the table is rebuilt smaller when most of it is free, so its size follows
+ * the number of user and terminal pairs with open logins
+ * Every completed session is passed to a sink as a user id, a terminal and two times
+ *
+ * @author Thales Gao
+ */
+class OpenLogins {
+     private static final int MIN_CAPACITY = 16;
+
+     /**
+      * Receives the sessions completed by a logout
+      */
+     interface Sink {
+          /**
+           * Called once for every completed session
+           * @param userId The id of the user
+           * @param terminal The terminal number
+           * @param login The login time in milliseconds since the epoch
+           * @param logout The logout time in milliseconds since the epoch
+           */
+          void session(int userId, int terminal, long login, long logout);
+     }
+
+     //states of a slot: never used, holding open logins, or freed after holding some
+     private static final byte FREE = 0;
+     private static final byte USED = 1;
+     private static final byte DEAD = 2;
+
+     private final Sink sink;
+     //user id and terminal of each slot
+     private long[] keys = new long[MIN_CAPACITY];
+     private byte[] states = new byte[MIN_CAPACITY];
+     //login times of the open logins of each slot, in time order, and how many there are
+     private long[][] logins = new long[MIN_CAPACITY][];
+     private int[] counts = new int[MIN_CAPACITY];
+     //number of used and of freed slots
+     private int slots;
+     private int dead;
+     private long open;
+
+     /**
+      * Constructor initializes a table with no open logins
+      * @param sink The sink receiving every completed session
+      */
+     OpenLogins(Sink sink) {
+          this.sink = sink;
+     }
+
+     /**
+      * Opens a login
+      * @param userId The id of the user
+      * @param terminal The terminal number
+      * @param time The time of the login, not earlier than any record given before
+      */
+     void login(int userId, int terminal, long time) {
+          int slot = this.add(key(userId, terminal));
+          long[] times = logins[slot];
+          if (times == null) {
+               times = logins[slot] = new long[2];
+          } else if (counts[slot] == times.length) {
+               times = logins[slot] = Arrays.copyOf(times, 2 * times.length);
+          }
+          times[counts[slot]++] = time;
+          open++;
+     }
+
+     /**
+      * Completes the open logins of the same user and terminal made before the logout
+      * A login in the same millisecond as the logout stays open
+      * @param userId The id of the user
+      * @param terminal The terminal number
+      * @param time The time of the logout, not earlier than any record given before
+      * @return the number of sessions completed
+      */
+     int logout(int userId, int terminal, long time) {
+          int slot = this.find(key(userId, terminal));
+          if (slot < 0) {
+               return 0;
+          }
+          int count = counts[slot];
+          long[] times = logins[slot];
+          //the logins are in time order, so the ones it ends come first
+          int closed = 0;
+          while (closed < count && times[closed] < time) {
+               sink.session(userId, terminal, times[closed], time);
+               closed++;
+          }
+          if (closed == count) {
+               this.free(slot);
+          } else if (closed > 0) {
+               System.arraycopy(times, closed, times, 0, count - closed);
+               counts[slot] = count - closed;
+          }
+          open -= closed;
+          return closed;
+     }
+
+     /**
+      * Returns the number of logins that are still open
+      * @return the number of open logins
+      */
+     long getOpenCount() {
+          return open;
+     }
+
+     /**
+      * Returns the number of slots of the table, so tests can check that it shrinks
+      */
+     int capacity() {
+          return keys.length;
+     }
+
+     private static long key(int userId, int terminal) {
+          return ((long) userId << 32) | (terminal & 0xffffffffL);
+     }
+
+     /**
+      * Returns the slot of a user and terminal with open logins, -1 if they have none
+      */
+     private int find(long key) {
+          int mask = keys.length - 1;
+          for (int i = hash(key) & mask; states[i] != FREE; i = (i + 1) & mask) {
+               if (states[i] == USED && keys[i] == key) {
+                    return i;
+               }
+          }
+          return -1;
+     }
+
+     /**
+      * Returns the slot of a user and terminal, adding it if needed in the first freed slot on its way
+      */
+     private int add(long key) {
+          int mask = keys.length - 1;
+          int reuse = -1;
+          int i = hash(key) & mask;
+          for (; states[i] != FREE; i = (i + 1) & mask) {
+               if (states[i] == USED) {
+                    if (keys[i] == key) {
+                         return i;
+                    }
+               } else if (reuse < 0) {
+                    reuse = i;
+               }
+          }
+          if (reuse >= 0) {
+               dead--;
+               i = reuse;
+          } else if (2 * (slots + dead + 1) > keys.length) {
+               //full of used or freed slots, rebuilt without the freed ones and grown if needed
+               this.rebuild(capacityFor(slots + 1));
+               return this.add(key);
+          }
+          states[i] = USED;
+          keys[i] = key;
+          slots++;
+          return i;
+     }
+
+     /**
+      * Frees the slot of a user and terminal whose last open login was closed
+      */
+     private void free(int slot) {
+          states[slot] = DEAD;
+          logins[slot] = null;
+          counts[slot] = 0;
+          slots--;
+          dead++;
+          if (keys.length > MIN_CAPACITY && 8 * slots < keys.length) {
+               this.rebuild(capacityFor(slots));
+          }
+     }
+
+     /**
+      * Returns the smallest capacity keeping a table of the given number of slots at most half full
+      */
+     private static int capacityFor(int slots) {
+          int capacity = MIN_CAPACITY;
+          while (2 * slots > capacity) {
+               capacity *= 2;
+          }
+          return capacity;
+     }
+
+     private void rebuild(int capacity) {
+          long[] oldKeys = keys;
+          byte[] oldStates = states;
+          long[][] oldLogins = logins;
+          int[] oldCounts = counts;
+          keys = new long[capacity];
+          states = new byte[capacity];
+          logins = new long[capacity][];
+          counts = new int[capacity];
+          dead = 0;
+          int mask = capacity - 1;
+          for (int i = 0; i < oldKeys.length; i++) {
+               if (oldStates[i] == USED) {
+                    int j = hash(oldKeys[i]) & mask;
+                    while (states[j] != FREE) {
+                         j = (j + 1) & mask;
+                    }
+                    states[j] = USED;
+                    keys[j] = oldKeys[i];
+                    logins[j] = oldLogins[i];
+                    counts[j] = oldCounts[i];
+               }
+          }
+     }
+
+     static int hash(long key) {
+          long h = key * 0x9e3779b97f4a7c15L;
+          return (int) (h ^ (h >>> 32));
+     }
+}
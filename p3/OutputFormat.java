@@ -0,0 +1,241 @@
+package project3;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * The OutputFormat enum is the way LoginStats writes the answers about sessions and login times
+ * TEXT is the readable text the program always printed, CSV writes a header line and one line per
+ * session or user, and JSON writes one object per session or user, with lists as arrays on one line
+ * CSV and JSON give times and durations in milliseconds, and leave the logout time and duration
+ * of an active session empty (CSV) or null (JSON)
+ *
+ * @author Thales Gao
+ */
+public enum OutputFormat {
+     TEXT, CSV, JSON;
+
+     private static final String SESSION_HEADER = "username,terminal,login,logout,duration\n";
+     private static final String TOTAL_HEADER = "username,total\n";
+
+     /**
+      * Returns the format with the given name, in any case
+      * @param name text, csv or json
+      * @return the format
+      * @throws IllegalArgumentException if there is no such format
+      */
+     public static OutputFormat of(String name) throws IllegalArgumentException {
+          if (name != null) {
+               for (OutputFormat format : values()) {
+                    if (format.name().equalsIgnoreCase(name)) {
+                         return format;
+                    }
+               }
+          }
+          throw new IllegalArgumentException("Unknown format: " + name);
+     }
+
+     /**
+      * Writes the answer made of a single session
+      * @param session The session
+      * @param out Where the answer goes
+      * @throws IOException if out cannot be written
+      */
+     public void writeSession(Session session, Appendable out) throws IOException {
+          if (this == CSV) {
+               out.append(SESSION_HEADER);
+          }
+          this.write(session, out);
+          out.append('\n');
+     }
+
+     /**
+      * Writes the answer made of a list of sessions, ending with a blank line in TEXT and CSV
+      * @param sessions The sessions, in the order they are written
+      * @param out Where the answer goes
+      * @throws IOException if out cannot be written
+      */
+     public void writeSessions(Iterable<Session> sessions, Appendable out) throws IOException {
+          if (this == TEXT) {
+               for (Session s : sessions) {
+                    s.writeTo(out);
+                    out.append("\n\n");
+               }
+          } else if (this == CSV) {
+               out.append(SESSION_HEADER);
+               for (Session s : sessions) {
+                    this.write(s, out);
+                    out.append('\n');
+               }
+               out.append('\n');
+          } else {
+               out.append('[');
+               boolean first = true;
+               for (Session s : sessions) {
+                    if (!first) {
+                         out.append(',');
+                    }
+                    this.write(s, out);
+                    first = false;
+               }
+               out.append("]\n");
+          }
+     }
+
+     /**
+      * Writes the answer giving the total login time of a user
+      * @param user The username
+      * @param total The total login time in milliseconds
+      * @param out Where the answer goes
+      * @throws IOException if out cannot be written
+      */
+     public void writeTotal(String user, long total, Appendable out) throws IOException {
+          if (this == TEXT) {
+               out.append(user).append(" , total duration ");
+               TextFormat.appendDuration(out, total);
+          } else if (this == CSV) {
+               out.append(TOTAL_HEADER);
+               this.writeTotalFields(user, total, out);
+          } else {
+               this.writeTotalFields(user, total, out);
+          }
+          out.append('\n');
+     }
+
+     /**
+      * Writes the answer ranking the users with the largest total login time, ending with
+      * a blank line in TEXT and CSV
+      * @param top The users, the largest total first
+      * @param out Where the answer goes
+      * @throws IOException if out cannot be written
+      */
+     public void writeTop(List<UserTotal> top, Appendable out) throws IOException {
+          if (this == JSON) {
+               out.append('[');
+               for (int i = 0; i < top.size(); i++) {
+                    if (i > 0) {
+                         out.append(',');
+                    }
+                    this.writeTotalFields(top.get(i).getUsername(), top.get(i).getTotalTime(), out);
+               }
+               out.append("]\n");
+               return;
+          }
+          if (this == CSV) {
+               out.append(TOTAL_HEADER);
+          }
+          for (int i = 0; i < top.size(); i++) {
+               UserTotal t = top.get(i);
+               if (this == TEXT) {
+                    TextFormat.appendLong(out, i + 1);
+                    out.append(". ").append(t.getUsername()).append(" , total duration ");
+                    TextFormat.appendDuration(out, t.getTotalTime());
+               } else {
+                    this.writeTotalFields(t.getUsername(), t.getTotalTime(), out);
+               }
+               out.append('\n');
+          }
+          out.append('\n');
+     }
+
+     /**
+      * Writes one session without a line end
+      */
+     private void write(Session s, Appendable out) throws IOException {
+          boolean active = s.getLogoutTime() == null;
+          if (this == TEXT) {
+               s.writeTo(out);
+          } else if (this == CSV) {
+               appendCsv(out, s.getUsername());
+               out.append(',');
+               TextFormat.appendLong(out, s.getTerminal());
+               out.append(',');
+               TextFormat.appendLong(out, s.getLoginTime().getTime());
+               out.append(',');
+               if (!active) {
+                    TextFormat.appendLong(out, s.getLogoutTime().getTime());
+                    out.append(',');
+                    TextFormat.appendLong(out, s.getDuration());
+               } else {
+                    out.append(',');
+               }
+          } else {
+               out.append("{\"username\":");
+               appendJson(out, s.getUsername());
+               out.append(",\"terminal\":");
+               TextFormat.appendLong(out, s.getTerminal());
+               out.append(",\"login\":");
+               TextFormat.appendLong(out, s.getLoginTime().getTime());
+               if (!active) {
+                    out.append(",\"logout\":");
+                    TextFormat.appendLong(out, s.getLogoutTime().getTime());
+                    out.append(",\"duration\":");
+                    TextFormat.appendLong(out, s.getDuration());
+               } else {
+                    out.append(",\"logout\":null,\"duration\":null");
+               }
+               out.append('}');
+          }
+     }
+
+     /**
+      * Writes a username and a total as a CSV line or a JSON object, without a line end
+      */
+     private void writeTotalFields(String user, long total, Appendable out) throws IOException {
+          if (this == CSV) {
+               appendCsv(out, user);
+               out.append(',');
+               TextFormat.appendLong(out, total);
+          } else {
+               out.append("{\"username\":");
+               appendJson(out, user);
+               out.append(",\"total\":");
+               TextFormat.appendLong(out, total);
+               out.append('}');
+          }
+     }
+
+     /**
+      * Writes a CSV field, quoted if it holds a comma, a quote or a line end
+      */
+     private static void appendCsv(Appendable out, String value) throws IOException {
+          boolean quote = false;
+          for (int i = 0; i < value.length() && !quote; i++) {
+               char c = value.charAt(i);
+               quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+          }
+          if (!quote) {
+               out.append(value);
+               return;
+          }
+          out.append('"');
+          for (int i = 0; i < value.length(); i++) {
+               char c = value.charAt(i);
+               if (c == '"') {
+                    out.append('"');
+               }
+               out.append(c);
+          }
+          out.append('"');
+     }
+
+     /**
+      * Writes a JSON string, escaping quotes, backslashes and control characters
+      */
+     private static void appendJson(Appendable out, String value) throws IOException {
+          out.append('"');
+          for (int i = 0; i < value.length(); i++) {
+               char c = value.charAt(i);
+               if (c == '"' || c == '\\') {
+                    out.append('\\').append(c);
+               } else if (c < 0x20) {
+                    out.append("\\u00");
+                    out.append(Character.forDigit(c >> 4, 16));
+                    out.append(Character.forDigit(c & 0xf, 16));
+               } else {
+                    out.append(c);
+               }
+          }
+          out.append('"');
+     }
+}
@@ -0,0 +1,266 @@
+package project3;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The ParallelLoader class loads a login log file into a RecordList using several threads
+ * The file is split into chunks at line boundaries, the chunks are parsed and sorted
+ * into runs in parallel on a ForkJoinPool, and the runs are merged into the list
+ * The resulting list is exactly the same as adding the records one by one in file order,
+ * including the order of records with equal times
+ *
+ * @author Thales Gao
+ */
+public class ParallelLoader {
+     //smallest chunk worth handing to its own task
+     private static final long MIN_CHUNK = 1L << 20;
+
+     private Path file;
+     private ForkJoinPool pool;
+     private ArrayList<Long> malformed = new ArrayList<>();
+     //offset right after the last line that was loaded
+     private long end;
+
+     /**
+      * Constructor initializes a loader for the given file running on the common pool
+      * @param file The path of the log file
+      * @throws IllegalArgumentException if the path is null
+      */
+     public ParallelLoader(Path file) throws IllegalArgumentException {
+          this(file, ForkJoinPool.commonPool());
+     }
+
+     /**
+      * Constructor initializes a loader for the given file running on the given pool
+      * @param file The path of the log file
+      * @param pool The pool the chunks are parsed on
+      * @throws IllegalArgumentException if the path or the pool is null
+      */
+     public ParallelLoader(Path file, ForkJoinPool pool) throws IllegalArgumentException {
+          if (file == null || pool == null)
+               throw new IllegalArgumentException("File and pool cannot be null");
+          this.file = file;
+          this.pool = pool;
+     }
+
+     /**
+      * Parses the file and adds all its records to the list
+      * @param list The list receiving the records
+      * @throws IOException if the file cannot be read
+      */
+     public void load(RecordList list) throws IOException {
+          load(list, false);
+     }
+
+     /**
+      * Parses the file and adds all its records to the list, leaving a last line without a newline
+      * unread if the file is still being written, so a LogFollower can read it once it is complete
+      * @param list The list receiving the records
+      * @param follow true if the lines after getEndOffset will be read later by a LogFollower
+      * @throws IOException if the file cannot be read
+      */
+     public void load(RecordList list, boolean follow) throws IOException {
+          list.addSorted(this.read(list.getUserDictionary(), !follow));
+     }
+
+     /**
+      * Parses the file and adds all its records to the shards of a sharded list, all shards at once
+      * @param list The list receiving the records
+      * @throws IOException if the file cannot be read
+      */
+     public void load(ShardedRecordList list) throws IOException {
+          list.addSorted(this.read(list.getUserDictionary(), true));
+     }
+
+     /**
+      * Parses the file in chunks and merges the sorted chunks
+      * @param users The dictionary the usernames are given ids in
+      * @param atEnd true to parse a last line without a newline too
+      * @return all records of the file in list order
+      * @throws IOException if the file cannot be read
+      */
+     private List<Record> read(UserDictionary users, boolean atEnd) throws IOException {
+          try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+               long[] bounds = chunkBounds(channel);
+               int chunks = bounds.length - 1;
+               Record[][] runs = new Record[chunks][];
+               //one slot per chunk, set by the task parsing it
+               List<List<Long>> offsets = new ArrayList<>(Collections.nCopies(chunks, null));
+               //where the last chunk stopped, before its unfinished line if it has one
+               long[] stop = new long[1];
+               pool.invoke(new ChunkTask(file, users, channel, bounds, 0, chunks, atEnd, runs, offsets, stop));
+               end = stop[0];
+               for (List<Long> chunkOffsets : offsets) {
+                    malformed.addAll(chunkOffsets);
+               }
+               return merge(runs);
+          } catch (UncheckedIOException e) {
+               throw e.getCause();
+          }
+     }
+
+     /**
+      * Returns the byte offsets of the lines that could not be parsed
+      * @return the offsets of the malformed lines, in file order
+      */
+     public List<Long> getMalformedOffsets() {
+          return malformed;
+     }
+
+     /**
+      * Returns the offset where loading stopped, so that lines appended later can be read from there
+      * @return the size of the file when it was loaded, or the offset right after its last newline
+      *         if it was loaded to be followed
+      */
+     public long getEndOffset() {
+          return end;
+     }
+
+     /**
+      * Splits the file into chunks that start at the beginning of a line
+      * @return the chunk boundaries, from 0 to the size of the file
+      */
+     private long[] chunkBounds(FileChannel channel) throws IOException {
+          long size = channel.size();
+          long chunk = Math.max(MIN_CHUNK, size / (4L * pool.getParallelism()));
+          ArrayList<Long> bounds = new ArrayList<>();
+          bounds.add(0L);
+          ByteBuffer buffer = ByteBuffer.allocate(4096);
+          long position = chunk;
+          while (position < size) {
+               //move forward to the byte after the next newline
+               long next = -1;
+               while (next < 0 && position < size) {
+                    buffer.clear();
+                    int read = channel.read(buffer, position);
+                    if (read <= 0) {
+                         break;
+                    }
+                    for (int i = 0; i < read; i++) {
+                         if (buffer.get(i) == '\n') {
+                              next = position + i + 1;
+                              break;
+                         }
+                    }
+                    if (next < 0) {
+                         position += read;
+                    }
+               }
+               if (next < 0 || next >= size) {
+                    break;
+               }
+               bounds.add(next);
+               position = next + chunk;
+          }
+          bounds.add(size);
+          long[] result = new long[bounds.size()];
+          for (int i = 0; i < result.length; i++) {
+               result[i] = bounds.get(i);
+          }
+          return result;
+     }
+
+     /**
+      * Merges the sorted runs of all chunks
+      * On equal times the record from the later chunk comes first, like it would with add
+      * @return all records in list order
+      */
+     private static List<Record> merge(Record[][] runs) {
+          int total = 0;
+          for (Record[] run : runs) {
+               total += run.length;
+          }
+          Record[] merged = new Record[total];
+          int[] heads = new int[runs.length];
+          PriorityQueue<Integer> queue = new PriorityQueue<>(Math.max(1, runs.length), (a, b) -> {
+               int c = runs[a][heads[a]].compareTo(runs[b][heads[b]]);
+               return c != 0 ? c : Integer.compare(b, a);
+          });
+          for (int i = 0; i < runs.length; i++) {
+               if (runs[i].length > 0) {
+                    queue.add(i);
+               }
+          }
+          int n = 0;
+          while (!queue.isEmpty()) {
+               int run = queue.poll();
+               merged[n++] = runs[run][heads[run]++];
+               if (heads[run] < runs[run].length) {
+                    queue.add(run);
+               }
+          }
+          return Arrays.asList(merged);
+     }
+
+     /* Parses a range of chunks, splitting it in halves until a single chunk is left. */
+     private static class ChunkTask extends RecursiveAction {
+          private static final long serialVersionUID = 1L;
+
+          private final Path file;
+          private final UserDictionary users;
+          private final FileChannel channel;
+          private final long[] bounds;
+          private final int from;
+          private final int to;
+          //whether a last line without a newline is parsed too
+          private final boolean atEnd;
+          private final Record[][] runs;
+          private final List<List<Long>> offsets;
+          private final long[] stop;
+
+          ChunkTask(Path file, UserDictionary users, FileChannel channel, long[] bounds, int from, int to, boolean atEnd,
+                    Record[][] runs, List<List<Long>> offsets, long[] stop) {
+               this.file = file;
+               this.users = users;
+               this.channel = channel;
+               this.bounds = bounds;
+               this.from = from;
+               this.to = to;
+               this.atEnd = atEnd;
+               this.runs = runs;
+               this.offsets = offsets;
+               this.stop = stop;
+          }
+
+          @Override
+          protected void compute() {
+               if (to - from > 1) {
+                    int mid = (from + to) >>> 1;
+                    invokeAll(new ChunkTask(file, users, channel, bounds, from, mid, atEnd, runs, offsets, stop),
+                              new ChunkTask(file, users, channel, bounds, mid, to, atEnd, runs, offsets, stop));
+                    return;
+               }
+               ArrayList<Record> records = new ArrayList<>();
+               //all chunks share the list's dictionary, so every user gets a single id and String
+               LogParser parser = new LogParser(file, users);
+               //every other chunk ends right after a newline
+               boolean last = to == bounds.length - 1;
+               try {
+                    long parsed = parser.parse(channel, bounds[from], bounds[to], atEnd || !last, records::add);
+                    if (last) {
+                         stop[0] = parsed;
+                    }
+               } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+               }
+               //reversed before the stable sort, so equal records end up in reverse file order like add
+               Collections.reverse(records);
+               Record[] run = records.toArray(new Record[0]);
+               Arrays.sort(run);
+               runs[from] = run;
+               offsets.set(from, parser.getMalformedOffsets());
+          }
+     }
+}
@@ -0,0 +1,168 @@
+package project3;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The QueryServer class answers the LoginStats commands of many clients over a local TCP socket
+ * Every client gets its own thread, and each line it sends is answered like in the interactive
+ * program, followed by a line starting with "--" that gives the time taken by the query,
+ * the number of queries answered in the last second and in total, and marks the end of the answer
+ * The queries run against an immutable QuerySnapshot of the list, which is replaced by a newer
+ * one shortly after the list changes, so adding records never blocks the queries
+ *
+ * @author Thales Gao
+ */
+public class QueryServer implements Closeable {
+     //milliseconds between two checks of the list for changes
+     private static final long REFRESH_INTERVAL = 50;
+
+     private final RecordList list;
+     private final ServerSocket socket;
+     private final ExecutorService clients;
+     private final ScheduledExecutorService refresher;
+     private volatile QuerySnapshot current;
+     private volatile boolean closed;
+
+     //queries answered in total, and in the current and the previous second
+     private final AtomicLong served = new AtomicLong();
+     private long second;
+     private long thisSecond;
+     private long lastSecond;
+
+     /**
+      * Constructor initializes a server for the given list listening on the loopback address
+      * The list must be locked by any thread that changes it
+      * @param list The records to query
+      * @param port The port to listen on, 0 for any free port
+      * @throws IOException if the socket cannot be opened
+      * @throws IllegalArgumentException if the list is null
+      */
+     public QueryServer(RecordList list, int port) throws IOException, IllegalArgumentException {
+          if (list == null)
+               throw new IllegalArgumentException("List cannot be null");
+          this.list = list;
+          synchronized (list) {
+               this.current = list.snapshot();
+          }
+          this.socket = new ServerSocket(port, 128, InetAddress.getLoopbackAddress());
+          this.clients = Executors.newCachedThreadPool(r -> {
+               Thread thread = new Thread(r, "query-client");
+               thread.setDaemon(true);
+               return thread;
+          });
+          this.refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+               Thread thread = new Thread(r, "query-refresh");
+               thread.setDaemon(true);
+               return thread;
+          });
+     }
+
+     /**
+      * Returns the port the server listens on
+      * @return the local port of the server
+      */
+     public int getPort() {
+          return socket.getLocalPort();
+     }
+
+     /**
+      * Starts accepting clients and refreshing the snapshot on background threads
+      */
+     public void start() {
+          refresher.scheduleWithFixedDelay(this::refresh, REFRESH_INTERVAL, REFRESH_INTERVAL, TimeUnit.MILLISECONDS);
+          clients.execute(() -> {
+               while (!closed) {
+                    try {
+                         Socket client = socket.accept();
+                         clients.execute(() -> this.serve(client));
+                    } catch (IOException e) {
+                         if (!closed) {
+                              System.err.println("Warning: cannot accept a client: " + e.getMessage());
+                         }
+                    }
+               }
+          });
+     }
+
+     /**
+      * Stops the server and disconnects the clients at their next command
+      * @throws IOException if the socket cannot be closed
+      */
+     @Override
+     public void close() throws IOException {
+          closed = true;
+          refresher.shutdown();
+          clients.shutdown();
+          socket.close();
+     }
+
+     /**
+      * Replaces the snapshot with a new one if the list changed since it was taken
+      */
+     private void refresh() {
+          synchronized (list) {
+               if (list.getVersion() != current.getVersion()) {
+                    current = list.snapshot();
+               }
+          }
+     }
+
+     /**
+      * Answers the commands of one client until it sends quit or disconnects
+      * @param client The socket of the client
+      */
+     private void serve(Socket client) {
+          try (client;
+               BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+               Writer out = new BufferedWriter(new OutputStreamWriter(client.getOutputStream(), StandardCharsets.UTF_8))) {
+               String line;
+               while (!closed && (line = in.readLine()) != null) {
+                    line = line.trim();
+                    if (line.equalsIgnoreCase("quit")) {
+                         break;
+                    }
+                    long start = System.nanoTime();
+                    String answer = LoginStats.answer(current, line.split(" "));
+                    long end = System.nanoTime();
+                    long rate = this.count(end);
+                    out.write(answer);
+                    out.write(String.format("-- %.3f ms, %d queries/s, %d served%n", (end - start) / 1e6, rate, served.get()));
+                    out.flush();
+               }
+          } catch (IOException e) {
+               //the client went away, nothing to answer
+          }
+     }
+
+     /**
+      * Counts an answered query
+      * @param now The time the query was answered, from System.nanoTime
+      * @return the number of queries answered in the last full second
+      */
+     private synchronized long count(long now) {
+          served.incrementAndGet();
+          long s = now / 1000000000L;
+          if (s != second) {
+               lastSecond = s == second + 1 ? thisSecond : 0;
+               second = s;
+               thisSecond = 0;
+          }
+          thisSecond++;
+          return lastSecond;
+     }
+}
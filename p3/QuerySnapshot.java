@@ -0,0 +1,182 @@
+package project3;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * The QuerySnapshot class answers the session queries from the sessions of every user
+ * as they were when the snapshot was taken from a RecordList
+ * A snapshot never changes, so any number of threads can query it without locking
+ * while records are still being added to the list it was taken from
+ *
+ * @author Thales Gao
+ */
+public class QuerySnapshot implements SessionQueries {
+     private final UserDictionary users;
+     //sessions of every user by user id, in order; the lists are shared with the RecordList and never changed
+     private final List<ArrayList<Session>> sessions;
+     //number of changes made to the list when the snapshot was taken
+     private final int version;
+     //index of all sessions by time, built when first needed
+     private SessionIndex index;
+
+     /**
+      * Constructor initializes a snapshot of the given sessions
+      * @param users The dictionary of usernames the sessions are indexed with
+      * @param sessions The sessions of every user by user id, which must not be changed afterwards
+      * @param version The number of changes made to the list the sessions come from
+      */
+     QuerySnapshot(UserDictionary users, List<ArrayList<Session>> sessions, int version) {
+          this.users = users;
+          this.sessions = sessions;
+          this.version = version;
+     }
+
+     /**
+      * Returns the number of changes that had been made to the list when the snapshot was taken
+      * @return the version of the list
+      */
+     int getVersion() {
+          return version;
+     }
+
+     /**
+      * Returns the first login session of a specific user
+      * i.e. earliest login time
+      * @param user The user whose information is to be accessed
+      * @return the first login session of a specific user
+      * @throws NoSuchElementException where the specific user does not match any record
+      * @throws IllegalArgumentException when the argument string is invalid
+      */
+     public Session getFirstSession(String user) throws NoSuchElementException, IllegalArgumentException {
+          if (user == null || user.isEmpty())
+               throw new IllegalArgumentException("Invalid username.");
+          ArrayList<Session> list = this.sessionsOf(user);
+          return list.get(0);
+     }
+
+     /**
+      * Returns the last logout session of a specific user
+      * i.e. latest logout time
+      * @param user The user whose information is to be accessed
+      * @return the last logout session of a specific user
+      * @throws NoSuchElementException where the specific user does not match any record
+      * @throws IllegalArgumentException when the argument string is invalid
+      */
+     public Session getLastSession(String user) throws NoSuchElementException, IllegalArgumentException {
+          if (user == null || user.isEmpty())
+               throw new IllegalArgumentException("Invalid username");
+          ArrayList<Session> list = this.sessionsOf(user);
+          return list.get(list.size() - 1);
+     }
+
+     /**
+      * Provides the total login time of a specified user
+      * @param user The user whose information is to be accessed
+      * @return the total duration of the user
+      * @throws NoSuchElementException where the specific user does not match any record
+      * @throws IllegalArgumentException when the argument string is invalid
+      */
+     public long getTotalTime(String user) throws NoSuchElementException, IllegalArgumentException {
+          if (user == null || user.isEmpty())
+               throw new IllegalArgumentException("Invalid username");
+          long l = 0;
+          for (Session s : this.sessionsOf(user)) {
+               if (s.getDuration() > 0) {
+                    l += s.getDuration();
+               }
+          }
+          return l;
+     }
+
+     /**
+      * Generate a sorted linked list of all the session of a given user
+      * @param user The user whose information is to be accessed
+      * @return A sorted linked list of all the sessions of the user
+      * @throws NoSuchElementException where the specific user does not match any record
+      * @throws IllegalArgumentException when the argument string is invalid
+      */
+     public SortedLinkedList<Session> getAllSessions(String user) throws NoSuchElementException, IllegalArgumentException {
+          if (user == null || user.isEmpty())
+               throw new IllegalArgumentException("Invalid username");
+          SortedLinkedList<Session> sll = new SortedLinkedList<>();
+          sll.addAll(this.sessionsOf(user));
+          return sll;
+     }
+
+     /**
+      * Returns the index of the sessions of all users by time
+      * @return the index of all sessions in the snapshot
+      */
+     public synchronized SessionIndex getSessionIndex() {
+          if (index == null) {
+               ArrayList<Session> all = new ArrayList<>();
+               this.collectSessions(all);
+               index = new SessionIndex(all);
+          }
+          return index;
+     }
+
+     /**
+      * Measures the number of sessions open at the same time from the sessions of all users
+      * @param listener The listener receiving every change of the number of open sessions, or null
+      * @return the analyzer holding the peaks and the time spent at each number of open sessions
+      */
+     public ConcurrencyAnalyzer analyzeConcurrency(ConcurrencyAnalyzer.Listener listener) {
+          ArrayList<Session> all = new ArrayList<>();
+          this.collectSessions(all);
+          return ConcurrencyAnalyzer.of(all, users, listener);
+     }
+
+     /**
+      * Returns the users with the largest login time between two times
+      * @param k The largest number of users to return
+      * @param from The start of the window in milliseconds since the epoch
+      * @param to The end of the window in milliseconds since the epoch
+      * @return at most k users with a positive total in the window, the largest total first
+      * @throws IllegalArgumentException if k is not positive or from is after to
+      */
+     public List<UserTotal> topUsers(int k, long from, long to) throws IllegalArgumentException {
+          if (from > to)
+               throw new IllegalArgumentException("The range ends before it starts");
+          long[] totals = new long[sessions.size()];
+          for (int id = 0; id < totals.length; id++) {
+               for (Session s : sessions.get(id)) {
+                    if (s.getLogoutTime() != null) {
+                         long duration = Math.min(s.getLogoutTime().getTime(), to) - Math.max(s.getLoginTime().getTime(), from);
+                         if (duration > 0) {
+                              totals[id] += duration;
+                         }
+                    }
+               }
+          }
+          return UserTotals.top(totals, users, k);
+     }
+
+     /**
+      * Adds the sessions of every user in the snapshot to a collection, user by user
+      * @param all The collection receiving the sessions
+      */
+     void collectSessions(Collection<Session> all) {
+          for (ArrayList<Session> list : sessions) {
+               all.addAll(list);
+          }
+     }
+
+     /**
+      * Returns the sessions of a specific user
+      * @param user The user whose sessions are to be accessed
+      * @return the sessions of the user in order
+      * @throws NoSuchElementException if the user has no sessions in the snapshot
+      */
+     private ArrayList<Session> sessionsOf(String user) throws NoSuchElementException {
+          //the dictionary may have grown since the snapshot was taken
+          int id = users.idOf(user);
+          ArrayList<Session> list = id >= 0 && id < sessions.size() ? sessions.get(id) : null;
+          if (list == null || list.isEmpty())
+               throw new NoSuchElementException("The given user does not have a login record.");
+          return list;
+     }
+}
@@ -12,6 +12,8 @@ public class Record implements Comparable<Record> {
     private Date time;
     private String username;
     private boolean login;
+    //id of the username in a UserDictionary, -1 if not known
+    private int userId = -1;
 
     /**
      * Constructor initializes a new Record with terminal as a positive integer 
@@ -33,6 +35,20 @@ public class Record implements Comparable<Record> {
         this.login = login;
     }
 
+    /**
+     * Constructor used while reading a log, when the username already has an id in a UserDictionary
+     * @param terminal The terminal number
+     * @param login The login Status
+     * @param username The username, as stored in the dictionary
+     * @param userId The id of the username in the dictionary
+     * @param time The login date
+     * @throws IllegalArgumentException when the constructor is called with an invalid terminal number
+     */
+    Record(int terminal, boolean login, String username, int userId, Date time) throws IllegalArgumentException {
+        this(terminal, login, username, time);
+        this.userId = userId;
+    }
+
     /**
      * returns the terminal number
      * @return terminal The terminal number
@@ -65,6 +81,14 @@ public class Record implements Comparable<Record> {
         return username;
     }
 
+    /**
+     * returns the id of the username in the UserDictionary the record was read with
+     * @return userId The id of the username, -1 if the record was not read with a dictionary
+     */
+    public int getUserId() {
+        return userId;
+    }
+
     /**
      * returns the date 
      * @return time The time The login/logout time
@@ -84,7 +108,7 @@ public class Record implements Comparable<Record> {
         if (this.equals(r)) {
             return 0;
         }
-        return (int) (this.getTime().getTime() - r.getTime().getTime());
+        return Long.compare(this.getTime().getTime(), r.getTime().getTime());
     }
 
     /**
@@ -2,15 +2,227 @@ package project3;
 
 import java.util.NoSuchElementException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
 
 /**
  * This class is used to store all Record objects
  * It inherits the properties from Arraylist<Record> class
  * It allows the user to get the first or last session of a given username
+ * The records of each user are also indexed by the id of the username in a
+ * UserDictionary, and the sessions of all users are paired in a single pass over
+ * the list the first time they are needed, so the queries only read the sessions
+ * of the requested user
+ * The totals and sorted sessions of the most recently queried users are cached
+ * until one of their records is added or removed
+ * A list created as concurrent can take new records from one thread while
+ * other threads run queries; the lists of each user's records are only read
+ * and changed under the lock of the whole list, so iterating over the sessions
+ * of a user is weakly consistent like iterating over the list
  *
  * @author Thales Gao
  */
-public class RecordList extends SortedLinkedList<Record> {
+public class RecordList extends SortedLinkedList<Record> implements SessionQueries {
+     //number of users whose totals and sorted sessions are kept
+     private static final int CACHE_CAPACITY = 1024;
+
+     private UserDictionary users;
+     //records of every user by user id, kept in the same order as in the whole list
+     private ArrayList<SortedLinkedList<Record>> userRecords = new ArrayList<>();
+     //sessions of every user by user id in order, built by one pass over the list when first needed;
+     //a user's entry is dropped when one of their records is added or removed, and the lists are
+     //never changed once built, so snapshots can share them
+     private ArrayList<ArrayList<Session>> sessionTable;
+     //guards the session table in a concurrent list, where several queries can fill it at once
+     private final Object tableLock = new Object();
+     //index of the sessions of all users by time, and the number of changes to the list it was built at
+     private SessionIndex sessionIndex;
+     private int indexVersion;
+     //totals and sorted sessions of the most recently queried users
+     private final UserCache cache = new UserCache(CACHE_CAPACITY);
+
+     /**
+      * Constructor initializes an empty list
+      */
+     public RecordList() {
+          this(new UserDictionary(), false);
+     }
+
+     /**
+      * Constructor initializes an empty list that indexes its users by their id in the given dictionary
+      * @param users The dictionary of usernames
+      * @throws IllegalArgumentException if the dictionary is null
+      */
+     public RecordList(UserDictionary users) throws IllegalArgumentException {
+          this(users, false);
+     }
+
+     /**
+      * Constructor initializes an empty list, which can be used by several threads at once if concurrent is true
+      * Records can then be added by one thread while others run queries, as in a ConcurrentSortedList
+      * @param users The dictionary of usernames
+      * @param concurrent true to make the list safe for use by several threads
+      * @throws IllegalArgumentException if the dictionary is null
+      */
+     public RecordList(UserDictionary users, boolean concurrent) throws IllegalArgumentException {
+          super(concurrent);
+          if (users == null)
+               throw new IllegalArgumentException("Dictionary cannot be null");
+          this.users = users;
+     }
+
+     /**
+      * Returns the dictionary the users of the list are indexed with
+      * Records read by a LogParser that shares this dictionary are indexed without a lookup
+      * @return the dictionary of usernames
+      */
+     public UserDictionary getUserDictionary() {
+          return users;
+     }
+
+     /**
+      * Returns the cache of the totals and sessions of the most recently queried users,
+      * which counts how many queries it answered
+      * @return the cache of the list
+      */
+     public UserCache getCache() {
+          return cache;
+     }
+
+     /**
+      * Adds the specified record to the list in ascending order
+      * and to the records of its user
+      * @param r The record to add
+      * @return true if the record was added, false otherwise (if r is null)
+      */
+     @Override
+     public boolean add(Record r) {
+          this.lockWrite();
+          try {
+               if (!super.add(r)) {
+                    return false;
+               }
+               Metrics.ingested(1);
+               int id = users.idOf(r);
+               if (id >= 0) {
+                    //only the add to the whole list is timed, so every record is counted once
+                    this.userRecordsOf(id).addUntimed(r);
+                    this.invalidate(id);
+               }
+               return true;
+          } finally {
+               this.unlockWrite();
+          }
+     }
+
+     /**
+      * Adds all the records in the specified collection to the list
+      * and to the records of their users
+      * @param c The records to add
+      * @return true if the list changed, false otherwise
+      */
+     @Override
+     public boolean addAll(Collection<? extends Record> c) {
+          this.lockWrite();
+          try {
+               int before = this.size();
+               if (!super.addAll(c)) {
+                    return false;
+               }
+               Metrics.ingested(this.size() - before);
+               this.indexAll(c, false);
+               return true;
+          } finally {
+               this.unlockWrite();
+          }
+     }
+
+     /**
+      * Adds records that are already in list order to the list
+      * and to the records of their users
+      * @param sorted The records to add, in list order
+      * @return true if the list changed, false otherwise
+      */
+     @Override
+     boolean addSorted(Collection<? extends Record> sorted) {
+          this.lockWrite();
+          try {
+               int before = this.size();
+               if (!super.addSorted(sorted)) {
+                    return false;
+               }
+               Metrics.ingested(this.size() - before);
+               this.indexAll(sorted, true);
+               return true;
+          } finally {
+               this.unlockWrite();
+          }
+     }
+
+     /**
+      * Adds a batch of records to the records of their users
+      * @param c The records that were added to the list
+      * @param sorted true if the records are already in list order
+      */
+     private void indexAll(Collection<? extends Record> c, boolean sorted) {
+          //group the records by user first so each user's records are loaded in one step
+          HashMap<Integer, ArrayList<Record>> groups = new HashMap<>();
+          for (Record r : c) {
+               int id = r == null ? -1 : users.idOf(r);
+               if (id >= 0) {
+                    groups.computeIfAbsent(id, k -> new ArrayList<>()).add(r);
+               }
+          }
+          for (Map.Entry<Integer, ArrayList<Record>> group : groups.entrySet()) {
+               SortedLinkedList<Record> records = this.userRecordsOf(group.getKey());
+               if (sorted) {
+                    records.addSorted(group.getValue());
+               } else {
+                    records.addAll(group.getValue());
+               }
+               cache.invalidate(group.getKey());
+          }
+          sessionTable = null;
+     }
+
+     /**
+      * Removes a record that was removed from the list from the records of its user
+      * @param r The removed record
+      */
+     @Override
+     protected void removed(Record r) {
+          int id = users.idOf(r);
+          if (id < 0) {
+               return;
+          }
+          SortedLinkedList<Record> records = userRecords.get(id);
+          records.remove(r);
+          if (records.size() == 0) {
+               userRecords.set(id, null);
+          }
+          this.invalidate(id);
+     }
+
+     /**
+      * Removes all records from the list
+      */
+     @Override
+     public void clear() {
+          this.lockWrite();
+          try {
+               super.clear();
+               userRecords.clear();
+               sessionTable = null;
+               cache.clear();
+          } finally {
+               this.unlockWrite();
+          }
+     }
 
      /**
       * Returns the first login session of a specific user
@@ -25,36 +237,28 @@ public class RecordList extends SortedLinkedList<Record> {
           if (user == null || user.isEmpty()) {
                throw new IllegalArgumentException("Invalid username.");
           }
-          Record firstLogin = null;
-          Record firstLogout = null;
-          int i;
-          int j;
-          //Go through the list, find the first instance of the given username in a login record
-          for (i = 0; i < this.size(); i++) {
-               String loginUser = this.get(i).getUsername();
-               if (loginUser != null && loginUser.equals(user) && this.get(i).isLogin()) { 
-                    firstLogin = this.get(i);
-                    break;
+          long start = Metrics.start();
+          this.lockRead();
+          try {
+               int id = users.idOf(user);
+               ArrayList<Session> sessions = this.pairedSessionsOf(id);
+               if (sessions != null) {
+                    if (sessions.isEmpty())
+                         throw new NoSuchElementException("The given user does not have a login record.");
+                    return sessions.get(0);
                }
-
-          }
-          if (firstLogin == null)
-               throw new NoSuchElementException("The given user does not have a login record.");
-
-          //Search for the corresponding logout record
-          for (j = i; j < this.size(); j++) {
-               String logoutUser = this.get(j).getUsername();
-               if (logoutUser != null && logoutUser.equals(user) && this.get(j).isLogout() && firstLogin.getTerminal() == this.get(j).getTerminal()) {
-                    firstLogout = this.get(j);
-                    break;
+               //the sessions are not paired yet, walk the user's records from the beginning instead
+               ListIterator<Record> itr = this.recordsOf(id).listIterator();
+               while (itr.hasNext()) {
+                    Record r = itr.next();
+                    if (r.isLogin()) {
+                         return sessionFrom(r, itr);
+                    }
                }
-          }
-
-          //try constructing a corresponding session, exception can only occur if the login is after logout
-          try {
-              return new Session(firstLogin, firstLogout);
-          } catch (IllegalArgumentException ex) {
-               throw new NoSuchElementException("list not in order");
+               throw new NoSuchElementException("The given user does not have a login record.");
+          } finally {
+               this.unlockRead();
+               Metrics.stop(Metrics.FIRST, start);
           }
      }
 
@@ -71,35 +275,31 @@ public class RecordList extends SortedLinkedList<Record> {
           if (user == null || user.isEmpty())
                throw new IllegalArgumentException("Invalid username");
 
-          Record lastLogin = null;
-          Record lastLogout = null;
-          int i;
-          int j;
-          int mark = -1;
-          //Go through the list, find the first instance of the given username in a login record
-          for (i = 0; i < this.size(); i++) {
-               String loginUser = this.get(i).getUsername();
-               if (loginUser != null && loginUser.equals(user) && this.get(i).isLogin()) {
-                    lastLogin = this.get(i);
-                    mark = i;
+          long start = Metrics.start();
+          this.lockRead();
+          try {
+               int id = users.idOf(user);
+               ArrayList<Session> sessions = this.pairedSessionsOf(id);
+               if (sessions != null) {
+                    if (sessions.isEmpty())
+                         throw new NoSuchElementException("The given user does not have a login record.");
+                    return sessions.get(sessions.size() - 1);
                }
-          }
-          if (lastLogin == null)
-               throw new NoSuchElementException("The given user does not have a login record.");
-
-          //Search for the corresponding logout record
-          for (j = mark; j < this.size(); j++) {
-               String logoutUser = this.get(j).getUsername();
-               if (logoutUser != null && logoutUser.equals(user) && this.get(j).isLogout() && lastLogin.getTerminal() == this.get(j).getTerminal()) {
-                    lastLogout = this.get(j);
-                    break;
+               //the sessions are not paired yet, walk the user's records back from the end
+               //to the last login, then forward again to its logout
+               SortedLinkedList<Record> records = this.recordsOf(id);
+               ListIterator<Record> itr = records.listIterator(records.size());
+               while (itr.hasPrevious()) {
+                    Record r = itr.previous();
+                    if (r.isLogin()) {
+                         itr.next();
+                         return sessionFrom(r, itr);
+                    }
                }
-          }
-          //try constructing a corresponding session 
-          try {
-              return new Session(lastLogin, lastLogout);
-          } catch (IllegalArgumentException ex) {
-               throw new NoSuchElementException("list not in order");
+               throw new NoSuchElementException("The given user does not have a login record.");
+          } finally {
+               this.unlockRead();
+               Metrics.stop(Metrics.LAST, start);
           }
      }
 
@@ -114,19 +314,17 @@ public class RecordList extends SortedLinkedList<Record> {
           if (user == null || user.isEmpty())
                throw new IllegalArgumentException("Invalid username");
 
+          long start = Metrics.start();
+          this.lockRead();
           try {
-               this.getFirstSession(user);
-          } catch (NoSuchElementException ex) {
-               throw new NoSuchElementException("The given user does not have a login record.");
-          }
-          long l = 0;
-          SortedLinkedList<Session> sll = this.getAllSessions(user);
-          for (int i = 0; i < sll.size(); i++) {
-               if (sll.get(i).getDuration() > 0) {
-                    l += sll.get(i).getDuration();
-               }
+               UserCache.Entry entry = this.cachedOf(users.idOf(user));
+               if (entry.sessions.isEmpty())
+                    throw new NoSuchElementException("The given user does not have a login record.");
+               return entry.total;
+          } finally {
+               this.unlockRead();
+               Metrics.stop(Metrics.TOTAL, start);
           }
-          return l;
      }
 
      /**
@@ -140,60 +338,415 @@ public class RecordList extends SortedLinkedList<Record> {
           if (user == null || user.isEmpty())
                throw new IllegalArgumentException("Invalid username");
 
+          long start = Metrics.start();
+          this.lockRead();
           try {
-               this.getFirstSession(user);
-          } catch (NoSuchElementException ex) {
-               throw new NoSuchElementException("The given user does not have a login record.");
+               UserCache.Entry entry = this.cachedOf(users.idOf(user));
+               if (entry.sessions.isEmpty())
+                    throw new NoSuchElementException("The given user does not have a login record.");
+               //the cached sessions are already in list order, so they are linked without comparisons
+               SortedLinkedList<Session> sll = new SortedLinkedList<>();
+               sll.addSorted(entry.sessions);
+               return sll;
+          } finally {
+               this.unlockRead();
+               Metrics.stop(Metrics.ALL, start);
           }
-          SortedLinkedList<Session> sll = new SortedLinkedList<>();
-
-          Record Login;
-          Record Logout = null;
-          int i;
-          int j;
-
-          for (i = 0; i < this.size(); i++) {
-               String loginUser = this.get(i).getUsername();
-               if (loginUser != null && loginUser.equals(user) && this.get(i).isLogin()) {
-                    Login = this.get(i);
-                    for (j = i; j < this.size(); j++) {
-                         String logoutUser = this.get(j).getUsername();
-                         if (logoutUser != null && logoutUser.equals(user) && this.get(j).isLogout() && Login.getTerminal() == this.get(j).getTerminal()) {
-                              Logout = this.get(j);
-                              break;
+     }
+
+     /**
+      * Returns the sessions of a given user in the order of getAllSessions, pairing the user's records
+      * only as the iteration reaches them, so reading the first sessions of a user with many records
+      * does not pair the others; the cached sessions are returned if the user is in the cache
+      * Each iteration starts again from the first session, and in a concurrent list it is weakly consistent
+      * @param user The user whose information is to be accessed
+      * @return the sessions of the user
+      * @throws NoSuchElementException where the specific user does not have any record
+      * @throws IllegalArgumentException when the argument string is invalid
+      */
+     @Override
+     public Iterable<Session> iterateSessions(String user) throws NoSuchElementException, IllegalArgumentException {
+          if (user == null || user.isEmpty())
+               throw new IllegalArgumentException("Invalid username");
+
+          this.lockRead();
+          try {
+               int id = users.idOf(user);
+               SortedLinkedList<Record> records = this.recordsOf(id);
+               if (records.size() == 0)
+                    throw new NoSuchElementException("The given user does not have a login record.");
+               UserCache.Entry entry = cache.get(id);
+               if (entry != null) {
+                    return Collections.unmodifiableList(entry.sessions);
+               }
+               return () -> new SessionIterator(records);
+          } finally {
+               this.unlockRead();
+          }
+     }
+
+     /**
+      * Returns the index of the sessions of all users by time
+      * It is built again after the list changed, from the session table
+      * @return the index of all sessions as they are now
+      */
+     public SessionIndex getSessionIndex() {
+          long start = Metrics.start();
+          this.lockRead();
+          try {
+               synchronized (tableLock) {
+                    if (sessionIndex == null || indexVersion != modCount) {
+                         ArrayList<Session> all = new ArrayList<>();
+                         for (int id = 0; id < users.size(); id++) {
+                              all.addAll(this.sessionsOf(id));
                          }
-                         Logout = null;
+                         sessionIndex = new SessionIndex(all);
+                         indexVersion = modCount;
                     }
-                    sll.add(new Session(Login, Logout));
+                    return sessionIndex;
                }
+          } finally {
+               this.unlockRead();
+               Metrics.stop(Metrics.INDEX, start);
           }
-          return sll;
      }
 
      /**
-      * A helper method used to generate duration in string format, borrowed from the one in Session class
-      * @param user The user whose information is to be accessed
-      * @return A formatted string of the total duration
-      * @throws NoSuchElementException where the specific user does not match any record
-      * @throws IllegalArgumentException when the argument string is invalid
+      * Measures the number of sessions open at the same time in one pass over the records
+      * @param listener The listener receiving every change of the number of open sessions, or null
+      * @return the analyzer holding the peaks and the time spent at each number of open sessions
       */
-     public String getTotalTimeString(String user) throws NoSuchElementException, IllegalArgumentException {
+     public ConcurrencyAnalyzer analyzeConcurrency(ConcurrencyAnalyzer.Listener listener) {
+          this.lockRead();
           try {
-               long seconds = this.getTotalTime(user) / 1000;
-               long minutes = seconds / 60;
-               //if less than 60, the seconds should stay the same
-               seconds %= 60;
-               long hours = minutes / 60;
-               //similar as above
-               minutes %= 60;
-               long days = hours / 24;
-               hours %= 24;
-               return days + " days, " + hours + " hours, " + minutes + " minutes, " + seconds + " seconds";
-          } catch (IllegalArgumentException e) {
-               throw new IllegalArgumentException("Invalid username");
-          } catch (NoSuchElementException e) {
-               throw new NoSuchElementException("The given user does not have a login record.");
+               ConcurrencyAnalyzer analyzer = new ConcurrencyAnalyzer(users, listener);
+               for (Record r : this) {
+                    analyzer.accept(r);
+               }
+               analyzer.flush();
+               return analyzer;
+          } finally {
+               this.unlockRead();
+          }
+     }
+
+     /**
+      * Returns the users with the largest login time between two times, adding up the
+      * sessions of all users in one pass over the records
+      * @param k The largest number of users to return
+      * @param from The start of the window in milliseconds since the epoch
+      * @param to The end of the window in milliseconds since the epoch
+      * @return at most k users with a positive total in the window, the largest total first
+      * @throws IllegalArgumentException if k is not positive or from is after to
+      */
+     public List<UserTotal> topUsers(int k, long from, long to) throws IllegalArgumentException {
+          if (k <= 0)
+               throw new IllegalArgumentException("Invalid count: " + k);
+          UserTotals totals = new UserTotals(users, from, to);
+          this.lockRead();
+          try {
+               for (Record r : this) {
+                    totals.accept(r);
+               }
+          } finally {
+               this.unlockRead();
+          }
+          return totals.top(k);
+     }
+
+     /**
+      * Returns the sessions of a specific user from the session table
+      * The whole table is built with one pass over the list if it does not exist yet,
+      * otherwise only the sessions of a user whose records changed are rebuilt
+      * @param id The id of the user whose sessions are to be accessed, -1 for an unknown user
+      * @return the sessions of the user in order, an empty list if there are none
+      */
+     private ArrayList<Session> sessionsOf(int id) {
+          if (id < 0) {
+               return new ArrayList<>();
+          }
+          synchronized (tableLock) {
+               if (sessionTable == null) {
+                    sessionTable = this.pairSessions(this);
+               }
+               ArrayList<Session> sessions = id < sessionTable.size() ? sessionTable.get(id) : null;
+               if (sessions == null) {
+                    ArrayList<ArrayList<Session>> paired = this.pairSessions(this.recordsOf(id));
+                    sessions = id < paired.size() && paired.get(id) != null ? paired.get(id) : new ArrayList<>();
+                    set(sessionTable, id, sessions);
+               }
+               return sessions;
+          }
+     }
+
+     /**
+      * Returns the total and the sorted sessions of a specific user from the cache,
+      * computing and caching them if they are not there
+      * @param id The id of the user whose sessions are to be accessed, -1 for an unknown user
+      * @return the cached answers for the user, with no sessions if there are none
+      */
+     private UserCache.Entry cachedOf(int id) {
+          if (id < 0) {
+               return new UserCache.Entry(new ArrayList<>(), 0);
+          }
+          UserCache.Entry entry = cache.get(id);
+          if (entry == null) {
+               SortedLinkedList<Session> sll = new SortedLinkedList<>();
+               sll.addAll(this.sessionsOf(id));
+               ArrayList<Session> sessions = new ArrayList<>(sll.size());
+               long total = 0;
+               for (Session s : sll) {
+                    sessions.add(s);
+                    if (s.getDuration() > 0) {
+                         total += s.getDuration();
+                    }
+               }
+               entry = new UserCache.Entry(sessions, total);
+               cache.put(id, entry);
+          }
+          return entry;
+     }
+
+     /**
+      * Returns the number of changes made to the list, which a snapshot gives as its version
+      * It is read under the lock of a concurrent list, so a change made by another thread is seen
+      * @return the number of changes so far
+      */
+     int getVersion() {
+          this.lockRead();
+          try {
+               return modCount;
+          } finally {
+               this.unlockRead();
+          }
+     }
+
+     /**
+      * Takes an immutable snapshot of the sessions of every user, which can be queried by
+      * other threads while the list changes
+      * Only the sessions of users whose records changed since they were last paired are paired again
+      * @return the snapshot of the sessions
+      */
+     QuerySnapshot snapshot() {
+          this.lockRead();
+          try {
+               int count = users.size();
+               ArrayList<ArrayList<Session>> table = new ArrayList<>(count);
+               for (int id = 0; id < count; id++) {
+                    table.add(this.sessionsOf(id));
+               }
+               return new QuerySnapshot(users, table, modCount);
+          } finally {
+               this.unlockRead();
+          }
+     }
+
+     /**
+      * Returns the sessions of a specific user if they are already in the session table
+      * @param id The id of the user whose sessions are to be accessed, -1 for an unknown user
+      * @return the sessions of the user in order, null if they have not been paired
+      */
+     private ArrayList<Session> pairedSessionsOf(int id) {
+          if (id < 0) {
+               return new ArrayList<>();
+          }
+          synchronized (tableLock) {
+               if (sessionTable == null) {
+                    return null;
+               }
+               return id < sessionTable.size() ? sessionTable.get(id) : null;
+          }
+     }
+
+     /**
+      * Builds the session starting with the given login, using the same rule as SessionTracker:
+      * the session ends at the first later logout of the same user on the same terminal
+      * @param login The login record
+      * @param itr An iterator over the user's records positioned right after the login
+      * @return the session of the login, active if there is no such logout
+      */
+     private static Session sessionFrom(Record login, ListIterator<Record> itr) {
+          while (itr.hasNext()) {
+               Record r = itr.next();
+               if (r.isLogout() && r.getTerminal() == login.getTerminal() && r.getTime().getTime() > login.getTime().getTime()) {
+                    return new Session(login, r);
+               }
+          }
+          return new Session(login, null);
+     }
+
+     /**
+      * Pairs the records of one user into sessions as they are asked for, in the order of getAllSessions:
+      * logins in time order, and logins made at the same time in the reverse order of the list
+      * The records of each time are read together, and the logout of each of their logins is
+      * searched for from the first record of a later time
+      */
+     private class SessionIterator implements Iterator<Session> {
+          private final SortedLinkedList<Record> records;
+          private final ListIterator<Record> itr;
+          //logins of the last time read, in list order, the next one to return last
+          private final ArrayList<Record> run = new ArrayList<>();
+          //index in the records of the first record of a later time, and the number of changes
+          //to the records it was found at, as records added or removed by another thread move it
+          private int runEnd;
+          private int runVersion;
+          private long runTime;
+
+          SessionIterator(SortedLinkedList<Record> records) {
+               this.records = records;
+               this.itr = records.listIterator();
+          }
+
+          @Override
+          public boolean hasNext() {
+               lockRead();
+               try {
+                    return this.fill();
+               } finally {
+                    unlockRead();
+               }
+          }
+
+          @Override
+          public Session next() throws NoSuchElementException {
+               lockRead();
+               try {
+                    if (!this.fill())
+                         throw new NoSuchElementException("No more sessions");
+                    Record login = run.remove(run.size() - 1);
+                    if (records.modCount != runVersion) {
+                         runEnd = firstAfter(records, runTime);
+                         runVersion = records.modCount;
+                    }
+                    return sessionFrom(login, records.listIterator(runEnd));
+               } finally {
+                    unlockRead();
+               }
+          }
+
+          /**
+           * Reads the records of the next times until some of them are logins
+           * @return false if there are no logins left
+           */
+          private boolean fill() {
+               while (run.isEmpty() && itr.hasNext()) {
+                    Record first = itr.next();
+                    long time = first.getTime().getTime();
+                    if (first.isLogin()) {
+                         run.add(first);
+                    }
+                    while (itr.hasNext()) {
+                         Record r = itr.next();
+                         if (r.getTime().getTime() != time) {
+                              itr.previous();
+                              break;
+                         }
+                         if (r.isLogin()) {
+                              run.add(r);
+                         }
+                    }
+                    runEnd = itr.nextIndex();
+                    runVersion = records.modCount;
+                    runTime = time;
+               }
+               return !run.isEmpty();
+          }
+     }
+
+     /**
+      * Finds the first of a user's records that is later than a time
+      * @param records The records of the user in the order of the list
+      * @param time The time in milliseconds since the epoch
+      * @return the index of the first record after the time, the number of records if there is none
+      */
+     private static int firstAfter(SortedLinkedList<Record> records, long time) {
+          int low = 0;
+          int high = records.size();
+          while (low < high) {
+               int mid = (low + high) >>> 1;
+               if (records.get(mid).getTime().getTime() > time) {
+                    high = mid;
+               } else {
+                    low = mid + 1;
+               }
+          }
+          return low;
+     }
+
+     /**
+      * Pairs time ordered records into the sessions of every user they belong to
+      * @param records The records in the order of the list
+      * @return the sessions of each user by user id, in the order of their logins in the list
+      */
+     private ArrayList<ArrayList<Session>> pairSessions(Iterable<Record> records) {
+          //one slot per login, so the sessions can be read back in the order of their logins
+          ArrayList<Session> slots = new ArrayList<>();
+          ArrayList<Record> logins = new ArrayList<>();
+          SessionTracker tracker = new SessionTracker((s, n) -> slots.set((int) n, s));
+          for (Record r : records) {
+               if (r.isLogin()) {
+                    slots.add(null);
+                    logins.add(r);
+               }
+               tracker.accept(r);
+          }
+          tracker.finish();
+          ArrayList<ArrayList<Session>> table = new ArrayList<>();
+          for (int i = 0; i < slots.size(); i++) {
+               int id = users.idOf(logins.get(i));
+               if (id >= 0) {
+                    if (id >= table.size() || table.get(id) == null) {
+                         set(table, id, new ArrayList<>());
+                    }
+                    table.get(id).add(slots.get(i));
+               }
+          }
+          return table;
+     }
+
+     /**
+      * Drops the sessions of a user from the session table and the cache after their records changed
+      * @param id The id of the user whose records changed
+      */
+     private void invalidate(int id) {
+          cache.invalidate(id);
+          if (sessionTable != null && id < sessionTable.size()) {
+               sessionTable.set(id, null);
+          }
+     }
+
+     /**
+      * Returns the records of a specific user in the order of the list
+      * @param id The id of the user whose records are to be accessed, -1 for an unknown user
+      * @return the records of the user, an empty list if there are none
+      */
+     private SortedLinkedList<Record> recordsOf(int id) {
+          SortedLinkedList<Record> records = id >= 0 && id < userRecords.size() ? userRecords.get(id) : null;
+          return records == null ? new SortedLinkedList<>() : records;
+     }
+
+     /**
+      * Returns the records of a specific user, creating the list if the user has none yet
+      * @param id The id of the user
+      * @return the records of the user
+      */
+     private SortedLinkedList<Record> userRecordsOf(int id) {
+          SortedLinkedList<Record> records = id < userRecords.size() ? userRecords.get(id) : null;
+          if (records == null) {
+               records = new SortedLinkedList<>();
+               set(userRecords, id, records);
+          }
+          return records;
+     }
+
+     /**
+      * Sets the element at an index of a table by user id, growing the table with nulls if needed
+      */
+     private static <T> void set(ArrayList<T> table, int id, T value) {
+          while (table.size() <= id) {
+               table.add(null);
           }
+          table.set(id, value);
      }
 
 }
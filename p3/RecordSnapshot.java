@@ -0,0 +1,269 @@
+package project3;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * The RecordSnapshot class saves a RecordList to a compact binary file and loads it back
+ * Loading a snapshot does not parse any text or compare any records, because the records
+ * are stored in the order of the list and are linked into a new list in that order
+ *
+ * The file starts with the magic number, the version, the number of records and the
+ * usernames of the list's dictionary in order of their ids, so the loaded list gives every
+ * user the same id and lists sessions with equal times in the same order as the saved one
+ * Each record is then three unsigned varints:
+ * the difference between its time and the time of the previous record (zigzag encoded),
+ * the terminal shifted left by one with the login flag in the low bit, and the user id
+ *
+ * @author Thales Gao
+ */
+public class RecordSnapshot {
+     private static final int MAGIC = 0x4c53534e;
+     private static final byte VERSION = 1;
+     private static final int BUFFER_SIZE = 1 << 16;
+     //larger snapshots are read through a buffer instead of a single mapping
+     private static final long MAX_MAPPED = Integer.MAX_VALUE;
+
+     private Path file;
+
+     /**
+      * Constructor initializes a snapshot stored in the given file
+      * @param file The path of the snapshot file
+      * @throws IllegalArgumentException if the path is null
+      */
+     public RecordSnapshot(Path file) throws IllegalArgumentException {
+          if (file == null)
+               throw new IllegalArgumentException("File cannot be null");
+          this.file = file;
+     }
+
+     /**
+      * Writes all records of a list to the snapshot file, replacing its content
+      * @param list The list to save
+      * @throws IOException if the file cannot be written
+      */
+     public void write(RecordList list) throws IOException {
+          UserDictionary users = list.getUserDictionary();
+          int[] userIds = new int[list.size()];
+          int i = 0;
+          for (Record r : list) {
+               userIds[i++] = users.idOf(r);
+          }
+          //taken after the ids, since a record from another dictionary gets its id now
+          int userCount = users.size();
+
+          try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+               Output out = new Output(channel);
+               out.buffer.putInt(MAGIC);
+               out.buffer.put(VERSION);
+               out.putVarint(list.size());
+               out.putVarint(userCount);
+               for (int id = 0; id < userCount; id++) {
+                    byte[] name = users.name(id).getBytes(StandardCharsets.UTF_8);
+                    out.putVarint(name.length);
+                    out.put(name);
+               }
+               long previous = 0;
+               i = 0;
+               for (Record r : list) {
+                    long time = r.getTime().getTime();
+                    long delta = time - previous;
+                    out.putVarint((delta << 1) ^ (delta >> 63));
+                    out.putVarint(((long) r.getTerminal() << 1) | (r.isLogin() ? 1 : 0));
+                    out.putVarint(userIds[i++]);
+                    previous = time;
+               }
+               out.flush();
+          }
+     }
+
+     /**
+      * Reads the snapshot file into a new list
+      * The file is memory-mapped when it fits in a single mapping
+      * @return the list of all records in the snapshot, in the order they were saved
+      * @throws IOException if the file cannot be read or is not a valid snapshot
+      */
+     public RecordList read() throws IOException {
+          return this.read(Files.size(file) <= MAX_MAPPED);
+     }
+
+     /**
+      * Reads the snapshot file into a new list, through a mapping of the whole file or through a buffer
+      * @param mapped true to map the file, which must then fit in a single mapping
+      * @return the list of all records in the snapshot, in the order they were saved
+      * @throws IOException if the file cannot be read or is not a valid snapshot
+      */
+     RecordList read(boolean mapped) throws IOException {
+          try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+               Input in;
+               if (mapped) {
+                    in = new Input(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), null);
+               } else {
+                    in = new Input(ByteBuffer.allocate(BUFFER_SIZE).flip(), channel);
+               }
+               return this.read(in, channel.size());
+          }
+     }
+
+     private RecordList read(Input in, long length) throws IOException {
+          in.ensure(5);
+          if (in.buffer.remaining() < 5 || in.buffer.getInt() != MAGIC)
+               throw new IOException(file + " is not a snapshot file");
+          byte version = in.buffer.get();
+          if (version != VERSION)
+               throw new IOException("Unsupported snapshot version " + version + " in " + file);
+          int count = in.getCount();
+          int userCount = in.getCount();
+          //every record and every name takes at least one byte per field
+          if (count > length / 3 || userCount > length)
+               throw new IOException("Corrupt snapshot " + file);
+
+          RecordList list = new RecordList();
+          UserDictionary users = list.getUserDictionary();
+          String[] names = new String[userCount];
+          int[] ids = new int[userCount];
+          for (int u = 0; u < userCount; u++) {
+               names[u] = new String(in.get(in.getCount()), StandardCharsets.UTF_8);
+               ids[u] = users.intern(names[u]);
+          }
+
+          Record[] records = new Record[count];
+          long time = 0;
+          for (int i = 0; i < count; i++) {
+               long delta = in.getVarint();
+               time += (delta >>> 1) ^ -(delta & 1);
+               long terminal = in.getVarint();
+               long user = in.getVarint();
+               if (terminal >>> 1 > Integer.MAX_VALUE || user >= userCount)
+                    throw new IOException("Corrupt record " + i + " in " + file);
+               try {
+                    records[i] = new Record((int) (terminal >>> 1), (terminal & 1) == 1, names[(int) user], ids[(int) user], new Date(time));
+               } catch (IllegalArgumentException e) {
+                    throw new IOException("Corrupt record " + i + " in " + file, e);
+               }
+          }
+          //the records are already in list order, so they are linked without comparing them
+          list.addSorted(Arrays.asList(records));
+          return list;
+     }
+
+     /* Buffered writer of bytes and varints to a channel */
+     private static class Output {
+          private final FileChannel channel;
+          private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+          Output(FileChannel channel) {
+               this.channel = channel;
+          }
+
+          void putVarint(long value) throws IOException {
+               if (buffer.remaining() < 10) {
+                    this.flush();
+               }
+               while ((value & ~0x7fL) != 0) {
+                    buffer.put((byte) ((value & 0x7f) | 0x80));
+                    value >>>= 7;
+               }
+               buffer.put((byte) value);
+          }
+
+          void put(byte[] bytes) throws IOException {
+               int offset = 0;
+               while (offset < bytes.length) {
+                    if (!buffer.hasRemaining()) {
+                         this.flush();
+                    }
+                    int length = Math.min(buffer.remaining(), bytes.length - offset);
+                    buffer.put(bytes, offset, length);
+                    offset += length;
+               }
+          }
+
+          void flush() throws IOException {
+               buffer.flip();
+               while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+               }
+               buffer.clear();
+          }
+     }
+
+     /* Reader of bytes and varints from a mapped buffer, or from a channel through a buffer */
+     private class Input {
+          private ByteBuffer buffer;
+          //null when the whole file is mapped in the buffer
+          private final FileChannel channel;
+
+          Input(ByteBuffer buffer, FileChannel channel) {
+               this.buffer = buffer;
+               this.channel = channel;
+          }
+
+          /**
+           * Makes at least n bytes available in the buffer, or all that are left in the file
+           */
+          void ensure(int n) throws IOException {
+               if (channel == null || buffer.remaining() >= n) {
+                    return;
+               }
+               if (buffer.capacity() < n) {
+                    buffer = ByteBuffer.allocate(n).put(buffer);
+               } else {
+                    buffer.compact();
+               }
+               while (buffer.position() < n && channel.read(buffer) >= 0) {
+               }
+               buffer.flip();
+          }
+
+          /**
+           * Returns the number of bytes not read yet, in the buffer and in the rest of the file
+           */
+          long left() throws IOException {
+               return buffer.remaining() + (channel == null ? 0 : channel.size() - channel.position());
+          }
+
+          long getVarint() throws IOException {
+               this.ensure(10);
+               long value = 0;
+               for (int shift = 0; shift < 64; shift += 7) {
+                    if (!buffer.hasRemaining())
+                         throw new EOFException("Truncated snapshot " + file);
+                    byte b = buffer.get();
+                    value |= (long) (b & 0x7f) << shift;
+                    if (b >= 0) {
+                         return value;
+                    }
+               }
+               throw new IOException("Corrupt varint in " + file);
+          }
+
+          int getCount() throws IOException {
+               long count = this.getVarint();
+               if (count > Integer.MAX_VALUE)
+                    throw new IOException("Corrupt snapshot " + file);
+               return (int) count;
+          }
+
+          byte[] get(int length) throws IOException {
+               //a length past the end of the file is corrupt, and must not size a buffer
+               if (length > this.left())
+                    throw new EOFException("Truncated snapshot " + file);
+               this.ensure(length);
+               if (buffer.remaining() < length)
+                    throw new EOFException("Truncated snapshot " + file);
+               byte[] bytes = new byte[length];
+               buffer.get(bytes);
+               return bytes;
+          }
+     }
+}
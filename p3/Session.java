@@ -1,5 +1,7 @@
 package project3;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Date;
 
 /**
@@ -47,6 +49,7 @@ import java.util.Date;
                          throw new IllegalArgumentException ("Login terminal does not match logout terminal");
                     }
                }
+               Metrics.sessionBuilt();
           }
      }
 
@@ -102,16 +105,14 @@ import java.util.Date;
       * @return a string representation of days, hours, and seconds
       */
      public String durationStr() {
-          long seconds = duration / 1000;
-          long minutes = seconds / 60;
-          //if less than 60, the seconds should stay the same
-          seconds %= 60;
-          long hours = minutes / 60;
-          //similar as above
-          minutes %= 60;
-          long days = hours / 24;
-          hours %= 24;
-          return days + " days, " + hours + " hours, " + minutes + " minutes, " + seconds + " seconds";
+          StringBuilder out = new StringBuilder(48);
+          try {
+               TextFormat.appendDuration(out, duration);
+          } catch (IOException e) {
+               //a StringBuilder is never the cause
+               throw new UncheckedIOException(e);
+          }
+          return out.toString();
      }
 
     /**
@@ -132,9 +133,38 @@ import java.util.Date;
       */
      @Override
      public String toString() {
-          if (logout == null)
-               return this.getUsername() + ", terminal " + this.getTerminal() + ", duration " + "active session" + "\n logged in: " + this.getLoginTime().toString() + "\n logged out: " + "still logged in";
-          return this.getUsername() + ", terminal " + this.getTerminal() + ", duration " + this.durationStr() + "\n logged in: " + this.getLoginTime().toString() + "\n logged out: " + this.getLogoutTime().toString();
+          StringBuilder out = new StringBuilder(160);
+          try {
+               this.writeTo(out);
+          } catch (IOException e) {
+               //a StringBuilder is never the cause
+               throw new UncheckedIOException(e);
+          }
+          return out.toString();
+     }
+
+     /**
+      * Writes the same text as toString, without building Strings for its parts
+      * @param out Where the text goes
+      * @throws IOException if out cannot be written
+      */
+     public void writeTo(Appendable out) throws IOException {
+          out.append(this.getUsername()).append(", terminal ");
+          TextFormat.appendLong(out, this.getTerminal());
+          out.append(", duration ");
+          if (logout == null) {
+               out.append("active session");
+          } else {
+               TextFormat.appendDuration(out, duration);
+          }
+          out.append("\n logged in: ");
+          TextFormat.appendDate(out, login.getTime().getTime());
+          out.append("\n logged out: ");
+          if (logout == null) {
+               out.append("still logged in");
+          } else {
+               TextFormat.appendDate(out, logout.getTime().getTime());
+          }
      }
 
     /**
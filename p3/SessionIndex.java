@@ -0,0 +1,141 @@
+package project3;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * The SessionIndex class answers time range queries over the sessions of all users
+ * The sessions are sorted by login time and kept in an implicit balanced search tree
+ * in which every node also stores the latest logout time of its subtree, so that
+ * whole subtrees of sessions that ended too early are skipped
+ * Finding the k sessions that overlap a time range takes O(log n + k) time in practice
+ * A session lasts from its login time up to, but not including, its logout time,
+ * and an active session has no end
+ *
+ * @author Thales Gao
+ */
+public class SessionIndex {
+     private final Session[] sessions;
+     private final long[] starts;
+     private final long[] ends;
+     //latest end in the subtree whose root is at each index
+     private final long[] maxEnds;
+     //indexes of the sessions of each terminal, built when first needed
+     private HashMap<Integer, SessionIndex> terminals;
+
+     /**
+      * Constructor builds the index of the given sessions
+      * @param sessions The sessions to index
+      * @throws IllegalArgumentException if the collection or one of the sessions is null
+      */
+     public SessionIndex(Collection<Session> sessions) throws IllegalArgumentException {
+          if (sessions == null || sessions.contains(null))
+               throw new IllegalArgumentException("Sessions cannot be null");
+          this.sessions = sessions.toArray(new Session[0]);
+          //the sort is stable, so sessions with the same login time keep their order
+          Arrays.sort(this.sessions, Comparator.comparingLong(s -> s.getLoginTime().getTime()));
+          int n = this.sessions.length;
+          starts = new long[n];
+          ends = new long[n];
+          maxEnds = new long[n];
+          for (int i = 0; i < n; i++) {
+               Session s = this.sessions[i];
+               starts[i] = s.getLoginTime().getTime();
+               ends[i] = s.getLogoutTime() == null ? Long.MAX_VALUE : s.getLogoutTime().getTime();
+          }
+          this.buildMaxEnds(0, n);
+     }
+
+     /**
+      * Returns the number of sessions in the index
+      * @return the number of sessions
+      */
+     public int size() {
+          return sessions.length;
+     }
+
+     /**
+      * Returns the sessions that were active at the given time
+      * @param time The time in milliseconds since the epoch
+      * @return the sessions that started at or before the time and had not ended, in order of login time
+      */
+     public List<Session> at(long time) {
+          return this.during(time, time);
+     }
+
+     /**
+      * Returns the sessions that were active at some time between the given times
+      * @param from The start of the range in milliseconds since the epoch
+      * @param to The end of the range in milliseconds since the epoch, included
+      * @return the sessions that overlap the range, in order of login time
+      * @throws IllegalArgumentException if from is after to
+      */
+     public List<Session> during(long from, long to) throws IllegalArgumentException {
+          if (from > to)
+               throw new IllegalArgumentException("The range ends before it starts");
+          ArrayList<Session> found = new ArrayList<>();
+          this.collect(0, sessions.length, from, to, found);
+          return found;
+     }
+
+     /**
+      * Returns the index of the sessions of a single terminal
+      * @param terminal The terminal number
+      * @return the index of the sessions of the terminal, empty if there are none
+      */
+     public synchronized SessionIndex terminal(int terminal) {
+          if (terminals == null) {
+               HashMap<Integer, ArrayList<Session>> groups = new HashMap<>();
+               for (Session s : sessions) {
+                    groups.computeIfAbsent(s.getTerminal(), k -> new ArrayList<>()).add(s);
+               }
+               terminals = new HashMap<>();
+               for (Integer t : groups.keySet()) {
+                    terminals.put(t, new SessionIndex(groups.get(t)));
+               }
+          }
+          SessionIndex index = terminals.get(terminal);
+          return index == null ? new SessionIndex(new ArrayList<>()) : index;
+     }
+
+     /**
+      * Stores the latest end of the subtree of each index, the root of a range being its middle
+      * @return the latest end in the range, Long.MIN_VALUE if it is empty
+      */
+     private long buildMaxEnds(int lo, int hi) {
+          if (lo >= hi) {
+               return Long.MIN_VALUE;
+          }
+          int mid = (lo + hi) >>> 1;
+          long max = Math.max(ends[mid], Math.max(this.buildMaxEnds(lo, mid), this.buildMaxEnds(mid + 1, hi)));
+          maxEnds[mid] = max;
+          return max;
+     }
+
+     /**
+      * Adds the sessions of a range that overlap [from, to] to the list, in order of login time
+      */
+     private void collect(int lo, int hi, long from, long to, List<Session> found) {
+          if (lo >= hi) {
+               return;
+          }
+          int mid = (lo + hi) >>> 1;
+          //every session of the subtree ended at or before from
+          if (maxEnds[mid] <= from) {
+               return;
+          }
+          this.collect(lo, mid, from, to, found);
+          //the sessions from mid on started after to
+          if (starts[mid] > to) {
+               return;
+          }
+          if (ends[mid] > from) {
+               found.add(sessions[mid]);
+          }
+          this.collect(mid + 1, hi, from, to, found);
+     }
+}
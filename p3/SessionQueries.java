@@ -0,0 +1,134 @@
+package project3;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The SessionQueries interface lists the per-user session queries answered by LoginStats
+ * It is implemented by every kind of record store the program can load a log into
+ * All of them pair records into sessions like SessionTracker, so a logout in the same
+ * millisecond as a login does not end it
+ *
+ * @author Thales Gao
+ */
+public interface SessionQueries {
+
+     /**
+      * Returns the first login session of a specific user
+      * i.e. earliest login time
+      * @param user The user whose information is to be accessed
+      * @return the first login session of a specific user
+      * @throws NoSuchElementException where the specific user does not match any record
+      * @throws IllegalArgumentException when the argument string is invalid
+      */
+     Session getFirstSession(String user) throws NoSuchElementException, IllegalArgumentException;
+
+     /**
+      * Returns the last logout session of a specific user
+      * i.e. latest logout time
+      * @param user The user whose information is to be accessed
+      * @return the last logout session of a specific user
+      * @throws NoSuchElementException where the specific user does not match any record
+      * @throws IllegalArgumentException when the argument string is invalid
+      */
+     Session getLastSession(String user) throws NoSuchElementException, IllegalArgumentException;
+
+     /**
+      * Provides the total login time of a specified user
+      * @param user The user whose information is to be accessed
+      * @return the total duration of the user
+      * @throws NoSuchElementException where the specific user does not match any record
+      * @throws IllegalArgumentException when the argument string is invalid
+      */
+     long getTotalTime(String user) throws NoSuchElementException, IllegalArgumentException;
+
+     /**
+      * Generate a sorted linked list of all the session of a given user
+      * @param user The user whose information is to be accessed
+      * @return A sorted linked list of all the sessions of the user
+      * @throws NoSuchElementException where the specific user does not match any record
+      * @throws IllegalArgumentException when the argument string is invalid
+      */
+     SortedLinkedList<Session> getAllSessions(String user) throws NoSuchElementException, IllegalArgumentException;
+
+     /**
+      * Returns the sessions of a given user in the order of getAllSessions, for callers that may not
+      * need all of them; a store may pair the sessions only as the iteration reaches them
+      * By default it is the list returned by getAllSessions
+      * @param user The user whose information is to be accessed
+      * @return the sessions of the user
+      * @throws NoSuchElementException where the specific user does not match any record
+      * @throws IllegalArgumentException when the argument string is invalid
+      */
+     default Iterable<Session> iterateSessions(String user) throws NoSuchElementException, IllegalArgumentException {
+          return this.getAllSessions(user);
+     }
+
+     /**
+      * Returns a sequential stream of the sessions of a given user, in the order of getAllSessions
+      * The sessions are taken from iterateSessions as the stream needs them
+      * @param user The user whose information is to be accessed
+      * @return the stream of the sessions of the user
+      * @throws NoSuchElementException where the specific user does not match any record
+      * @throws IllegalArgumentException when the argument string is invalid
+      */
+     default Stream<Session> streamSessions(String user) throws NoSuchElementException, IllegalArgumentException {
+          return StreamSupport.stream(this.iterateSessions(user).spliterator(), false);
+     }
+
+     /**
+      * Returns the index of the sessions of all users by time
+      * @return the index of all sessions as they are now
+      */
+     SessionIndex getSessionIndex();
+
+     /**
+      * Measures the number of sessions open at the same time over the whole log
+      * @param listener The listener receiving every change of the number of open sessions, or null
+      * @return the analyzer holding the peaks and the time spent at each number of open sessions
+      */
+     ConcurrencyAnalyzer analyzeConcurrency(ConcurrencyAnalyzer.Listener listener);
+
+     /**
+      * Returns the users with the largest total login time
+      * @param k The largest number of users to return
+      * @return at most k users with a positive total, the largest total first
+      * @throws IllegalArgumentException if k is not positive
+      */
+     default List<UserTotal> topUsers(int k) throws IllegalArgumentException {
+          return this.topUsers(k, Long.MIN_VALUE, Long.MAX_VALUE);
+     }
+
+     /**
+      * Returns the users with the largest login time between two times
+      * Only the part of each completed session between the times is counted
+      * @param k The largest number of users to return
+      * @param from The start of the window in milliseconds since the epoch
+      * @param to The end of the window in milliseconds since the epoch
+      * @return at most k users with a positive total in the window, the largest total first
+      * @throws IllegalArgumentException if k is not positive or from is after to
+      */
+     List<UserTotal> topUsers(int k, long from, long to) throws IllegalArgumentException;
+
+     /**
+      * Provides the total login time of a specified user as a formatted string
+      * @param user The user whose information is to be accessed
+      * @return A formatted string of the total duration
+      * @throws NoSuchElementException where the specific user does not match any record
+      * @throws IllegalArgumentException when the argument string is invalid
+      */
+     default String getTotalTimeString(String user) throws NoSuchElementException, IllegalArgumentException {
+          long seconds = this.getTotalTime(user) / 1000;
+          long minutes = seconds / 60;
+          //if less than 60, the seconds should stay the same
+          seconds %= 60;
+          long hours = minutes / 60;
+          //similar as above
+          minutes %= 60;
+          long days = hours / 24;
+          hours %= 24;
+          return days + " days, " + hours + " hours, " + minutes + " minutes, " + seconds + " seconds";
+     }
+}
@@ -0,0 +1,99 @@
+package project3;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The SessionStream class reads a log that is in time order once, from start to end, without
+ * keeping its records
+ * The records are paired by a SessionTracker, which only holds the logins that are still open,
+ * and every session is passed to the session sinks as soon as it is complete; the sessions still
+ * open at the end of the log are passed as active sessions
+ * Record sinks receive the fields of every record in the order of the log
+ * The memory used grows with the number of open sessions and with what the sinks keep,
+ * not with the size of the log
+ *
+ * @author Thales Gao
+ */
+public class SessionStream {
+     private LogParser parser;
+     private ArrayList<SessionTracker.Sink> sinks = new ArrayList<>();
+     private ArrayList<LogParser.FieldSink> recordSinks = new ArrayList<>();
+     private long count;
+     private long lastTime = Long.MIN_VALUE;
+
+     /**
+      * Constructor initializes a stream over the given log
+      * @param file The path of the log file
+      * @param users The dictionary the usernames are given ids in
+      * @throws IllegalArgumentException if the path or the dictionary is null
+      */
+     public SessionStream(Path file, UserDictionary users) throws IllegalArgumentException {
+          this.parser = new LogParser(file, users);
+     }
+
+     /**
+      * Adds a sink receiving every session
+      * @param sink The sink
+      * @throws IllegalArgumentException if the sink is null
+      */
+     public void addSink(SessionTracker.Sink sink) throws IllegalArgumentException {
+          if (sink == null)
+               throw new IllegalArgumentException("Sink cannot be null");
+          sinks.add(sink);
+     }
+
+     /**
+      * Adds a sink receiving the fields of every record
+      * @param sink The sink
+      * @throws IllegalArgumentException if the sink is null
+      */
+     public void addRecordSink(LogParser.FieldSink sink) throws IllegalArgumentException {
+          if (sink == null)
+               throw new IllegalArgumentException("Sink cannot be null");
+          recordSinks.add(sink);
+     }
+
+     /**
+      * Reads the whole log, passing the records and sessions to the sinks
+      * @return the number of records read
+      * @throws IOException if the file cannot be read or a sink cannot write
+      * @throws IllegalStateException if a record is earlier than the one before it
+      */
+     public long run() throws IOException, IllegalStateException {
+          SessionTracker tracker = new SessionTracker((s, n) -> {
+               for (SessionTracker.Sink sink : sinks) {
+                    sink.accept(s, n);
+               }
+          });
+          try {
+               parser.parse(r -> {
+                    long time = r.getTime().getTime();
+                    if (time < lastTime)
+                         throw new IllegalStateException("The log is not in time order: a record at " + time + " follows one at " + lastTime);
+                    lastTime = time;
+                    count++;
+                    for (LogParser.FieldSink sink : recordSinks) {
+                         sink.accept(r.getTerminal(), r.isLogin(), r.getUserId(), r.getUsername(), time);
+                    }
+                    tracker.accept(r);
+               });
+               tracker.finish();
+          } catch (UncheckedIOException e) {
+               //a sink could not write its output
+               throw e.getCause();
+          }
+          return count;
+     }
+
+     /**
+      * Returns the byte offsets of the lines that could not be parsed
+      * @return the offsets of the malformed lines, in file order
+      */
+     public List<Long> getMalformedOffsets() {
+          return parser.getMalformedOffsets();
+     }
+}
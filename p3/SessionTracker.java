@@ -0,0 +1,143 @@
+package project3;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+/**
+ * The SessionTracker class pairs login and logout records into sessions in a single pass
+ * The records are given to it in the order of a RecordList, i.e. by time,
+ * and it keeps track of the logins that are still open for each user and terminal
+ * A logout closes every open login of the same user on the same terminal,
+ * which matches the first logout that follows each of those logins
+ * A logout in the same millisecond as a login does not close it, the login stays open
+ * until a later logout, or is reported as an active session if there is none
+ * The original pairing failed on such a logout instead, so the queries answered with an
+ * error for the user, where they now list the session
+ * Every session is passed to a sink as soon as it is complete, together with
+ * the number of logins that came before its own login
+ *
+ * @author Thales Gao
+ */
+public class SessionTracker {
+     //open logins for each user and terminal
+     private LinkedHashMap<Key, ArrayList<Open>> open = new LinkedHashMap<>();
+     private Sink sink;
+     private int openCount;
+     private long loginCount;
+
+     /**
+      * Receives the sessions built by a SessionTracker
+      */
+     public interface Sink {
+          /**
+           * Called once for every session
+           * @param session The completed or still active session
+           * @param loginNumber The number of logins given to the tracker before the login of this session
+           */
+          void accept(Session session, long loginNumber);
+     }
+
+     /**
+      * Constructor initializes a tracker with no open sessions
+      * @param sink The sink receiving every session built by this tracker
+      * @throws IllegalArgumentException if the sink is null
+      */
+     public SessionTracker(Sink sink) throws IllegalArgumentException {
+          if (sink == null)
+               throw new IllegalArgumentException("Sink cannot be null");
+          this.sink = sink;
+     }
+
+     /**
+      * Processes the next record
+      * A login opens a session, a logout completes the open sessions of the same user and terminal
+      * @param r The next record in time order
+      */
+     public void accept(Record r) {
+          if (r == null) {
+               return;
+          }
+          Key key = new Key(r.getUsername(), r.getTerminal());
+          if (r.isLogin()) {
+               open.computeIfAbsent(key, k -> new ArrayList<>(1)).add(new Open(r, loginCount++));
+               openCount++;
+               return;
+          }
+          ArrayList<Open> logins = open.get(key);
+          if (logins == null) {
+               return;
+          }
+          //the logins are in time order, so the ones the logout ends come first;
+          //a logout in the same millisecond as the login cannot end it,
+          //the login stays open until a later logout
+          int closed = 0;
+          while (closed < logins.size() && logins.get(closed).record.getTime().getTime() < r.getTime().getTime()) {
+               Open login = logins.get(closed);
+               sink.accept(new Session(login.record, r), login.number);
+               closed++;
+          }
+          logins.subList(0, closed).clear();
+          openCount -= closed;
+          if (logins.isEmpty()) {
+               open.remove(key);
+          }
+     }
+
+     /**
+      * Returns the number of logins that have not been matched with a logout yet
+      * @return the number of open sessions
+      */
+     public int getOpenCount() {
+          return openCount;
+     }
+
+     /**
+      * Passes every session that is still open to the sink as an active session
+      * (without a logout) and forgets about them
+      */
+     public void finish() {
+          for (ArrayList<Open> logins : open.values()) {
+               for (Open login : logins) {
+                    sink.accept(new Session(login.record, null), login.number);
+               }
+          }
+          open.clear();
+          openCount = 0;
+     }
+
+     /* An open login with its number among all logins. */
+     private static class Open {
+          private final Record record;
+          private final long number;
+
+          Open(Record record, long number) {
+               this.record = record;
+               this.number = number;
+          }
+     }
+
+     /* Key identifying a user on a terminal. */
+     private static class Key {
+          private final String user;
+          private final int terminal;
+
+          Key(String user, int terminal) {
+               this.user = user;
+               this.terminal = terminal;
+          }
+
+          @Override
+          public boolean equals(Object o) {
+               if (!(o instanceof Key)) {
+                    return false;
+               }
+               Key k = (Key) o;
+               return terminal == k.terminal && (user == null ? k.user == null : user.equals(k.user));
+          }
+
+          @Override
+          public int hashCode() {
+               return 31 * (user == null ? 0 : user.hashCode()) + terminal;
+          }
+     }
+}
@@ -0,0 +1,74 @@
+package project3;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * The SessionWriter class writes the sessions it receives to a text file, one per line:
+ * the username, the terminal, the login time and the logout time in milliseconds since the epoch,
+ * separated by spaces, with a dash instead of the logout time for an active session
+ * The sessions are written in the order they are received, i.e. in order of logout from a SessionStream
+ *
+ * @author Thales Gao
+ */
+public class SessionWriter implements SessionTracker.Sink, Closeable {
+     private BufferedWriter out;
+     private long count;
+
+     /**
+      * Constructor initializes a writer to the given file, which is replaced if it exists
+      * @param file The path of the file
+      * @throws IOException if the file cannot be created
+      * @throws IllegalArgumentException if the path is null
+      */
+     public SessionWriter(Path file) throws IOException, IllegalArgumentException {
+          if (file == null)
+               throw new IllegalArgumentException("File cannot be null");
+          this.out = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+     }
+
+     /**
+      * Writes a session
+      * @param session The completed or still active session
+      * @param loginNumber The number of logins before the login of the session, not written
+      * @throws UncheckedIOException if the file cannot be written
+      */
+     @Override
+     public void accept(Session session, long loginNumber) throws UncheckedIOException {
+          try {
+               out.write(session.getUsername());
+               out.write(' ');
+               out.write(Integer.toString(session.getTerminal()));
+               out.write(' ');
+               out.write(Long.toString(session.getLoginTime().getTime()));
+               out.write(' ');
+               out.write(session.getLogoutTime() == null ? "-" : Long.toString(session.getLogoutTime().getTime()));
+               out.newLine();
+               count++;
+          } catch (IOException e) {
+               throw new UncheckedIOException(e);
+          }
+     }
+
+     /**
+      * Returns the number of sessions written
+      * @return the number of lines written
+      */
+     public long getCount() {
+          return count;
+     }
+
+     /**
+      * Writes what is left in the buffer and closes the file
+      * @throws IOException if the file cannot be written
+      */
+     @Override
+     public void close() throws IOException {
+          out.close();
+     }
+}
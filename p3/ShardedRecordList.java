@@ -0,0 +1,435 @@
+package project3;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntFunction;
+
+/**
+ * The ShardedRecordList class keeps the records of a log in several RecordLists, the shards,
+ * each one holding all the records of the users whose usernames hash to it
+ * A query about one user only reads the shard of that user, while the queries about all users
+ * run on every shard at once on a ForkJoinPool and combine the answers of the shards
+ * The answers are the same as those of a single RecordList holding all the records
+ * The shards are concurrent RecordLists with their own dictionaries of usernames, so several
+ * threads can query the list at once, also while records are added
+ *
+ * @author Thales Gao
+ */
+public class ShardedRecordList implements SessionQueries {
+     private final RecordList[] shards;
+     private final ForkJoinPool pool;
+     //dictionary the records are parsed with before they are handed to their shards
+     private final UserDictionary users = new UserDictionary();
+     //snapshot of every shard, taken again after the shard changed, and the index of all their sessions
+     private final QuerySnapshot[] snapshots;
+     private SessionIndex sessionIndex;
+
+     /**
+      * Constructor initializes an empty list with the given number of shards, queried on the common pool
+      * @param count The number of shards
+      * @throws IllegalArgumentException if the number of shards is not positive
+      */
+     public ShardedRecordList(int count) throws IllegalArgumentException {
+          this(count, ForkJoinPool.commonPool());
+     }
+
+     /**
+      * Constructor initializes an empty list with the given number of shards, queried on the given pool
+      * @param count The number of shards
+      * @param pool The pool the shards are loaded and queried on
+      * @throws IllegalArgumentException if the number of shards is not positive or the pool is null
+      */
+     public ShardedRecordList(int count, ForkJoinPool pool) throws IllegalArgumentException {
+          if (count <= 0)
+               throw new IllegalArgumentException("Invalid number of shards: " + count);
+          if (pool == null)
+               throw new IllegalArgumentException("Pool cannot be null");
+          this.pool = pool;
+          this.shards = new RecordList[count];
+          for (int i = 0; i < count; i++) {
+               shards[i] = new RecordList(new UserDictionary(), true);
+          }
+          this.snapshots = new QuerySnapshot[count];
+     }
+
+     /**
+      * Returns the dictionary records should be parsed with before they are added
+      * Each shard also gives the usernames of its own records ids in its own dictionary
+      * @return the dictionary of usernames
+      */
+     public UserDictionary getUserDictionary() {
+          return users;
+     }
+
+     /**
+      * Returns the number of shards
+      * @return the number of shards
+      */
+     public int getShardCount() {
+          return shards.length;
+     }
+
+     /**
+      * Returns the shard holding the records of a user
+      * @param user The username
+      * @return the index of the shard, from 0 to the number of shards - 1
+      * @throws IllegalArgumentException if the username is null
+      */
+     public int shardOf(String user) throws IllegalArgumentException {
+          if (user == null)
+               throw new IllegalArgumentException("Username cannot be null");
+          int h = user.hashCode();
+          //spread the high bits, since the low ones of similar names differ little
+          return Math.floorMod(h ^ (h >>> 16), shards.length);
+     }
+
+     /**
+      * Returns the number of records in all shards
+      * @return the number of records
+      */
+     public int size() {
+          int size = 0;
+          for (RecordList shard : shards) {
+               size += shard.size();
+          }
+          return size;
+     }
+
+     /**
+      * Adds a record to the shard of its user
+      * @param r The record
+      * @return true if the record was added, false if it is null
+      */
+     public boolean add(Record r) {
+          if (r == null || r.getUsername() == null) {
+               return false;
+          }
+          //the user gets its id when its first record arrives, as in a single RecordList
+          users.idOf(r);
+          return shards[this.shardOf(r.getUsername())].add(r);
+     }
+
+     /**
+      * Adds records to the shards of their users, all shards at once
+      * The result is the same as adding the records one at a time in the iteration order of the collection
+      * @param c The records
+      * @return true if the list changed as a result of the call
+      */
+     public boolean addAll(Collection<? extends Record> c) {
+          if (c == null) {
+               return false;
+          }
+          List<List<Record>> parts = this.partition(c);
+          List<Boolean> changed = this.eachShard(i -> shards[i].addAll(parts.get(i)));
+          return changed.contains(Boolean.TRUE);
+     }
+
+     /**
+      * Adds records that are already in list order to the shards of their users, all shards at once
+      * @param sorted The records in list order, as ParallelLoader produces them
+      * @return true if the list changed as a result of the call
+      */
+     boolean addSorted(Collection<? extends Record> sorted) {
+          List<List<Record>> parts = this.partition(sorted);
+          List<Boolean> changed = this.eachShard(i -> shards[i].addSorted(parts.get(i)));
+          return changed.contains(Boolean.TRUE);
+     }
+
+     /**
+      * Removes all records from every shard
+      */
+     public void clear() {
+          for (RecordList shard : shards) {
+               shard.clear();
+          }
+     }
+
+     /**
+      * Returns the first login session of a specific user, from the shard of the user
+      * @param user The user whose information is to be accessed
+      * @return the first login session of a specific user
+      * @throws NoSuchElementException where the specific user does not match any record
+      * @throws IllegalArgumentException when the argument string is invalid
+      */
+     public Session getFirstSession(String user) throws NoSuchElementException, IllegalArgumentException {
+          return this.shardFor(user).getFirstSession(user);
+     }
+
+     /**
+      * Returns the last logout session of a specific user, from the shard of the user
+      * @param user The user whose information is to be accessed
+      * @return the last logout session of a specific user
+      * @throws NoSuchElementException where the specific user does not match any record
+      * @throws IllegalArgumentException when the argument string is invalid
+      */
+     public Session getLastSession(String user) throws NoSuchElementException, IllegalArgumentException {
+          return this.shardFor(user).getLastSession(user);
+     }
+
+     /**
+      * Provides the total login time of a specified user, from the shard of the user
+      * @param user The user whose information is to be accessed
+      * @return the total duration of the user
+      * @throws NoSuchElementException where the specific user does not match any record
+      * @throws IllegalArgumentException when the argument string is invalid
+      */
+     public long getTotalTime(String user) throws NoSuchElementException, IllegalArgumentException {
+          return this.shardFor(user).getTotalTime(user);
+     }
+
+     /**
+      * Generate a sorted linked list of all the session of a given user, from the shard of the user
+      * @param user The user whose information is to be accessed
+      * @return A sorted linked list of all the sessions of the user
+      * @throws NoSuchElementException where the specific user does not match any record
+      * @throws IllegalArgumentException when the argument string is invalid
+      */
+     public SortedLinkedList<Session> getAllSessions(String user) throws NoSuchElementException, IllegalArgumentException {
+          return this.shardFor(user).getAllSessions(user);
+     }
+
+     /**
+      * Returns the sessions of a given user, paired as the iteration reaches them in the shard of the user
+      * @param user The user whose information is to be accessed
+      * @return the sessions of the user
+      * @throws NoSuchElementException where the specific user does not have any record
+      * @throws IllegalArgumentException when the argument string is invalid
+      */
+     @Override
+     public Iterable<Session> iterateSessions(String user) throws NoSuchElementException, IllegalArgumentException {
+          return this.shardFor(user).iterateSessions(user);
+     }
+
+     /**
+      * Pairs the sessions of the shards that changed, all shards at once, without building the index by time
+      */
+     synchronized void prepare() {
+          if (this.refreshSnapshots()) {
+               sessionIndex = null;
+          }
+     }
+
+     /**
+      * Returns the index of the sessions of all users by time
+      * The sessions of the shards that changed are paired again, all shards at once
+      * @return the index of all sessions as they are now
+      */
+     public synchronized SessionIndex getSessionIndex() {
+          if (this.refreshSnapshots() || sessionIndex == null) {
+               sessionIndex = new SessionIndex(this.allSessions());
+          }
+          return sessionIndex;
+     }
+
+     /**
+      * Measures the number of sessions open at the same time from the sessions of all shards
+      * @param listener The listener receiving every change of the number of open sessions, or null
+      * @return the analyzer holding the peaks and the time spent at each number of open sessions
+      */
+     public ConcurrencyAnalyzer analyzeConcurrency(ConcurrencyAnalyzer.Listener listener) {
+          List<Session> all;
+          synchronized (this) {
+               this.refreshSnapshots();
+               all = this.allSessions();
+          }
+          return ConcurrencyAnalyzer.of(all, users, listener);
+     }
+
+     /**
+      * Returns the users with the largest login time between two times
+      * Every shard ranks its own users at once, and since a user is in a single shard,
+      * the best users overall are the best of the shards' rankings
+      * @param k The largest number of users to return
+      * @param from The start of the window in milliseconds since the epoch
+      * @param to The end of the window in milliseconds since the epoch
+      * @return at most k users with a positive total in the window, the largest total first
+      * @throws IllegalArgumentException if k is not positive or from is after to
+      */
+     public List<UserTotal> topUsers(int k, long from, long to) throws IllegalArgumentException {
+          if (k <= 0)
+               throw new IllegalArgumentException("Invalid count: " + k);
+          if (from > to)
+               throw new IllegalArgumentException("The range ends before it starts");
+          ArrayList<UserTotal> top = new ArrayList<>();
+          for (List<UserTotal> shardTop : this.eachShard(i -> shards[i].topUsers(k, from, to))) {
+               top.addAll(shardTop);
+          }
+          Collections.sort(top);
+          return new ArrayList<>(top.subList(0, Math.min(k, top.size())));
+     }
+
+     /**
+      * Returns the total login time of every user with a login record, all shards at once
+      * @return the total duration of every user by username
+      */
+     public Map<String, Long> getTotalTimes() {
+          HashMap<String, Long> totals = new HashMap<>();
+          for (Map<String, Long> shardTotals : this.eachShard(i -> {
+               RecordList shard = shards[i];
+               QuerySnapshot snapshot = shard.snapshot();
+               HashMap<String, Long> result = new HashMap<>();
+               for (String user : usersOf(shard)) {
+                    try {
+                         result.put(user, snapshot.getTotalTime(user));
+                    } catch (NoSuchElementException e) {
+                         //the user only has logouts
+                    }
+               }
+               return result;
+          })) {
+               totals.putAll(shardTotals);
+          }
+          return totals;
+     }
+
+     /**
+      * Returns the sessions of every user with a login record, all shards at once
+      * @return the sessions of every user by username, each in the order of getAllSessions
+      */
+     public Map<String, SortedLinkedList<Session>> getSessionsByUser() {
+          HashMap<String, SortedLinkedList<Session>> sessions = new HashMap<>();
+          for (Map<String, SortedLinkedList<Session>> shardSessions : this.eachShard(i -> {
+               RecordList shard = shards[i];
+               QuerySnapshot snapshot = shard.snapshot();
+               HashMap<String, SortedLinkedList<Session>> result = new HashMap<>();
+               for (String user : usersOf(shard)) {
+                    try {
+                         result.put(user, snapshot.getAllSessions(user));
+                    } catch (NoSuchElementException e) {
+                         //the user only has logouts
+                    }
+               }
+               return result;
+          })) {
+               sessions.putAll(shardSessions);
+          }
+          return sessions;
+     }
+
+     /**
+      * Returns the shard of a user after checking the username
+      * @throws IllegalArgumentException if the username is null or empty
+      */
+     private RecordList shardFor(String user) throws IllegalArgumentException {
+          if (user == null || user.isEmpty())
+               throw new IllegalArgumentException("Invalid username");
+          return shards[this.shardOf(user)];
+     }
+
+     /**
+      * Splits records by the shard of their users, keeping their order
+      * The users are given ids in the order of the records, as a single RecordList would
+      */
+     private List<List<Record>> partition(Collection<? extends Record> records) {
+          List<List<Record>> parts = new ArrayList<>(shards.length);
+          for (int i = 0; i < shards.length; i++) {
+               parts.add(new ArrayList<>());
+          }
+          for (Record r : records) {
+               if (r != null && r.getUsername() != null) {
+                    users.idOf(r);
+                    parts.get(this.shardOf(r.getUsername())).add(r);
+               }
+          }
+          return parts;
+     }
+
+     /**
+      * Takes a new snapshot of every shard that changed since its last one, all shards at once
+      * @return true if any snapshot was taken
+      */
+     private boolean refreshSnapshots() {
+          boolean[] stale = new boolean[shards.length];
+          boolean any = false;
+          for (int i = 0; i < shards.length; i++) {
+               stale[i] = snapshots[i] == null || snapshots[i].getVersion() != shards[i].getVersion();
+               any |= stale[i];
+          }
+          if (any) {
+               List<QuerySnapshot> fresh = this.eachShard(i -> stale[i] ? shards[i].snapshot() : snapshots[i]);
+               for (int i = 0; i < shards.length; i++) {
+                    snapshots[i] = fresh.get(i);
+               }
+          }
+          return any;
+     }
+
+     /**
+      * Returns the sessions of the current snapshots in the order a single RecordList gives them
+      * to its index: user by user in the order of the ids of the parsing dictionary, so that
+      * sessions starting at the same time are listed in the same order
+      */
+     private List<Session> allSessions() {
+          ArrayList<ArrayList<Session>> byUser = new ArrayList<>();
+          int count = 0;
+          for (QuerySnapshot snapshot : snapshots) {
+               ArrayList<Session> shardSessions = new ArrayList<>();
+               snapshot.collectSessions(shardSessions);
+               count += shardSessions.size();
+               //the sessions of a shard come user by user, so each run of one username is a user
+               for (int start = 0; start < shardSessions.size(); ) {
+                    String name = shardSessions.get(start).getUsername();
+                    int end = start + 1;
+                    while (end < shardSessions.size() && shardSessions.get(end).getUsername().equals(name)) {
+                         end++;
+                    }
+                    int id = users.intern(name);
+                    while (byUser.size() <= id) {
+                         byUser.add(null);
+                    }
+                    byUser.set(id, new ArrayList<>(shardSessions.subList(start, end)));
+                    start = end;
+               }
+          }
+          ArrayList<Session> all = new ArrayList<>(count);
+          for (ArrayList<Session> sessions : byUser) {
+               if (sessions != null) {
+                    all.addAll(sessions);
+               }
+          }
+          return all;
+     }
+
+     /**
+      * Returns the usernames of a shard's dictionary
+      */
+     private static List<String> usersOf(RecordList shard) {
+          UserDictionary dictionary = shard.getUserDictionary();
+          int count = dictionary.size();
+          List<String> names = new ArrayList<>(count);
+          for (int id = 0; id < count; id++) {
+               names.add(dictionary.name(id));
+          }
+          return names;
+     }
+
+     /**
+      * Runs a task for every shard on the pool, all shards at once
+      * @param task The task, given the index of a shard
+      * @return the results of the task, by shard
+      */
+     private <T> List<T> eachShard(IntFunction<T> task) {
+          List<ForkJoinTask<T>> tasks = new ArrayList<>(shards.length);
+          for (int i = 0; i < shards.length; i++) {
+               int shard = i;
+               tasks.add(ForkJoinTask.adapt(() -> task.apply(shard)));
+          }
+          if (ForkJoinTask.inForkJoinPool()) {
+               ForkJoinTask.invokeAll(tasks);
+          } else {
+               pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+          }
+          List<T> results = new ArrayList<>(shards.length);
+          for (ForkJoinTask<T> t : tasks) {
+               results.add(t.join());
+          }
+          return results;
+     }
+}
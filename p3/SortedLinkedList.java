@@ -1,13 +1,42 @@
 package project3;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.ListIterator;
 import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * This is an implementation of a sorted doubly-linked list.
  * All elements in the list are maintained in ascending/increasing order
  * based on the natural order of the elements.
  * This list does not allow <code>null</code> elements.
+ * Elements are kept in an indexable skip list: the bottom level is the
+ * doubly-linked list itself and each upper level records how many elements
+ * its links skip, so searching, inserting and positional access take
+ * logarithmic expected time.
+ * A list created as concurrent (see ConcurrentSortedList) guards every
+ * operation with a single read/write lock for the whole list, and its
+ * iterators are weakly consistent.
+ * A list can also keep a hash index from its elements to their nodes
+ * (see setHashIndexed), so that <code>contains</code> takes constant time
+ * and <code>remove</code> finds the node without searching.
+ * The elements can be streamed with <code>stream</code> and
+ * <code>parallelStream</code>; the spliterator of a list used by a single
+ * thread splits it in halves found through the skip list.
  *
  * @author Joanna Klukowska
  * @author Thales Gao
@@ -17,14 +46,55 @@ import java.util.NoSuchElementException;
 public class SortedLinkedList<E extends Comparable<E>>
     implements Iterable<E> {
 
+    /* Maximum number of levels in the skip list; with a promotion
+     * probability of 1/4 this comfortably covers lists of 2^32 elements. */
+    private static final int MAX_LEVEL = 16;
+
+    /* Bulk loads at least this large are sorted with Arrays.parallelSort. */
+    private static final int PARALLEL_SORT_THRESHOLD = 1 << 13;
+
+    private final Node header;
+    private final Random random;
+    private int level;
     private Node head;
     private Node tail;
     private int size;
 
+    /* Number of changes made to the list, so that views built from it
+     * can tell whether they are out of date. */
+    protected int modCount;
+
+    /* Lock of a concurrent list: readers share it, changes take it exclusively.
+     * null for a list used by a single thread. */
+    private final ReentrantReadWriteLock lock;
+
+    /* Node of the first occurrence of every element, by equals and hashCode.
+     * null unless the list is hash indexed. */
+    private HashMap<Object, Node> hashIndex;
+
     /**
      * Constructs a new empty sorted linked list.
      */
     public SortedLinkedList() {
+        this(false);
+    }
+
+    /**
+     * Constructs a new empty sorted linked list, which can be used by several
+     * threads at once if <code>concurrent</code> is <code>true</code>.
+     * Every operation of a concurrent list holds a read/write lock, so any
+     * number of threads can search the list while no thread changes it.
+     * Its iterators are weakly consistent: they never fail because of
+     * concurrent changes, and they may or may not show changes made after
+     * they were created.
+     *
+     * @param concurrent <code>true</code> to make the list safe for use by several threads
+     */
+    protected SortedLinkedList(boolean concurrent) {
+        lock = concurrent ? new ReentrantReadWriteLock() : null;
+        header = new Node(MAX_LEVEL);
+        random = new Random();
+        level = 1;
         head = null;
         tail = null;
         size = 0;
@@ -32,38 +102,160 @@ public class SortedLinkedList<E extends Comparable<E>>
 
     /**
      * Adds the specified element to the list in ascending order.
+     * The element is placed before any elements that compare equal to it.
      *
      * @param element the element to add
      * @return <code>true</code> if the element was added successfully,
      * <code>false</code> otherwise (if <code>element==null</code>)
      */
     public boolean add(E element) {
+        long start = Metrics.start();
+        try {
+            return this.addUntimed(element);
+        } finally {
+            Metrics.stop(Metrics.ADD, start);
+        }
+    }
+
+    /* Adds an element like add without timing it, for lists that are kept
+     * alongside another list whose add is already timed. */
+    boolean addUntimed(E element) {
+        this.lockWrite();
+        try {
+            return this.insert(element);
+        } finally {
+            this.unlockWrite();
+        }
+    }
+
+    /* Inserts an element before the elements equal to it. */
+    private boolean insert(E element) {
         if (element == null) {
             return false;
         }
-        Node e = new Node(element);
-        if (this.head == null) {
-            this.head = e;
-            this.tail = e;
-        } else if (this.head.compareTo(e) >= 0) {
-            e.next = this.head;
-            this.head.prev = e;
-            this.head = e;
-        } else {
-            Node node = this.head;
-            while (node.next != null && node.next.compareTo(e) < 0) {
-                node = node.next;
+        Node[] update = newNodeArray(MAX_LEVEL);
+        int[] rank = new int[MAX_LEVEL];
+        Node x = header;
+        int traversed = 0;
+        int compared = 0;
+        //find the last node smaller than element on every level,
+        //remembering how many nodes were skipped to reach it
+        for (int i = level - 1; i >= 0; i--) {
+            rank[i] = (i == level - 1) ? 0 : rank[i + 1];
+            while (x.forward[i] != null && x.forward[i].data.compareTo(element) < 0) {
+                rank[i] += x.span[i];
+                x = x.forward[i];
+                traversed++;
+                compared++;
             }
-            e.next = node.next;
-            if (node.next != null) {
-                node.next.prev = e;
-            } else {
-                tail = e;
+            if (x.forward[i] != null) {
+                compared++;
             }
-            node.next = e;
-            e.prev = node;
+            update[i] = x;
         }
+        Metrics.searched(traversed, compared);
+        int height = randomLevel();
+        if (height > level) {
+            for (int i = level; i < height; i++) {
+                rank[i] = 0;
+                update[i] = header;
+                header.span[i] = size;
+            }
+            level = height;
+        }
+        Node e = new Node(element, height);
+        for (int i = 0; i < height; i++) {
+            e.forward[i] = update[i].forward[i];
+            update[i].forward[i] = e;
+            e.span[i] = update[i].span[i] - (rank[0] - rank[i]);
+            update[i].span[i] = (rank[0] - rank[i]) + 1;
+        }
+        for (int i = height; i < level; i++) {
+            update[i].span[i]++;
+        }
+        e.prev = (update[0] == header) ? null : update[0];
+        if (e.forward[0] != null) {
+            e.forward[0].prev = e;
+        } else {
+            this.tail = e;
+        }
+        if (hashIndex != null) {
+            //the new node comes before every element equal to it
+            hashIndex.put(element, e);
+        }
+        this.head = header.forward[0];
         size++;
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Adds all elements of the specified collection to the list in ascending order.
+     * The result is the same as adding the elements one at a time in the
+     * iteration order of the collection, but the elements are sorted once
+     * (in parallel for large collections) and the list is relinked in a
+     * single pass instead of searching for each insertion point.
+     * <code>null</code> elements are skipped.
+     *
+     * @param c the elements to add
+     * @return <code>true</code> if the list changed as a result of the call,
+     * <code>false</code> otherwise
+     */
+    public boolean addAll(Collection<? extends E> c) {
+        if (c == null) {
+            return false;
+        }
+        Object[] elements = c.toArray();
+        Object[] batch = new Object[elements.length];
+        int count = 0;
+        //sequential adds place later elements before earlier equal ones,
+        //so the batch is reversed before the stable sort to keep that order
+        for (int i = elements.length - 1; i >= 0; i--) {
+            if (elements[i] != null) {
+                batch[count++] = elements[i];
+            }
+        }
+        if (count == 0) {
+            return false;
+        }
+        Comparator<Object> order = (a, b) -> this.cast(a).compareTo(this.cast(b));
+        if (count >= PARALLEL_SORT_THRESHOLD) {
+            Arrays.parallelSort(batch, 0, count, order);
+        } else {
+            Arrays.sort(batch, 0, count, order);
+        }
+        //the batch is sorted before taking the lock, so readers are only held up by the merge
+        this.lockWrite();
+        try {
+            this.mergeSorted(batch, count);
+        } finally {
+            this.unlockWrite();
+        }
+        return true;
+    }
+
+    /**
+     * Adds elements that are already in the order they should have in the list,
+     * i.e. ascending, with equal elements in the order <code>add</code> would give them.
+     * The elements are merged with the current contents, placed before equal
+     * elements already in the list, and no comparisons are made if the list is empty.
+     * The order of the elements is not checked.
+     *
+     * @param sorted the elements to add, in list order and without <code>null</code>
+     * @return <code>true</code> if the list changed as a result of the call,
+     * <code>false</code> otherwise
+     */
+    boolean addSorted(Collection<? extends E> sorted) {
+        if (sorted == null || sorted.isEmpty()) {
+            return false;
+        }
+        Object[] batch = sorted.toArray();
+        this.lockWrite();
+        try {
+            this.mergeSorted(batch, batch.length);
+        } finally {
+            this.unlockWrite();
+        }
         return true;
     }
 
@@ -71,9 +263,35 @@ public class SortedLinkedList<E extends Comparable<E>>
      * Removes all elements from the list.
      */
     public void clear() {
+        this.lockWrite();
+        try {
+            this.reset();
+        } finally {
+            this.unlockWrite();
+        }
+    }
+
+    /* Empties the list; kept separate from clear() so that relinking
+     * the list does not go through methods overridden by subclasses. */
+    private void reset() {
+        if (lock != null) {
+            //iterators of a concurrent list may still stand on the old nodes
+            for (Node node = head; node != null; node = node.forward[0]) {
+                node.unlinked = true;
+            }
+        }
+        for (int i = 0; i < MAX_LEVEL; i++) {
+            header.forward[i] = null;
+            header.span[i] = 0;
+        }
+        if (hashIndex != null) {
+            hashIndex.clear();
+        }
+        this.level = 1;
         this.head = null;
         this.tail = null;
         this.size = 0;
+        this.modCount++;
     }
 
     /**
@@ -85,16 +303,12 @@ public class SortedLinkedList<E extends Comparable<E>>
      * <code>false</code> otherwise
      */
     public boolean contains(Object o) {
-        if(o == null) {
-            return false;
-        }
-        Iterator itr = this.iterator();
-        while(itr.hasNext()) {
-            if(o.equals(itr.next())) {
-                return true;
-            }
+        this.lockRead();
+        try {
+            return this.findNode(o) != null;
+        } finally {
+            this.unlockRead();
         }
-        return false;
     }
 
     /**
@@ -106,14 +320,15 @@ public class SortedLinkedList<E extends Comparable<E>>
      * range <code>(index < 0 || index >= size())</code>
      */
     public E get(int index) throws IndexOutOfBoundsException {
-        if (index < 0 || index >= this.size) {
-            throw new IndexOutOfBoundsException("index not in range");
-        }
-        Node node = this.head;
-        for (int i = 0; i < index; i++) {
-            node = node.next;
+        this.lockRead();
+        try {
+            if (index < 0 || index >= this.size) {
+                throw new IndexOutOfBoundsException("index not in range");
+            }
+            return this.nodeAt(index).data;
+        } finally {
+            this.unlockRead();
         }
-        return node.data;
     }
 
     /**
@@ -140,21 +355,20 @@ public class SortedLinkedList<E extends Comparable<E>>
      * or -1 if the element is not found
      */
     public int nextIndexOf(Object o, int index) {
-        if(o == null || !this.contains(o) || index < 0 || index >= this.size) {
-            return -1;
-        }
-        Iterator itr = this.iterator();
-        int i;
-        for (i = 0; i < index; i++) {
-            itr.next();
-        }
-        while (itr.hasNext()) {
-            if (o.equals(itr.next())) {
-                return i;
+        this.lockRead();
+        try {
+            if (o == null || index < 0 || index >= this.size) {
+                return -1;
             }
-            i++;
+            try {
+                return this.searchIndexOf(this.cast(o), o, index);
+            } catch (ClassCastException ex) {
+                //not comparable with the elements, fall back to a plain scan
+                return this.scanIndexOf(o, index);
+            }
+        } finally {
+            this.unlockRead();
         }
-        return -1;
     }
 
     /**
@@ -165,33 +379,58 @@ public class SortedLinkedList<E extends Comparable<E>>
      * <code>false</code> otherwise
      */
     public boolean remove(Object o) {
-        if(!this.contains(o)) {
-            return false;
-        }
-        int i = this.indexOf(o);
-        if (i == 0) {
-            this.head = this.head.next;
-            this.head.prev.next = null;
-            this.head.prev = null;
-            this.size--;
-            return true;
-        } else if (i == size - 1) {
-            this.tail = this.tail.prev;
-            this.tail.next.prev = null;
-            this.tail.next = null;
-            this.size--;
-            return true;
-        } else {
-            Node node = this.head;
-            for (int j = 0; j < i; j++) {
-                node = node.next;
-            }
-            node.prev.next = node.next;
-            node.next.prev = node.prev;
-            node.next = null;
-            node.prev = null;
-            this.size--;
+        this.lockWrite();
+        try {
+            Node node = this.findNode(o);
+            if (node == null) {
+                return false;
+            }
+            this.unlink(node);
+            this.removed(node.data);
             return true;
+        } finally {
+            this.unlockWrite();
+        }
+    }
+
+    /**
+     * Starts or stops keeping a hash index from the elements of the list to
+     * their nodes. While the list is hash indexed, <code>contains</code>
+     * takes constant time and <code>remove</code> goes straight to the node
+     * to unlink, at the cost of a map entry per distinct element and a map
+     * update on every change. Elements must then have a <code>hashCode</code>
+     * consistent with <code>equals</code>, and elements that are equal must
+     * also compare equal. Starting the index takes linear time.
+     *
+     * @param on <code>true</code> to keep the index, <code>false</code> to drop it
+     */
+    public void setHashIndexed(boolean on) {
+        this.lockWrite();
+        try {
+            if (!on) {
+                hashIndex = null;
+            } else if (hashIndex == null) {
+                hashIndex = new HashMap<>();
+                for (Node node = head; node != null; node = node.forward[0]) {
+                    hashIndex.putIfAbsent(node.data, node);
+                }
+            }
+        } finally {
+            this.unlockWrite();
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if the list keeps a hash index of its elements.
+     *
+     * @return <code>true</code> if the list is hash indexed
+     */
+    public boolean isHashIndexed() {
+        this.lockRead();
+        try {
+            return hashIndex != null;
+        } finally {
+            this.unlockRead();
         }
     }
 
@@ -201,7 +440,12 @@ public class SortedLinkedList<E extends Comparable<E>>
      * @return the size of the list
      */
     public int size() {
-        return size;
+        this.lockRead();
+        try {
+            return size;
+        } finally {
+            this.unlockRead();
+        }
     }
 
     /**
@@ -210,7 +454,143 @@ public class SortedLinkedList<E extends Comparable<E>>
      * @return an iterator over the elements in the list
      */
     public Iterator<E> iterator() {
-        return new ListIterator();
+        return this.listIterator();
+    }
+
+    /**
+     * Returns a spliterator over the elements in the list, in list order.
+     * For a list used by a single thread it is SIZED, SUBSIZED, ORDERED,
+     * SORTED (by natural order) and NONNULL, and it splits a range of the
+     * list in two halves, finding the middle node in logarithmic time.
+     * For a concurrent list it is weakly consistent like the iterators,
+     * reports CONCURRENT instead of SIZED, and splits off batches of elements.
+     * The list must not be changed while a spliterator of a list used by
+     * a single thread is in use.
+     *
+     * @return a spliterator over the elements in the list
+     */
+    @Override
+    public Spliterator<E> spliterator() {
+        if (lock != null) {
+            return Spliterators.spliterator(this.iterator(), this.size(),
+                Spliterator.ORDERED | Spliterator.SORTED | Spliterator.NONNULL | Spliterator.CONCURRENT);
+        }
+        return new Slice(head, 0, size);
+    }
+
+    /**
+     * Returns a sequential stream of the elements in the list, in list order.
+     *
+     * @return a stream of the elements in the list
+     */
+    public Stream<E> stream() {
+        return StreamSupport.stream(this.spliterator(), false);
+    }
+
+    /**
+     * Returns a possibly parallel stream of the elements in the list,
+     * in list order.
+     *
+     * @return a parallel stream of the elements in the list
+     */
+    public Stream<E> parallelStream() {
+        return StreamSupport.stream(this.spliterator(), true);
+    }
+
+    /**
+     * Returns a bidirectional list iterator over the elements in the list,
+     * starting at the beginning of the list.
+     *
+     * @return a list iterator over the elements in the list
+     */
+    public ListIterator<E> listIterator() {
+        this.lockRead();
+        try {
+            return new Cursor(head, 0);
+        } finally {
+            this.unlockRead();
+        }
+    }
+
+    /**
+     * Returns a bidirectional list iterator over the elements in the list,
+     * starting at the specified index: the first call to <code>next</code>
+     * returns the element at <code>index</code> and the first call to
+     * <code>previous</code> returns the element at <code>index - 1</code>.
+     * Starting at either end of the list takes constant time,
+     * starting anywhere else takes logarithmic time.
+     * The iterator supports <code>remove</code>, but not <code>set</code>
+     * or <code>add</code>, since those could break the order of the list.
+     *
+     * @param index the index of the first element to be returned by <code>next</code>
+     * @return a list iterator over the elements in the list
+     * @throws IndexOutOfBoundsException  if the index is out of
+     * range <code>(index < 0 || index > size())</code>
+     */
+    public ListIterator<E> listIterator(int index) throws IndexOutOfBoundsException {
+        this.lockRead();
+        try {
+            if (index < 0 || index > this.size) {
+                throw new IndexOutOfBoundsException("index not in range");
+            }
+            if (index == this.size) {
+                return new Cursor(null, index);
+            }
+            return new Cursor(this.nodeAt(index), index);
+        } finally {
+            this.unlockRead();
+        }
+    }
+
+    /**
+     * Called after an element has been removed from the list, either by
+     * <code>remove</code> or through an iterator. Subclasses that keep
+     * additional information about the elements can override it;
+     * the default implementation does nothing.
+     *
+     * @param element the element that was removed
+     */
+    protected void removed(E element) {
+    }
+
+    /**
+     * Acquires the lock of a concurrent list for reading; does nothing
+     * for a list used by a single thread. Subclasses use it to keep
+     * their own state consistent with the list.
+     */
+    protected final void lockRead() {
+        if (lock != null) {
+            lock.readLock().lock();
+        }
+    }
+
+    /**
+     * Releases the lock acquired with <code>lockRead</code>.
+     */
+    protected final void unlockRead() {
+        if (lock != null) {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Acquires the lock of a concurrent list for changing it; does nothing
+     * for a list used by a single thread. The lock is reentrant, and a thread
+     * holding it can also acquire the read lock, but not the other way around.
+     */
+    protected final void lockWrite() {
+        if (lock != null) {
+            lock.writeLock().lock();
+        }
+    }
+
+    /**
+     * Releases the lock acquired with <code>lockWrite</code>.
+     */
+    protected final void unlockWrite() {
+        if (lock != null) {
+            lock.writeLock().unlock();
+        }
     }
 
     /**
@@ -243,42 +623,441 @@ public class SortedLinkedList<E extends Comparable<E>>
      * @return a string representation of the list
      */
     public String toString() {
-        String str = "[";
-        if (this.head == null || this.tail == null){
-            return "[]";
+        StringBuilder out = new StringBuilder();
+        try {
+            this.writeTo(out);
+        } catch (IOException e) {
+            //a StringBuilder is never the cause
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Writes the text of one element of a list.
+     *
+     * @param <T> the type of the elements written
+     */
+    public interface ElementWriter<T> {
+        /**
+         * Writes the text of an element.
+         *
+         * @param element the element
+         * @param out where the text goes
+         * @throws IOException if out cannot be written
+         */
+        void write(T element, Appendable out) throws IOException;
+    }
+
+    /**
+     * Writes the string representation of the list, as returned by
+     * <code>toString</code>, in a single pass over the list.
+     *
+     * @param out where the text goes
+     * @throws IOException if out cannot be written
+     */
+    public void writeTo(Appendable out) throws IOException {
+        this.writeTo(out, (element, text) -> text.append(element.toString()));
+    }
+
+    /**
+     * Writes the elements of the list between brackets and separated by
+     * commas, like <code>toString</code>, each of them with the given writer,
+     * so that elements which can write their text to an Appendable do not
+     * build a String for it.
+     *
+     * @param out where the text goes
+     * @param writer writes the text of each element
+     * @throws IOException if out cannot be written
+     */
+    public void writeTo(Appendable out, ElementWriter<? super E> writer) throws IOException {
+        this.lockRead();
+        try {
+            out.append('[');
+            for (Node node = this.head; node != null; node = node.forward[0]) {
+                if (node != this.head) {
+                    out.append(", ");
+                }
+                writer.write(node.data, out);
+            }
+            out.append(']');
+        } finally {
+            this.unlockRead();
+        }
+    }
+
+    /* Returns the node at the given (valid) index, following the spans. */
+    private Node nodeAt(int index) {
+        if (index == size - 1) {
+            return tail;
+        }
+        Node x = header;
+        int traversed = -1;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.forward[i] != null && traversed + x.span[i] <= index) {
+                traversed += x.span[i];
+                x = x.forward[i];
+            }
+            if (traversed == index) {
+                return x;
+            }
+        }
+        return x;
+    }
+
+    /* Skip list search for nextIndexOf: jumps to the first element that is
+     * not smaller than key and checks only the run of elements comparing
+     * equal to it, since equal elements are adjacent in the list. */
+    private int searchIndexOf(E key, Object o, int index) {
+        Node x = header;
+        int traversed = 0;
+        int steps = 0;
+        int compared = 0;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.forward[i] != null && x.forward[i].data.compareTo(key) < 0) {
+                traversed += x.span[i];
+                x = x.forward[i];
+                steps++;
+                compared++;
+            }
+            if (x.forward[i] != null) {
+                compared++;
+            }
+        }
+        Metrics.searched(steps, compared);
+        Node node;
+        int i;
+        if (traversed >= index) {
+            node = x.forward[0];
+            i = traversed;
+        } else {
+            node = this.nodeAt(index);
+            i = index;
+        }
+        while (node != null && node.data.compareTo(key) == 0) {
+            if (o.equals(node.data)) {
+                return i;
+            }
+            node = node.forward[0];
+            i++;
+        }
+        return -1;
+    }
+
+    /* Returns the node of the first occurrence of o, or null if o is not in
+     * the list: from the hash index if there is one, otherwise by the same
+     * skip list search as searchIndexOf, without counting positions. */
+    private Node findNode(Object o) {
+        if (o == null || size == 0) {
+            return null;
+        }
+        if (hashIndex != null) {
+            return hashIndex.get(o);
+        }
+        E key;
+        try {
+            key = this.cast(o);
+            key.compareTo(head.data);
+        } catch (ClassCastException ex) {
+            int i = this.scanIndexOf(o, 0);
+            return i < 0 ? null : this.nodeAt(i);
+        }
+        Node x = header;
+        int steps = 0;
+        int compared = 0;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.forward[i] != null && x.forward[i].data.compareTo(key) < 0) {
+                x = x.forward[i];
+                steps++;
+                compared++;
+            }
+            if (x.forward[i] != null) {
+                compared++;
+            }
+        }
+        Metrics.searched(steps, compared);
+        for (Node node = x.forward[0]; node != null && node.data.compareTo(key) == 0; node = node.forward[0]) {
+            if (o.equals(node.data)) {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    /* Points the hash index entry of an element that is being removed at its
+     * next occurrence, which is in the run of elements comparing equal to it,
+     * or drops the entry if the element does not occur again. */
+    private void unindex(Node node) {
+        if (hashIndex.get(node.data) != node) {
+            return;
+        }
+        //the removed key is dropped first so the map does not keep it
+        hashIndex.remove(node.data);
+        for (Node n = node.forward[0]; n != null && n.data.compareTo(node.data) == 0; n = n.forward[0]) {
+            if (node.data.equals(n.data)) {
+                hashIndex.put(n.data, n);
+                return;
+            }
+        }
+    }
+
+    /* Linear search used for objects that cannot be compared with the elements. */
+    private int scanIndexOf(Object o, int index) {
+        Node node = this.nodeAt(index);
+        for (int i = index; node != null; i++) {
+            if (o.equals(node.data)) {
+                return i;
+            }
+            node = node.forward[0];
         }
-        Node node = this.head;
-        for (int i = 0; i < this.size; i++){
-            str = str + node.data.toString() + ", ";
-            node = node.next;
+        return -1;
+    }
+
+    /* Removes the given node from every level it is linked on. The position
+     * of the node is found first (see rankOf), then the predecessors on every
+     * level are found by searching for that position from the header, which
+     * takes logarithmic expected time however tall those predecessors are. */
+    private void unlink(Node node) {
+        if (hashIndex != null) {
+            this.unindex(node);
+        }
+        int index = this.rankOf(node);
+        Node x = header;
+        int traversed = -1;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.forward[i] != null && traversed + x.span[i] < index) {
+                traversed += x.span[i];
+                x = x.forward[i];
+            }
+            //x is the last node before the removed one on level i
+            if (x.forward[i] == node) {
+                x.span[i] += node.span[i] - 1;
+                x.forward[i] = node.forward[i];
+            } else {
+                x.span[i]--;
+            }
+        }
+        if (node.forward[0] != null) {
+            node.forward[0].prev = node.prev;
+        } else {
+            this.tail = node.prev;
+        }
+        while (level > 1 && header.forward[level - 1] == null) {
+            level--;
         }
-        str = str.substring(0, str.length() - 2) + "]";
-        return str;
+        this.head = header.forward[0];
+        //prev is kept so that an iterator standing on the node can still move back
+        node.unlinked = true;
+        this.size--;
+        this.modCount++;
     }
 
-    /* Inner class to represent nodes of this list.*/
+    /* Returns the index of a node that is in the list: the number of elements
+     * smaller than it, found by a skip list search, plus the number of elements
+     * equal to it that come before it, found by walking back through prev. */
+    private int rankOf(Node node) {
+        int before = 0;
+        for (Node p = node.prev; p != null && p.data.compareTo(node.data) == 0; p = p.prev) {
+            before++;
+        }
+        Node x = header;
+        int traversed = 0;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.forward[i] != null && x.forward[i].data.compareTo(node.data) < 0) {
+                traversed += x.span[i];
+                x = x.forward[i];
+            }
+        }
+        return traversed + before;
+    }
+
+    /* Merges count sorted elements into the list and relinks every level in
+     * one pass. On ties the new elements go first, as they would with add. */
+    private void mergeSorted(Object[] batch, int count) {
+        Object[] all;
+        if (size == 0) {
+            all = batch;
+        } else {
+            all = new Object[size + count];
+            Node node = head;
+            int b = 0;
+            int n = 0;
+            while (node != null || b < count) {
+                if (node == null || (b < count && this.cast(batch[b]).compareTo(node.data) <= 0)) {
+                    all[n++] = batch[b++];
+                } else {
+                    all[n++] = node.data;
+                    node = node.forward[0];
+                }
+            }
+            count = n;
+        }
+        this.link(all, count);
+    }
+
+    /* Rebuilds the skip list from count elements that are already in order. */
+    private void link(Object[] sorted, int count) {
+        this.reset();
+        Node[] last = newNodeArray(MAX_LEVEL);
+        int[] lastPos = new int[MAX_LEVEL];
+        for (int i = 0; i < MAX_LEVEL; i++) {
+            last[i] = header;
+        }
+        Node prev = null;
+        for (int pos = 1; pos <= count; pos++) {
+            int height = randomLevel();
+            Node e = new Node(this.cast(sorted[pos - 1]), height);
+            for (int i = 0; i < height; i++) {
+                last[i].forward[i] = e;
+                last[i].span[i] = pos - lastPos[i];
+                last[i] = e;
+                lastPos[i] = pos;
+            }
+            level = Math.max(level, height);
+            e.prev = prev;
+            prev = e;
+            if (hashIndex != null) {
+                hashIndex.putIfAbsent(e.data, e);
+            }
+        }
+        for (int i = 0; i < level; i++) {
+            last[i].span[i] = count - lastPos[i];
+        }
+        this.head = header.forward[0];
+        this.tail = prev;
+        this.size = count;
+        this.modCount++;
+    }
+
+    /* Picks the number of levels for a new node, each extra level with probability 1/4. */
+    private int randomLevel() {
+        int height = 1 + Integer.numberOfTrailingZeros(random.nextInt() | (1 << 30)) / 2;
+        return Math.min(height, MAX_LEVEL);
+    }
+
+    /* Node is an inner class of a generic class, so its arrays are made through reflection. */
+    @SuppressWarnings("unchecked")
+    private Node[] newNodeArray(int length) {
+        return (Node[]) Array.newInstance(Node.class, length);
+    }
+
+    @SuppressWarnings("unchecked")
+    private E cast(Object o) {
+        return (E) o;
+    }
+
+    /* Inner class to represent nodes of this list.
+     * forward[i] is the next node on level i (forward[0] is the plain next link)
+     * and span[i] is the number of positions that link skips over. */
     private class Node implements Comparable<Node> {
         E data;
-        Node next;
         Node prev;
-        Node(E data) {
+        //set once the node is no longer part of the list
+        boolean unlinked;
+        final Node[] forward;
+        final int[] span;
+        Node(int height) {
+            this.forward = newNodeArray(height);
+            this.span = new int[height];
+        }
+        Node(E data, int height) {
+            this(height);
             if (data == null ) throw new NullPointerException ("does not allow null");
             this.data = data;
         }
-        Node (E data, Node next, Node prev) {
-            this(data);
-            this.next = next;
-            this.prev = prev;
-        }
         public int compareTo( Node n ) {
             return this.data.compareTo(n.data);
         }
     }
 
-    /* A basic forward iterator for this list. */
-    private class ListIterator implements Iterator<E> {
+    /* A spliterator over the elements at indexes from index (the one in
+     * next) up to end, for a list used by a single thread. */
+    private class Slice implements Spliterator<E> {
+
+        Node next;
+        int index;
+        final int end;
+
+        Slice(Node next, int index, int end) {
+            this.next = next;
+            this.index = index;
+            this.end = end;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super E> action) {
+            Objects.requireNonNull(action);
+            if (index >= end) {
+                return false;
+            }
+            E data = next.data;
+            next = next.forward[0];
+            index++;
+            action.accept(data);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super E> action) {
+            Objects.requireNonNull(action);
+            Node node = next;
+            int n = end - index;
+            next = null;
+            index = end;
+            for (int i = 0; i < n; i++) {
+                action.accept(node.data);
+                node = node.forward[0];
+            }
+        }
+
+        @Override
+        public Spliterator<E> trySplit() {
+            int mid = (index + end) >>> 1;
+            if (mid == index) {
+                return null;
+            }
+            Slice first = new Slice(next, index, mid);
+            next = nodeAt(mid);
+            index = mid;
+            return first;
+        }
+
+        @Override
+        public long estimateSize() {
+            return end - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.ORDERED
+                | Spliterator.SORTED | Spliterator.NONNULL;
+        }
+
+        @Override
+        public Comparator<? super E> getComparator() {
+            //sorted by natural order
+            return null;
+        }
+    }
+
+    /* A bidirectional iterator for this list. The cursor sits between
+     * the node returned by previous() (next.prev, or tail at the end)
+     * and the node returned by next(). In a concurrent list it moves
+     * through the nodes under the read lock, so it is weakly consistent;
+     * nextIndex only counts its own moves and goes stale when other
+     * threads add or remove elements before the cursor, so hasPrevious
+     * and previous look at the nodes instead. */
+    private class Cursor implements ListIterator<E> {
+
+        Node nextToReturn;
+        Node lastReturned;
+        int nextIndex;
+
+        Cursor(Node nextToReturn, int nextIndex) {
+            this.nextToReturn = nextToReturn;
+            this.nextIndex = nextIndex;
+        }
 
-        Node nextToReturn = head;
         @Override
         public boolean hasNext() {
             return nextToReturn != null;
@@ -288,10 +1067,86 @@ public class SortedLinkedList<E extends Comparable<E>>
         public E next() throws NoSuchElementException {
             if (nextToReturn == null )
                 throw new NoSuchElementException("the end of the list reached");
-            E tmp = nextToReturn.data;
-            nextToReturn = nextToReturn.next;
-            return tmp;
+            lockRead();
+            try {
+                lastReturned = nextToReturn;
+                nextToReturn = nextToReturn.forward[0];
+                nextIndex++;
+                return lastReturned.data;
+            } finally {
+                unlockRead();
+            }
         }
 
+        @Override
+        public boolean hasPrevious() {
+            lockRead();
+            try {
+                return ((nextToReturn == null) ? tail : nextToReturn.prev) != null;
+            } finally {
+                unlockRead();
+            }
+        }
+
+        @Override
+        public E previous() throws NoSuchElementException {
+            lockRead();
+            try {
+                Node node = (nextToReturn == null) ? tail : nextToReturn.prev;
+                if (node == null)
+                    throw new NoSuchElementException("the beginning of the list reached");
+                nextToReturn = node;
+                lastReturned = nextToReturn;
+                nextIndex--;
+                return lastReturned.data;
+            } finally {
+                unlockRead();
+            }
+        }
+
+        /* In a concurrent list this is the index the cursor would have if
+         * no other thread had changed the elements before it. */
+        @Override
+        public int nextIndex() {
+            return nextIndex;
+        }
+
+        @Override
+        public int previousIndex() {
+            return nextIndex - 1;
+        }
+
+        @Override
+        public void remove() throws IllegalStateException {
+            if (lastReturned == null)
+                throw new IllegalStateException("no element to remove");
+            lockWrite();
+            try {
+                if (lastReturned == nextToReturn) {
+                    //removing the element just returned by previous()
+                    nextToReturn = nextToReturn.forward[0];
+                } else {
+                    nextIndex--;
+                }
+                //another thread may have removed it already
+                if (!lastReturned.unlinked) {
+                    unlink(lastReturned);
+                    removed(lastReturned.data);
+                }
+                lastReturned = null;
+            } finally {
+                unlockWrite();
+            }
+        }
+
+        @Override
+        public void set(E e) {
+            throw new UnsupportedOperationException("the list is sorted, elements cannot be replaced");
+        }
+
+        @Override
+        public void add(E e) {
+            throw new UnsupportedOperationException("the list is sorted, use add on the list instead");
+        }
     }
 }
@@ -0,0 +1,211 @@
+package project3;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * The StreamSummary class keeps what is needed to answer the per-user queries from the sessions
+ * of a SessionStream: the first and last session and the total login time of every user
+ * It also measures the number of sessions open at the same time from the records of the stream
+ * The sessions themselves are not kept, so the queries that list sessions are not supported
+ * The first and last sessions are the ones a RecordList of the same log would give
+ *
+ * @author Thales Gao
+ */
+public class StreamSummary implements SessionTracker.Sink, LogParser.FieldSink, SessionQueries {
+     private final UserDictionary users;
+     //first and last session of every user by user id, with the numbers of their logins
+     private ArrayList<Session> first = new ArrayList<>();
+     private ArrayList<Session> last = new ArrayList<>();
+     private long[] firstNumbers = new long[64];
+     private long[] lastNumbers = new long[64];
+     private long[] totals = new long[64];
+     private final ConcurrencyAnalyzer concurrency;
+     private long records;
+
+     /**
+      * Constructor initializes a summary with no sessions
+      * @param users The dictionary the user ids of the stream come from
+      * @throws IllegalArgumentException if the dictionary is null
+      */
+     public StreamSummary(UserDictionary users) throws IllegalArgumentException {
+          if (users == null)
+               throw new IllegalArgumentException("Dictionary cannot be null");
+          this.users = users;
+          this.concurrency = new ConcurrencyAnalyzer(users, null);
+     }
+
+     /**
+      * Adds a session to the summary of its user
+      * @param session The completed or still active session
+      * @param loginNumber The number of logins before the login of the session
+      */
+     @Override
+     public void accept(Session session, long loginNumber) {
+          int id = users.idOf(session.getUsername());
+          if (id < 0) {
+               return;
+          }
+          if (id >= totals.length) {
+               int length = Math.max(id + 1, 2 * totals.length);
+               firstNumbers = Arrays.copyOf(firstNumbers, length);
+               lastNumbers = Arrays.copyOf(lastNumbers, length);
+               totals = Arrays.copyOf(totals, length);
+          }
+          Session f = id < first.size() ? first.get(id) : null;
+          if (f == null || before(session, loginNumber, f, firstNumbers[id])) {
+               set(first, id, session);
+               firstNumbers[id] = loginNumber;
+          }
+          Session l = id < last.size() ? last.get(id) : null;
+          if (l == null || before(l, lastNumbers[id], session, loginNumber)) {
+               set(last, id, session);
+               lastNumbers[id] = loginNumber;
+          }
+          if (session.getDuration() > 0) {
+               totals[id] += session.getDuration();
+          }
+     }
+
+     /**
+      * Passes the fields of a record of the stream to the measure of open sessions
+      * @param terminal The terminal number
+      * @param login true for a login, false for a logout
+      * @param userId The id of the user
+      * @param username The username
+      * @param time The time in milliseconds since the epoch
+      */
+     @Override
+     public void accept(int terminal, boolean login, int userId, String username, long time) {
+          records++;
+          concurrency.accept(terminal, login, userId, username, time);
+     }
+
+     /**
+      * Returns the number of records of the stream received so far
+      * @return the number of records
+      */
+     public long getRecordCount() {
+          return records;
+     }
+
+     /**
+      * Returns the first login session of a specific user
+      * i.e. earliest login time
+      * @param user The user whose information is to be accessed
+      * @return the first login session of a specific user
+      * @throws NoSuchElementException where the specific user does not match any record
+      * @throws IllegalArgumentException when the argument string is invalid
+      */
+     public Session getFirstSession(String user) throws NoSuchElementException, IllegalArgumentException {
+          if (user == null || user.isEmpty())
+               throw new IllegalArgumentException("Invalid username.");
+          return first.get(this.userOf(user));
+     }
+
+     /**
+      * Returns the last logout session of a specific user
+      * i.e. latest logout time
+      * @param user The user whose information is to be accessed
+      * @return the last logout session of a specific user
+      * @throws NoSuchElementException where the specific user does not match any record
+      * @throws IllegalArgumentException when the argument string is invalid
+      */
+     public Session getLastSession(String user) throws NoSuchElementException, IllegalArgumentException {
+          if (user == null || user.isEmpty())
+               throw new IllegalArgumentException("Invalid username");
+          return last.get(this.userOf(user));
+     }
+
+     /**
+      * Provides the total login time of a specified user
+      * @param user The user whose information is to be accessed
+      * @return the total duration of the user
+      * @throws NoSuchElementException where the specific user does not match any record
+      * @throws IllegalArgumentException when the argument string is invalid
+      */
+     public long getTotalTime(String user) throws NoSuchElementException, IllegalArgumentException {
+          if (user == null || user.isEmpty())
+               throw new IllegalArgumentException("Invalid username");
+          return totals[this.userOf(user)];
+     }
+
+     /**
+      * Not supported, the sessions are not kept
+      * @throws UnsupportedOperationException always
+      */
+     public SortedLinkedList<Session> getAllSessions(String user) throws UnsupportedOperationException {
+          throw new UnsupportedOperationException("The sessions of a stream are not kept");
+     }
+
+     /**
+      * Not supported, the sessions are not kept
+      * @throws UnsupportedOperationException always
+      */
+     public SessionIndex getSessionIndex() throws UnsupportedOperationException {
+          throw new UnsupportedOperationException("The sessions of a stream are not kept");
+     }
+
+     /**
+      * Returns the number of sessions open at the same time, measured while the log was read
+      * @param listener Must be null, the time series is over once the log was read
+      * @return the analyzer holding the peaks and the time spent at each number of open sessions
+      * @throws UnsupportedOperationException if a listener is given
+      */
+     public ConcurrencyAnalyzer analyzeConcurrency(ConcurrencyAnalyzer.Listener listener) throws UnsupportedOperationException {
+          if (listener != null)
+               throw new UnsupportedOperationException("The time series of a stream cannot be replayed");
+          concurrency.flush();
+          return concurrency;
+     }
+
+     /**
+      * Returns the users with the largest total login time over the whole log
+      * @param k The largest number of users to return
+      * @param from Must be Long.MIN_VALUE, only the totals of the whole log are kept
+      * @param to Must be Long.MAX_VALUE
+      * @return at most k users with a positive total, the largest total first
+      * @throws IllegalArgumentException if k is not positive or from is after to
+      * @throws UnsupportedOperationException if the range is not the whole time range
+      */
+     public List<UserTotal> topUsers(int k, long from, long to) throws IllegalArgumentException, UnsupportedOperationException {
+          if (from > to)
+               throw new IllegalArgumentException("The range ends before it starts");
+          if (from != Long.MIN_VALUE || to != Long.MAX_VALUE)
+               throw new UnsupportedOperationException("Only the totals of the whole log are kept");
+          return UserTotals.top(totals, users, k);
+     }
+
+     /**
+      * Returns the id of a user who has at least one session
+      * @throws NoSuchElementException if the user has no session
+      */
+     private int userOf(String user) throws NoSuchElementException {
+          int id = users.idOf(user);
+          if (id < 0 || id >= first.size() || first.get(id) == null)
+               throw new NoSuchElementException("The given user does not have a login record.");
+          return id;
+     }
+
+     /**
+      * Tells if a session comes before another one in a RecordList of the log: logins in time order,
+      * and logins made at the same time in the reverse order of the log
+      */
+     private static boolean before(Session a, long aNumber, Session b, long bNumber) {
+          long ta = a.getLoginTime().getTime();
+          long tb = b.getLoginTime().getTime();
+          return ta < tb || (ta == tb && aNumber > bNumber);
+     }
+
+     /**
+      * Sets the element at an index of a table by user id, growing the table with nulls if needed
+      */
+     private static <T> void set(ArrayList<T> table, int id, T value) {
+          while (table.size() <= id) {
+               table.add(null);
+          }
+          table.set(id, value);
+     }
+}
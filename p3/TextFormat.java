@@ -0,0 +1,122 @@
+package project3;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * The TextFormat class writes dates, durations and numbers to an Appendable without building
+ * a String for each of them
+ * Dates are written exactly as Date.toString writes them, in the default time zone: the parts
+ * that only change from one day to the next are formatted once per day and kept by each thread,
+ * and the time of day is written digit by digit
+ *
+ * @author Thales Gao
+ */
+final class TextFormat {
+     private static final long DAY = 86400000L;
+     private static final ThreadLocal<TextFormat> LOCAL = ThreadLocal.withInitial(TextFormat::new);
+
+     //the day formatted last, in local time, and its offset from UTC
+     private final TimeZone zone = TimeZone.getDefault();
+     private long day = Long.MIN_VALUE;
+     private int offset;
+     //"EEE MMM dd " and " zzz yyyy" of that day
+     private String prefix;
+     private String suffix;
+
+     private TextFormat() {
+     }
+
+     /**
+      * Writes a time like Date.toString does
+      * @param out Where the text goes
+      * @param time The time in milliseconds since the epoch
+      * @throws IOException if out cannot be written
+      */
+     static void appendDate(Appendable out, long time) throws IOException {
+          LOCAL.get().writeDate(out, time);
+     }
+
+     /**
+      * Writes a duration as days, hours, minutes and seconds, like Session.durationStr
+      * @param out Where the text goes
+      * @param millis The duration in milliseconds
+      * @throws IOException if out cannot be written
+      */
+     static void appendDuration(Appendable out, long millis) throws IOException {
+          long seconds = millis / 1000;
+          long minutes = seconds / 60;
+          seconds %= 60;
+          long hours = minutes / 60;
+          minutes %= 60;
+          long days = hours / 24;
+          hours %= 24;
+          appendLong(out, days);
+          out.append(" days, ");
+          appendLong(out, hours);
+          out.append(" hours, ");
+          appendLong(out, minutes);
+          out.append(" minutes, ");
+          appendLong(out, seconds);
+          out.append(" seconds");
+     }
+
+     /**
+      * Writes a number in decimal
+      * @param out Where the text goes
+      * @param value The number
+      * @throws IOException if out cannot be written
+      */
+     static void appendLong(Appendable out, long value) throws IOException {
+          if (out instanceof StringBuilder) {
+               ((StringBuilder) out).append(value);
+               return;
+          }
+          if (value == 0) {
+               out.append('0');
+               return;
+          }
+          if (value < 0) {
+               out.append('-');
+          }
+          boolean started = false;
+          //digits are taken from the top, as absolute values so that Long.MIN_VALUE works too
+          for (long unit = 1000000000000000000L; unit > 0; unit /= 10) {
+               int digit = (int) Math.abs(value / unit % 10);
+               if (digit != 0 || started) {
+                    out.append((char) ('0' + digit));
+                    started = true;
+               }
+          }
+     }
+
+     /**
+      * Writes a time, formatting the day again only when it differs from the last one
+      */
+     private void writeDate(Appendable out, long time) throws IOException {
+          int timeOffset = zone.getOffset(time);
+          long local = time + timeOffset;
+          long localDay = Math.floorDiv(local, DAY);
+          if (localDay != day || timeOffset != offset) {
+               String text = new Date(time).toString();
+               prefix = text.substring(0, 11);
+               suffix = text.substring(19);
+               day = localDay;
+               offset = timeOffset;
+          }
+          int seconds = (int) (Math.floorMod(local, DAY) / 1000);
+          out.append(prefix);
+          appendTwoDigits(out, seconds / 3600);
+          out.append(':');
+          appendTwoDigits(out, seconds / 60 % 60);
+          out.append(':');
+          appendTwoDigits(out, seconds % 60);
+          out.append(suffix);
+     }
+
+     private static void appendTwoDigits(Appendable out, int value) throws IOException {
+          out.append((char) ('0' + value / 10));
+          out.append((char) ('0' + value % 10));
+     }
+}
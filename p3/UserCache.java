@@ -0,0 +1,137 @@
+package project3;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The UserCache class keeps the answers computed for the most recently queried users
+ * It holds at most a fixed number of users and drops the least recently used one when it is full
+ * The entry of a user must be invalidated whenever one of their records is added or removed
+ * All methods can be called by several threads at once
+ *
+ * @author Thales Gao
+ */
+public class UserCache {
+     private final int capacity;
+     private final LinkedHashMap<Integer, Entry> entries;
+     private long hits;
+     private long misses;
+     private long evictions;
+
+     /**
+      * The cached answers for one user
+      */
+     static class Entry {
+          //sessions of the user in the order of getAllSessions
+          final ArrayList<Session> sessions;
+          //total duration of the completed sessions
+          final long total;
+
+          Entry(ArrayList<Session> sessions, long total) {
+               this.sessions = sessions;
+               this.total = total;
+          }
+     }
+
+     /**
+      * Constructor initializes an empty cache
+      * @param capacity The largest number of users kept
+      * @throws IllegalArgumentException if the capacity is not positive
+      */
+     public UserCache(int capacity) throws IllegalArgumentException {
+          if (capacity <= 0)
+               throw new IllegalArgumentException("Invalid capacity: " + capacity);
+          this.capacity = capacity;
+          //access order, so the eldest entry is the least recently used one
+          this.entries = new LinkedHashMap<Integer, Entry>(16, 0.75f, true) {
+               @Override
+               protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+                    if (size() > UserCache.this.capacity) {
+                         evictions++;
+                         return true;
+                    }
+                    return false;
+               }
+          };
+     }
+
+     /**
+      * Returns the entry of a user and counts a hit or a miss
+      * @param id The id of the user
+      * @return the entry of the user, null if it is not cached
+      */
+     synchronized Entry get(int id) {
+          Entry entry = entries.get(id);
+          if (entry == null) {
+               misses++;
+          } else {
+               hits++;
+          }
+          return entry;
+     }
+
+     /**
+      * Stores the entry of a user, dropping the least recently used user if the cache is full
+      * @param id The id of the user
+      * @param entry The answers for the user
+      */
+     synchronized void put(int id, Entry entry) {
+          entries.put(id, entry);
+     }
+
+     /**
+      * Drops the entry of a user after their records changed
+      * @param id The id of the user
+      */
+     synchronized void invalidate(int id) {
+          entries.remove(id);
+     }
+
+     /**
+      * Drops every entry, keeping the counters
+      */
+     synchronized void clear() {
+          entries.clear();
+     }
+
+     /**
+      * Returns the largest number of users the cache holds
+      * @return the capacity of the cache
+      */
+     public int getCapacity() {
+          return capacity;
+     }
+
+     /**
+      * Returns the number of users currently cached
+      * @return the number of entries
+      */
+     public synchronized int size() {
+          return entries.size();
+     }
+
+     /**
+      * Returns the number of lookups answered from the cache
+      * @return the number of hits
+      */
+     public synchronized long getHits() {
+          return hits;
+     }
+
+     /**
+      * Returns the number of lookups that had to compute the answers
+      * @return the number of misses
+      */
+     public synchronized long getMisses() {
+          return misses;
+     }
+
+     /**
+      * Returns the number of users dropped to make room for others
+      * @return the number of evictions
+      */
+     public synchronized long getEvictions() {
+          return evictions;
+     }
+}
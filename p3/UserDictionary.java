@@ -0,0 +1,97 @@
+package project3;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The UserDictionary class gives every distinct username a dense integer id
+ * The ids are assigned in order of first appearance, starting at 0, so they can index arrays
+ * Each name is stored once and the same String object is returned for every record of a user,
+ * which keeps memory low and makes comparing names as cheap as comparing references
+ * The dictionary can be shared by threads parsing different parts of a log
+ *
+ * @author Thales Gao
+ */
+public class UserDictionary {
+     private ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+     private volatile String[] names = new String[64];
+     private volatile int size;
+
+     /**
+      * Returns the id of a username, giving it a new id if it has not been seen before
+      * @param name The username
+      * @return the id of the username
+      * @throws IllegalArgumentException if the name is null
+      */
+     public int intern(String name) throws IllegalArgumentException {
+          if (name == null)
+               throw new IllegalArgumentException("Username cannot be null");
+          Integer id = ids.get(name);
+          if (id != null) {
+               return id;
+          }
+          synchronized (this) {
+               id = ids.get(name);
+               if (id != null) {
+                    return id;
+               }
+               int next = size;
+               if (next == names.length) {
+                    names = Arrays.copyOf(names, next * 2);
+               }
+               names[next] = name;
+               //publish the name before the id, so a thread that finds the id can also read the name
+               size = next + 1;
+               ids.put(name, next);
+               return next;
+          }
+     }
+
+     /**
+      * Returns the id of a username without adding it
+      * @param name The username
+      * @return the id of the username, -1 if it is not in the dictionary
+      */
+     public int idOf(String name) {
+          if (name == null) {
+               return -1;
+          }
+          Integer id = ids.get(name);
+          return id == null ? -1 : id;
+     }
+
+     /**
+      * Returns the id of the user of a record
+      * The id stored in the record is used directly when it belongs to this dictionary
+      * @param r The record
+      * @return the id of the user of the record, -1 if the record has no username
+      */
+     public int idOf(Record r) {
+          int id = r.getUserId();
+          if (id >= 0 && id < size && names[id] == r.getUsername()) {
+               return id;
+          }
+          return r.getUsername() == null ? -1 : this.intern(r.getUsername());
+     }
+
+     /**
+      * Returns the username with the given id
+      * @param id The id
+      * @return the username
+      * @throws IndexOutOfBoundsException if there is no user with that id
+      */
+     public String name(int id) throws IndexOutOfBoundsException {
+          if (id < 0 || id >= size) {
+               throw new IndexOutOfBoundsException("no user with id " + id);
+          }
+          return names[id];
+     }
+
+     /**
+      * Returns the number of distinct usernames
+      * @return the number of usernames in the dictionary
+      */
+     public int size() {
+          return size;
+     }
+}
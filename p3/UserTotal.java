@@ -0,0 +1,61 @@
+package project3;
+
+/**
+ * The UserTotal class holds the total login time of one user, as listed by a top users query
+ * Totals are ordered from the largest to the smallest, and users with the same total by name
+ *
+ * @author Thales Gao
+ */
+public class UserTotal implements Comparable<UserTotal> {
+     private final String username;
+     private final long total;
+
+     /**
+      * Constructor initializes the total of a user
+      * @param username The username
+      * @param total The total login time in milliseconds
+      * @throws IllegalArgumentException if the username is null
+      */
+     public UserTotal(String username, long total) throws IllegalArgumentException {
+          if (username == null)
+               throw new IllegalArgumentException("Username cannot be null");
+          this.username = username;
+          this.total = total;
+     }
+
+     /**
+      * Returns the username
+      * @return the username
+      */
+     public String getUsername() {
+          return username;
+     }
+
+     /**
+      * Returns the total login time of the user
+      * @return the total in milliseconds
+      */
+     public long getTotalTime() {
+          return total;
+     }
+
+     /**
+      * Compares two totals, the larger total coming first
+      * @param t The total to compare to
+      * @return a negative number if this total comes first, a positive one if it comes after, 0 if they are equal
+      */
+     @Override
+     public int compareTo(UserTotal t) {
+          int c = Long.compare(t.total, this.total);
+          return c != 0 ? c : this.username.compareTo(t.username);
+     }
+
+     /**
+      * Returns the username and the total login time in milliseconds
+      * @return a string of the form username: total
+      */
+     @Override
+     public String toString() {
+          return username + ": " + total;
+     }
+}
@@ -0,0 +1,155 @@
+package project3;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * The UserTotals class adds up the login time of every user in a single pass over the records
+ * in time order, pairing them with the same rule as SessionTracker
+ * The totals are kept in an array indexed by user id, and only the part of each completed session
+ * that falls in a time window is counted; active sessions are not counted, like in getTotalTime
+ * The users with the largest totals are selected with a heap holding at most k of them
+ *
+ * @author Thales Gao
+ */
+public class UserTotals implements LogParser.FieldSink {
+     private final UserDictionary users;
+     private final long from;
+     private final long to;
+     private final OpenLogins open = new OpenLogins(this::completed);
+     private long[] totals = new long[64];
+     private long lastRecord = Long.MIN_VALUE;
+
+     /**
+      * Constructor initializes totals of the whole time range
+      * @param users The dictionary the user ids of the records come from
+      * @throws IllegalArgumentException if the dictionary is null
+      */
+     public UserTotals(UserDictionary users) throws IllegalArgumentException {
+          this(users, Long.MIN_VALUE, Long.MAX_VALUE);
+     }
+
+     /**
+      * Constructor initializes totals of the time between from and to
+      * @param users The dictionary the user ids of the records come from
+      * @param from The start of the window in milliseconds since the epoch
+      * @param to The end of the window in milliseconds since the epoch
+      * @throws IllegalArgumentException if the dictionary is null or from is after to
+      */
+     public UserTotals(UserDictionary users, long from, long to) throws IllegalArgumentException {
+          if (users == null)
+               throw new IllegalArgumentException("Dictionary cannot be null");
+          if (from > to)
+               throw new IllegalArgumentException("The range ends before it starts");
+          this.users = users;
+          this.from = from;
+          this.to = to;
+     }
+
+     /**
+      * Processes the next record
+      * @param r The next record in time order
+      * @throws IllegalArgumentException if the record is earlier than the previous one
+      */
+     public void accept(Record r) throws IllegalArgumentException {
+          if (r == null) {
+               return;
+          }
+          this.accept(r.getTerminal(), r.isLogin(), users.idOf(r), r.getUsername(), r.getTime().getTime());
+     }
+
+     /**
+      * Processes the fields of the next record
+      * @param terminal The terminal number
+      * @param login true for a login, false for a logout
+      * @param userId The id of the user in the dictionary of the totals
+      * @param username The username, not used
+      * @param time The time in milliseconds since the epoch
+      * @throws IllegalArgumentException if the record is earlier than the previous one
+      */
+     @Override
+     public void accept(int terminal, boolean login, int userId, String username, long time) throws IllegalArgumentException {
+          if (time < lastRecord)
+               throw new IllegalArgumentException("Records must be given in time order");
+          lastRecord = time;
+          if (userId < 0) {
+               return;
+          }
+          if (login) {
+               //a session starting after the window cannot count
+               if (time < to) {
+                    open.login(userId, terminal, time);
+               }
+          } else {
+               open.logout(userId, terminal, time);
+          }
+     }
+
+     /**
+      * Returns the total login time of a user
+      * @param userId The id of the user
+      * @return the total in milliseconds, 0 if the user has no completed session in the window
+      */
+     public long getTotal(int userId) {
+          return userId >= 0 && userId < totals.length ? totals[userId] : 0;
+     }
+
+     /**
+      * Returns the users with the largest totals
+      * @param k The largest number of users to return
+      * @return at most k users with a positive total, the largest total first
+      * @throws IllegalArgumentException if k is not positive
+      */
+     public List<UserTotal> top(int k) throws IllegalArgumentException {
+          return top(totals, users, k);
+     }
+
+     /**
+      * Selects the users with the largest totals with a heap of at most k users
+      * @param totals The total of every user by user id
+      * @param users The dictionary of the users
+      * @param k The largest number of users to return
+      * @return at most k users with a positive total, the largest total first
+      * @throws IllegalArgumentException if k is not positive
+      */
+     static List<UserTotal> top(long[] totals, UserDictionary users, int k) throws IllegalArgumentException {
+          if (k <= 0)
+               throw new IllegalArgumentException("Invalid count: " + k);
+          //the smallest of the best totals so far is at the head
+          PriorityQueue<UserTotal> best = new PriorityQueue<>(Math.min(k, 1024), Collections.reverseOrder());
+          for (int id = 0; id < totals.length; id++) {
+               if (totals[id] <= 0) {
+                    continue;
+               }
+               if (best.size() < k) {
+                    best.add(new UserTotal(users.name(id), totals[id]));
+               } else if (totals[id] >= best.peek().getTotalTime()) {
+                    UserTotal total = new UserTotal(users.name(id), totals[id]);
+                    if (total.compareTo(best.peek()) < 0) {
+                         best.poll();
+                         best.add(total);
+                    }
+               }
+          }
+          ArrayList<UserTotal> list = new ArrayList<>(best);
+          Collections.sort(list);
+          return list;
+     }
+
+     /**
+      * Adds the part of a completed session that falls in the window to the total of its user
+      */
+     private void completed(int userId, int terminal, long login, long logout) {
+          long duration = Math.min(logout, to) - Math.max(login, from);
+          if (duration <= 0) {
+               return;
+          }
+          if (userId >= totals.length) {
+               totals = Arrays.copyOf(totals, Math.max(userId + 1, 2 * totals.length));
+          }
+          totals[userId] += duration;
+     }
+}
@@ -0,0 +1,66 @@
+package project3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Tests that BatchRunner writes the answers the interactive program would print, in the order of the commands
+ *
+ * @author Thales Gao
+ */
+class BatchRunnerTest {
+     private static final ForkJoinPool POOL = new ForkJoinPool(4);
+     private static final String[] COMMANDS = {"first u%d", "last u%d", "all u%d", "total u%d", "at %d", "during %d %d",
+               "terminal 2 %d", "top 3", "peak", "stats", "first", "nonsense u%d"};
+
+     @TempDir
+     Path dir;
+
+     @AfterAll
+     static void shutdown() {
+          POOL.shutdown();
+     }
+
+     @ParameterizedTest
+     @EnumSource(OutputFormat.class)
+     void answersComeInTheOrderOfTheCommands(OutputFormat format) throws IOException {
+          Random random = new Random(18);
+          RecordList list = new RecordList();
+          list.addAll(TestLogs.records(random, 500, 10, 30));
+          //enough commands for several tasks, many of them repeated
+          List<String> commands = new ArrayList<>();
+          for (int i = 0; i < 300; i++) {
+               long time = TestLogs.EPOCH + 1000L * random.nextInt(30);
+               commands.add(String.format(COMMANDS[random.nextInt(COMMANDS.length)], random.nextInt(11), time, time + 5000));
+          }
+          Path in = dir.resolve("commands.txt");
+          List<String> lines = new ArrayList<>(commands);
+          lines.add("quit");
+          lines.add("first u1");
+          Files.write(in, lines, StandardCharsets.UTF_8);
+
+          StringBuilder expected = new StringBuilder();
+          for (String command : commands) {
+               expected.append(LoginStats.answer(list, command.split(" "), format));
+          }
+          BatchRunner runner = new BatchRunner(list, POOL);
+          runner.setFormat(format);
+          Path out = dir.resolve("answers.txt");
+          assertEquals(commands.size(), runner.run(in, out));
+          assertEquals(commands.stream().distinct().count(), runner.getDistinctCount());
+          assertEquals(expected.toString(), new String(Files.readAllBytes(out), StandardCharsets.UTF_8));
+     }
+}
@@ -0,0 +1,87 @@
+package project3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that a ColumnarRecordList keeps the records in the order of a RecordList and answers the same
+ *
+ * @author Thales Gao
+ */
+class ColumnarRecordListTest {
+
+     @Test
+     void recordAddedAfterSortKeepsEarlierTiesInOrder() {
+          ColumnarRecordList columnar = new ColumnarRecordList();
+          RecordList list = new RecordList();
+          for (Record r : List.of(record(1, 5), record(2, 5))) {
+               columnar.add(r);
+               list.add(r);
+          }
+          columnar.get(0);
+          Record early = record(3, 1);
+          columnar.add(early);
+          list.add(early);
+          assertEquals(terminals(list), terminals(columnar));
+          assertEquals(List.of(3, 2, 1), terminals(columnar));
+     }
+
+     @Test
+     void sameAnswersAsRecordListWhileRecordsArrive() {
+          Random random = new Random(7);
+          for (int round = 0; round < 50; round++) {
+               ColumnarRecordList columnar = new ColumnarRecordList();
+               RecordList list = new RecordList();
+               for (Record r : TestLogs.records(random, 1 + random.nextInt(200), 4, 20)) {
+                    columnar.add(r);
+                    list.add(r);
+                    //sorting the columns now and then leaves a sorted part for the next records to merge into
+                    if (random.nextInt(10) == 0) {
+                         assertEquals(TestLogs.line(list.get(0)), TestLogs.line(columnar.get(0)));
+                    }
+               }
+               assertEquals(TestLogs.lines(list), lines(columnar));
+               for (int u = 0; u < 5; u++) {
+                    assertEquals(TestLogs.answers(list, "u" + u), TestLogs.answers(columnar, "u" + u));
+               }
+               for (int t = 0; t < 20; t++) {
+                    long time = TestLogs.EPOCH + 1000L * t;
+                    assertEquals(TestLogs.text(list.getSessionIndex().at(time)), TestLogs.text(columnar.getSessionIndex().at(time)));
+               }
+          }
+     }
+
+     private static Record record(int terminal, long seconds) {
+          return new Record(terminal, true, "x", new Date(TestLogs.EPOCH + 1000 * seconds));
+     }
+
+     private static List<Integer> terminals(RecordList list) {
+          List<Integer> terminals = new ArrayList<>();
+          for (Record r : list) {
+               terminals.add(r.getTerminal());
+          }
+          return terminals;
+     }
+
+     private static List<Integer> terminals(ColumnarRecordList columnar) {
+          List<Integer> terminals = new ArrayList<>();
+          for (int i = 0; i < columnar.size(); i++) {
+               terminals.add(columnar.get(i).getTerminal());
+          }
+          return terminals;
+     }
+
+     private static List<String> lines(ColumnarRecordList columnar) {
+          List<String> lines = new ArrayList<>();
+          for (int i = 0; i < columnar.size(); i++) {
+               lines.add(TestLogs.line(columnar.get(i)));
+          }
+          return lines;
+     }
+}
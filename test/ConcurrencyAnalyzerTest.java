@@ -0,0 +1,184 @@
+package project3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the statistics of ConcurrencyAnalyzer against counts of the open sessions at every time
+ *
+ * @author Thales Gao
+ */
+class ConcurrencyAnalyzerTest {
+     private static final int USERS = 8;
+
+     private static List<Session> sessions(RecordList list) {
+          List<Session> sessions = new ArrayList<>();
+          for (int u = 0; u < USERS; u++) {
+               sessions.addAll(RecordListTest.scan(list, "u" + u));
+          }
+          return sessions;
+     }
+
+     private static long end(Session s) {
+          return s.getLogoutTime() == null ? Long.MAX_VALUE : s.getLogoutTime().getTime();
+     }
+
+     /* The number of sessions open at a time, on one terminal or on all of them when terminal is 0. */
+     private static int level(List<Session> sessions, int terminal, long time) {
+          int level = 0;
+          for (Session s : sessions) {
+               if ((terminal == 0 || s.getTerminal() == terminal) && s.getLoginTime().getTime() <= time && end(s) > time) {
+                    level++;
+               }
+          }
+          return level;
+     }
+
+     /* The statistics of the analyzer worked out from the levels at the times a session opened or closed. */
+     private static String expected(List<Session> sessions) {
+          TreeSet<Long> times = new TreeSet<>();
+          TreeSet<Integer> terminals = new TreeSet<>();
+          for (Session s : sessions) {
+               times.add(s.getLoginTime().getTime());
+               if (s.getLogoutTime() != null) {
+                    times.add(s.getLogoutTime().getTime());
+               }
+               terminals.add(s.getTerminal());
+          }
+          if (times.isEmpty()) {
+               return "0@0 0-0 0";
+          }
+          long start = Long.MAX_VALUE;
+          for (Session s : sessions) {
+               start = Math.min(start, s.getLoginTime().getTime());
+          }
+          long end = times.last();
+          List<Long> changes = new ArrayList<>(times.tailSet(start));
+          StringBuilder text = new StringBuilder();
+          int[] peak = peak(sessions, 0, changes);
+          text.append(peak[0]).append('@').append(changes.get(peak[1])).append(' ').append(start).append('-').append(end);
+          for (int l = 0; l <= peak[0]; l++) {
+               long atLevel = 0;
+               for (int i = 0; i + 1 < changes.size(); i++) {
+                    if (level(sessions, 0, changes.get(i)) == l) {
+                         atLevel += changes.get(i + 1) - changes.get(i);
+                    }
+               }
+               text.append(' ').append(atLevel);
+          }
+          for (int t : terminals) {
+               int[] terminalPeak = peak(sessions, t, changes);
+               long busy = 0;
+               for (int i = 0; i + 1 < changes.size(); i++) {
+                    if (level(sessions, t, changes.get(i)) > 0) {
+                         busy += changes.get(i + 1) - changes.get(i);
+                    }
+               }
+               text.append(" t").append(t).append(':').append(terminalPeak[0]).append('@')
+                         .append(changes.get(terminalPeak[1])).append('/').append(busy);
+          }
+          return text.toString();
+     }
+
+     /* The highest level and the index of the first time it was reached. */
+     private static int[] peak(List<Session> sessions, int terminal, List<Long> changes) {
+          int[] peak = {0, 0};
+          for (int i = 0; i < changes.size(); i++) {
+               int level = level(sessions, terminal, changes.get(i));
+               if (level > peak[0]) {
+                    peak[0] = level;
+                    peak[1] = i;
+               }
+          }
+          return peak;
+     }
+
+     @Test
+     void statisticsMatchTheLevelsAtEveryChange() {
+          Random random = new Random(16);
+          for (int round = 0; round < 40; round++) {
+               RecordList list = new RecordList();
+               list.addAll(TestLogs.records(random, random.nextInt(120), USERS, 25));
+               List<Session> sessions = sessions(list);
+               String expected = expected(sessions);
+
+               //from the records one by one, and from the sessions the list already paired
+               ConcurrencyAnalyzer streamed = new ConcurrencyAnalyzer(list.getUserDictionary(), null);
+               for (Record r : list) {
+                    streamed.accept(r);
+               }
+               assertEquals(expected, TestLogs.summary(streamed));
+               assertEquals(expected, TestLogs.summary(list.analyzeConcurrency(null)));
+          }
+     }
+
+     @Test
+     void listenerSeesTheLevelAfterEveryChange() {
+          RecordList list = new RecordList();
+          list.addAll(TestLogs.records(new Random(17), 300, USERS, 40));
+          List<Session> sessions = sessions(list);
+          List<long[]> series = new ArrayList<>();
+          ConcurrencyAnalyzer analyzer = list.analyzeConcurrency((time, level) -> series.add(new long[] {time, level}));
+          assertTrue(series.size() > 1);
+          for (int i = 0; i < series.size(); i++) {
+               long time = series.get(i)[0];
+               assertEquals(level(sessions, 0, time), series.get(i)[1]);
+               if (i > 0) {
+                    assertTrue(time > series.get(i - 1)[0]);
+                    assertTrue(series.get(i)[1] != series.get(i - 1)[1]);
+               }
+          }
+          assertEquals(series.get(series.size() - 1)[1], analyzer.getLevel());
+     }
+
+     @Test
+     void openLoginsTableFollowsTheLoginsThatAreOpen() {
+          List<long[]> completed = new ArrayList<>();
+          OpenLogins open = new OpenLogins((userId, terminal, login, logout) -> completed.add(new long[] {userId, terminal, login, logout}));
+          //many users on many terminals, each session closed before the next one opens
+          for (int i = 0; i < 10000; i++) {
+               open.login(i, i % 97 + 1, 2L * i);
+               assertEquals(1, open.logout(i, i % 97 + 1, 2L * i + 1));
+          }
+          assertEquals(10000, completed.size());
+          assertEquals(16, open.capacity());
+
+          //many open at once, then all closed again
+          for (int i = 0; i < 5000; i++) {
+               open.login(i, 1, 100000);
+               open.login(i, 1, 100001);
+          }
+          assertEquals(10000, open.getOpenCount());
+          assertTrue(open.capacity() >= 10000);
+          for (int i = 0; i < 5000; i++) {
+               //a login in the same millisecond as the logout stays open
+               assertEquals(1, open.logout(i, 1, 100001));
+          }
+          assertEquals(5000, open.getOpenCount());
+          for (int i = 4999; i >= 0; i--) {
+               assertEquals(1, open.logout(i, 1, 100002));
+          }
+          assertEquals(0, open.getOpenCount());
+          assertEquals(16, open.capacity());
+          assertEquals(0, open.logout(7, 1, 100003));
+          assertEquals(20000, completed.size());
+     }
+
+     @Test
+     void recordsOutOfOrderAreRejected() {
+          UserDictionary users = new UserDictionary();
+          ConcurrencyAnalyzer analyzer = new ConcurrencyAnalyzer(users, null);
+          analyzer.accept(new Record(1, true, "a", new Date(10)));
+          assertThrows(IllegalArgumentException.class, () -> analyzer.accept(new Record(1, false, "a", new Date(9))));
+          assertThrows(IllegalArgumentException.class, () -> new ConcurrencyAnalyzer(null, null));
+     }
+}
@@ -0,0 +1,181 @@
+package project3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that a ConcurrentSortedList stays sorted and consistent while threads change and read it
+ *
+ * @author Thales Gao
+ */
+class ConcurrentSortedListTest {
+     private static final int WRITERS = 3;
+     private static final int READERS = 2;
+
+     @Test
+     void readersSeeSortedListsWhileWritersChangeIt() throws Exception {
+          ConcurrentSortedList<Integer> list = new ConcurrentSortedList<>();
+          AtomicBoolean writing = new AtomicBoolean(true);
+          ExecutorService threads = Executors.newFixedThreadPool(WRITERS + READERS);
+          try {
+               List<Future<List<Integer>>> writers = new ArrayList<>();
+               for (int w = 0; w < WRITERS; w++) {
+                    int seed = w;
+                    //every writer adds its own values and removes some of them again, keeping the rest
+                    writers.add(threads.submit(() -> {
+                         Random random = new Random(seed);
+                         List<Integer> kept = new ArrayList<>();
+                         for (int i = 0; i < 3000; i++) {
+                              int value = random.nextInt(1000) * WRITERS + seed;
+                              if (random.nextInt(50) == 0) {
+                                   List<Integer> batch = new ArrayList<>();
+                                   for (int j = 0; j < 20; j++) {
+                                        batch.add(random.nextInt(1000) * WRITERS + seed);
+                                   }
+                                   list.addAll(batch);
+                                   kept.addAll(batch);
+                              } else if (!kept.isEmpty() && random.nextInt(3) == 0) {
+                                   assertTrue(list.remove(kept.remove(random.nextInt(kept.size()))));
+                              } else {
+                                   list.add(value);
+                                   kept.add(value);
+                              }
+                         }
+                         return kept;
+                    }));
+               }
+               List<Future<Integer>> readers = new ArrayList<>();
+               for (int r = 0; r < READERS; r++) {
+                    readers.add(threads.submit(() -> {
+                         int reads = 0;
+                         do {
+                              Integer previous = null;
+                              for (Integer value : list) {
+                                   assertTrue(previous == null || previous <= value, "iterated out of order");
+                                   previous = value;
+                              }
+                              int size = list.size();
+                              if (size > 0) {
+                                   list.get(size / 2);
+                              }
+                              reads++;
+                         } while (writing.get());
+                         return reads;
+                    }));
+               }
+               List<Integer> expected = new ArrayList<>();
+               for (Future<List<Integer>> writer : writers) {
+                    expected.addAll(writer.get());
+               }
+               writing.set(false);
+               for (Future<Integer> reader : readers) {
+                    assertTrue(reader.get() > 0);
+               }
+               expected.sort(null);
+               List<Integer> actual = new ArrayList<>();
+               for (Integer value : list) {
+                    actual.add(value);
+               }
+               assertEquals(expected, actual);
+               for (int i = 0; i < expected.size(); i += 97) {
+                    assertEquals(expected.get(i), list.get(i));
+                    assertEquals(expected.indexOf(expected.get(i)), list.indexOf(expected.get(i)));
+               }
+          } finally {
+               threads.shutdown();
+          }
+     }
+
+     @Test
+     void iteratorsLookAtTheNodesBeforeThemAfterOtherChanges() {
+          ConcurrentSortedList<Integer> list = new ConcurrentSortedList<>();
+          ListIterator<Integer> empty = list.listIterator();
+          for (int i = 1; i <= 5; i++) {
+               list.add(i);
+          }
+          //created on an empty list, the iterator is at the end of the elements added since
+          assertTrue(empty.hasPrevious());
+          assertEquals(5, empty.previous());
+
+          ListIterator<Integer> itr = list.listIterator();
+          assertEquals(1, itr.next());
+          assertEquals(2, itr.next());
+          list.remove(1);
+          list.remove(2);
+          assertFalse(itr.hasPrevious());
+          assertThrows(NoSuchElementException.class, itr::previous);
+          assertEquals(3, itr.next());
+          assertTrue(itr.hasPrevious());
+          assertEquals(3, itr.previous());
+     }
+
+     @Test
+     void sessionsIteratedWhileRecordsAreRemovedStillFindTheirLogouts() {
+          RecordList list = new RecordList(new UserDictionary(), true);
+          Record first = new Record(1, true, "a", new Date(TestLogs.EPOCH));
+          list.add(first);
+          list.add(new Record(1, false, "a", new Date(TestLogs.EPOCH + 5000)));
+          list.add(new Record(2, true, "a", new Date(TestLogs.EPOCH + 10000)));
+          list.add(new Record(2, false, "a", new Date(TestLogs.EPOCH + 20000)));
+          Iterator<Session> sessions = list.iterateSessions("a").iterator();
+          assertEquals(5000, sessions.next().getDuration());
+          assertTrue(sessions.hasNext());
+          //removed after the logins of the next session were read
+          list.remove(first);
+          assertEquals(10000, sessions.next().getDuration());
+          assertFalse(sessions.hasNext());
+     }
+
+     @Test
+     void recordListAnswersWhileRecordsArriveFromSeveralThreads() throws Exception {
+          RecordList list = new RecordList(new UserDictionary(), true);
+          List<List<Record>> parts = new ArrayList<>();
+          Random random = new Random(14);
+          for (int t = 0; t < WRITERS; t++) {
+               parts.add(TestLogs.records(random, 500, 8, 30));
+          }
+          ExecutorService threads = Executors.newFixedThreadPool(WRITERS + 1);
+          try {
+               List<Future<?>> tasks = new ArrayList<>();
+               for (List<Record> part : parts) {
+                    tasks.add(threads.submit(() -> {
+                         for (Record r : part) {
+                              list.add(r);
+                         }
+                    }));
+               }
+               tasks.add(threads.submit(() -> {
+                    for (int i = 0; i < 200; i++) {
+                         TestLogs.answers(list, "u" + i % 8);
+                         list.getSessionIndex().at(TestLogs.EPOCH + 1000L * (i % 30));
+                    }
+               }));
+               for (Future<?> task : tasks) {
+                    task.get();
+               }
+          } finally {
+               threads.shutdown();
+          }
+          //once the writers are done the answers are those of the records the list holds
+          for (int u = 0; u < 8; u++) {
+               assertEquals(RecordListTest.expected(list, "u" + u), TestLogs.answers(list, "u" + u));
+          }
+          assertEquals(3 * 500, list.size());
+     }
+}
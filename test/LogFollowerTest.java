@@ -0,0 +1,116 @@
+package project3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that LogFollower adds the lines appended to a log as they are completed
+ *
+ * @author Thales Gao
+ */
+class LogFollowerTest {
+
+     @TempDir
+     Path dir;
+
+     private static void append(Path file, String text) throws IOException {
+          Files.write(file, text.getBytes(StandardCharsets.US_ASCII), StandardOpenOption.APPEND);
+     }
+
+     @Test
+     void appendedLinesEndUpAsIfTheWholeLogWasLoaded() throws IOException {
+          Random random = new Random(12);
+          List<Record> records = TestLogs.records(random, 600, 10, 30);
+          Path file = dir.resolve("log.txt");
+          TestLogs.write(file, records.subList(0, 200));
+          RecordList list = new RecordList();
+          ParallelLoader loader = new ParallelLoader(file);
+          loader.load(list);
+
+          StringBuilder rest = new StringBuilder();
+          for (Record r : records.subList(200, records.size())) {
+               rest.append(TestLogs.line(r)).append('\n');
+          }
+          long malformedAt = Files.size(file) + rest.length();
+          rest.append("not a record\n");
+          try (LogFollower follower = new LogFollower(file, list, loader.getEndOffset())) {
+               //written in pieces that end in the middle of lines, polled after each piece
+               int written = 0;
+               while (written < rest.length()) {
+                    int end = Math.min(rest.length(), written + 1 + random.nextInt(120));
+                    append(file, rest.substring(written, end));
+                    written = end;
+                    follower.poll();
+                    int lineEnd = rest.lastIndexOf("\n", written - 1) + 1;
+                    assertEquals(Files.size(file) - (written - lineEnd), follower.getPosition());
+               }
+               assertEquals(0, follower.poll());
+               assertEquals(List.of(malformedAt), follower.getMalformedOffsets());
+          }
+
+          RecordList expected = new RecordList();
+          for (Record r : records) {
+               expected.add(r);
+          }
+          assertEquals(TestLogs.lines(expected), TestLogs.lines(list));
+          for (int u = 0; u < 10; u++) {
+               assertEquals(TestLogs.answers(expected, "u" + u), TestLogs.answers(list, "u" + u));
+          }
+     }
+
+     @Test
+     void lineHalfWrittenWhenTheLogWasLoadedIsReadOnceComplete() throws IOException {
+          Path file = dir.resolve("partial.txt");
+          Files.write(file, "1 1600000000000 a\n-1 1600000001000 a\n2 16000000".getBytes(StandardCharsets.US_ASCII));
+          RecordList list = new RecordList();
+          ParallelLoader loader = new ParallelLoader(file);
+          loader.load(list, true);
+          assertEquals(2, list.size());
+          assertEquals(Files.size(file) - "2 16000000".length(), loader.getEndOffset());
+          try (LogFollower follower = new LogFollower(file, list, loader.getEndOffset())) {
+               assertEquals(0, follower.poll());
+               append(file, "02000 b\n");
+               assertEquals(1, follower.poll());
+               assertEquals(List.of(), follower.getMalformedOffsets());
+          }
+          assertEquals(List.of("1 1600000000000 a", "-1 1600000001000 a", "2 1600000002000 b"), TestLogs.lines(list));
+          assertEquals(List.of(), loader.getMalformedOffsets());
+     }
+
+     @Test
+     void truncatedLogIsReadAgainFromTheStart() throws IOException {
+          Path file = dir.resolve("rotated.txt");
+          Files.write(file, "1 1600000000000 a\n-1 1600000001000 a\n".getBytes(StandardCharsets.US_ASCII));
+          RecordList list = new RecordList();
+          try (LogFollower follower = new LogFollower(file, list, 0)) {
+               assertEquals(2, follower.poll());
+               Files.write(file, "2 1600000002000 b\n".getBytes(StandardCharsets.US_ASCII));
+               assertEquals(1, follower.poll());
+               assertEquals(Files.size(file), follower.getPosition());
+               assertEquals(3, list.size());
+               follower.close();
+               append(file, "-2 1600000003000 b\n");
+               assertEquals(0, follower.poll());
+          }
+     }
+
+     @Test
+     void invalidArgumentsAreRejected() {
+          Path file = dir.resolve("missing.txt");
+          assertThrows(IllegalArgumentException.class, () -> new LogFollower(null, new RecordList(), 0));
+          assertThrows(IllegalArgumentException.class, () -> new LogFollower(file, null, 0));
+          assertThrows(IllegalArgumentException.class, () -> new LogFollower(file, new RecordList(), -1));
+          assertThrows(IOException.class, () -> new LogFollower(file, new RecordList(), 0));
+     }
+}
@@ -0,0 +1,110 @@
+package project3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that LogParser reads every well-formed line and reports the offsets of the others,
+ * however the file is cut into regions and ranges
+ *
+ * @author Thales Gao
+ */
+class LogParserTest {
+     private static final String[] MALFORMED = {"", "x 1600000000000 u1", "2 16000000a0000 u1", "3 1600000000000",
+               "99999999999 1600000000000 u2", "-1  ", "4 1600000000000 ", "\r"};
+
+     @TempDir
+     Path dir;
+
+     private final List<String> expectedLines = new ArrayList<>();
+     private final List<Long> expectedOffsets = new ArrayList<>();
+
+     /* Writes good and malformed lines mixed, remembering what should be parsed and where the bad lines start. */
+     private Path writeMixedLog(Random random, int count, boolean lastNewline) throws IOException {
+          StringBuilder text = new StringBuilder();
+          for (Record r : TestLogs.records(random, count, 8, 50)) {
+               if (random.nextInt(6) == 0) {
+                    expectedOffsets.add((long) text.length());
+                    text.append(MALFORMED[random.nextInt(MALFORMED.length)]).append('\n');
+               }
+               expectedLines.add(TestLogs.line(r));
+               //extra spaces and Windows line ends are accepted
+               text.append(TestLogs.line(r).replace(" ", random.nextBoolean() ? " " : "  "));
+               text.append(random.nextInt(4) == 0 ? "\r\n" : "\n");
+          }
+          if (!lastNewline) {
+               text.setLength(text.length() - (text.charAt(text.length() - 2) == '\r' ? 2 : 1));
+          }
+          Path file = dir.resolve("log" + count + ".txt");
+          Files.write(file, text.toString().getBytes(StandardCharsets.US_ASCII));
+          return file;
+     }
+
+     @Test
+     void malformedLinesAreSkippedAndTheirOffsetsRecorded() throws IOException {
+          Path file = writeMixedLog(new Random(5), 500, false);
+          LogParser parser = new LogParser(file);
+          List<Record> records = new ArrayList<>();
+          parser.parse(records::add);
+          assertEquals(expectedLines, TestLogs.lines(records));
+          assertEquals(expectedOffsets, parser.getMalformedOffsets());
+     }
+
+     @Test
+     void linesSplitAcrossRegionsAreParsedOnce() throws IOException {
+          Path file = writeMixedLog(new Random(6), 300, true);
+          //every region is longer than a line, but most cut a line in two
+          for (long regionSize = 40; regionSize < 200; regionSize += 7) {
+               LogParser parser = new LogParser(file, new UserDictionary(), regionSize);
+               List<Record> records = new ArrayList<>();
+               parser.parse(records::add);
+               assertEquals(expectedLines, TestLogs.lines(records), "region size " + regionSize);
+               assertEquals(expectedOffsets, parser.getMalformedOffsets(), "region size " + regionSize);
+          }
+     }
+
+     @Test
+     void rangesEndingMidLineHandTheLineToTheNextRange() throws IOException {
+          Path file = writeMixedLog(new Random(7), 200, false);
+          Random random = new Random(8);
+          try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+               long size = channel.size();
+               for (int round = 0; round < 20; round++) {
+                    LogParser parser = new LogParser(file);
+                    List<Record> records = new ArrayList<>();
+                    long position = 0;
+                    while (position < size) {
+                         long end = Math.min(size, position + 30 + random.nextInt(300));
+                         position = parser.parse(channel, position, end, end == size, records::add);
+                    }
+                    assertEquals(size, position);
+                    assertEquals(expectedLines, TestLogs.lines(records));
+                    assertEquals(expectedOffsets, parser.getMalformedOffsets());
+               }
+          }
+     }
+
+     @Test
+     void usernamesShareOneIdPerName() throws IOException {
+          Path file = dir.resolve("names.txt");
+          Files.write(file, "1 1600000000000 ann\n2 1600000000001 bob\n-1 1600000000002 ann\n".getBytes(StandardCharsets.US_ASCII));
+          UserDictionary users = new UserDictionary();
+          List<Record> records = new ArrayList<>();
+          new LogParser(file, users).parse(records::add);
+          assertEquals(2, users.size());
+          assertEquals(records.get(0).getUserId(), records.get(2).getUserId());
+          assertEquals("ann", users.name(records.get(2).getUserId()));
+     }
+}
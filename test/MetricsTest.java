@@ -0,0 +1,144 @@
+package project3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests the latency histograms and that the metrics count the work only while they are on
+ *
+ * @author Thales Gao
+ */
+class MetricsTest {
+
+     @TempDir
+     Path dir;
+
+     @AfterEach
+     void turnOff() {
+          Metrics.setEnabled(false);
+          Metrics.reset();
+     }
+
+     @Test
+     void percentilesAreWithinAFactorOfTwoOfTheTrueOnes() {
+          Random random = new Random(21);
+          LatencyHistogram histogram = new LatencyHistogram("test");
+          List<Long> times = new ArrayList<>();
+          long total = 0;
+          for (int i = 0; i < 5000; i++) {
+               long time = (long) Math.pow(10, random.nextDouble() * 9);
+               times.add(time);
+               total += time;
+               histogram.record(time);
+          }
+          Collections.sort(times);
+          assertEquals(times.size(), histogram.getCount());
+          assertEquals(total, histogram.getTotal());
+          assertEquals(times.get(times.size() - 1), histogram.getMax());
+          for (double fraction : new double[] {0, 0.1, 0.5, 0.9, 0.99, 1}) {
+               long exact = times.get(Math.max(0, (int) Math.ceil(fraction * times.size()) - 1));
+               long percentile = histogram.getPercentile(fraction);
+               assertTrue(percentile >= exact && percentile < 2 * exact, fraction + ": " + percentile + " for " + exact);
+          }
+          assertEquals(histogram.getMax(), histogram.getPercentile(1));
+          histogram.reset();
+          assertEquals(0, histogram.getCount());
+          assertEquals(0, histogram.getPercentile(0.5));
+     }
+
+     @Test
+     void negativeTimesCountAsZeroAndBadFractionsAreRejected() {
+          LatencyHistogram histogram = new LatencyHistogram("test");
+          histogram.record(-5);
+          assertEquals(1, histogram.getCount());
+          assertEquals(0, histogram.getPercentile(1));
+          assertThrows(IllegalArgumentException.class, () -> histogram.getPercentile(1.5));
+          assertThrows(IllegalArgumentException.class, () -> histogram.getPercentile(Double.NaN));
+     }
+
+     /* Parses a log into a list and asks the list about every user. */
+     private void work(Path log) throws IOException {
+          RecordList list = new RecordList();
+          new LogParser(log).parse(list::add);
+          for (int u = 0; u < 5; u++) {
+               TestLogs.answers(list, "u" + u);
+          }
+     }
+
+     @Test
+     void workIsCountedOnlyWhileMetricsAreOn() throws IOException {
+          Path log = dir.resolve("log.txt");
+          TestLogs.write(log, TestLogs.records(new Random(21), 200, 5, 20));
+          Metrics.reset();
+          work(log);
+          assertEquals(0, Metrics.getParsed());
+          assertEquals(0, Metrics.getIngested());
+          assertEquals(0, Metrics.FIRST.getCount());
+
+          Metrics.setEnabled(true);
+          work(log);
+          assertEquals(200, Metrics.getParsed());
+          assertEquals(200, Metrics.getIngested());
+          //the records of each user are kept in a second list, whose adds are not timed again
+          assertEquals(200, Metrics.ADD.getCount());
+          assertTrue(Metrics.getSessionsBuilt() > 0);
+          assertTrue(Metrics.PARSE.getCount() > 0);
+          assertTrue(Metrics.report().contains(Metrics.PARSE.getName()));
+
+          Metrics.reset();
+          assertEquals(0, Metrics.getParsed());
+          assertEquals(0, Metrics.PARSE.getCount());
+     }
+
+     @Test
+     void commandsAreTimedByTheirFirstWord() {
+          RecordList list = new RecordList();
+          list.addAll(TestLogs.records(new Random(21), 50, 3, 10));
+          Metrics.reset();
+          Metrics.setEnabled(true);
+          LoginStats.answer(list, "FIRST u0".split(" "));
+          LoginStats.answer(list, "first u1".split(" "));
+          LoginStats.answer(list, "firsts u1".split(" "));
+          assertEquals(2, Metrics.histogram("command first").getCount());
+          assertEquals(1, Metrics.histogram("command other").getCount());
+     }
+
+     @Test
+     void commandEventsAreOnlyRecordedWhileARecordingTakesThem() throws IOException {
+          RecordList list = new RecordList();
+          list.addAll(TestLogs.records(new Random(21), 50, 3, 10));
+          LoginStats.answer(list, "total u0".split(" "));
+          Path file = dir.resolve("commands.jfr");
+          try (Recording recording = new Recording()) {
+               recording.enable(CommandEvent.class).withoutThreshold();
+               recording.start();
+               LoginStats.answer(list, "total u1".split(" "));
+               recording.stop();
+               recording.dump(file);
+          }
+          LoginStats.answer(list, "total u2".split(" "));
+          List<String> commands = new ArrayList<>();
+          for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+               if (event.getEventType().getName().equals("project3.Command")) {
+                    commands.add(event.getString("command"));
+               }
+          }
+          assertEquals(List.of("total u1"), commands);
+     }
+}
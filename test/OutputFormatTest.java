@@ -0,0 +1,117 @@
+package project3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that the text written to an Appendable is the text the sessions and lists always printed,
+ * and the CSV and JSON output of OutputFormat
+ *
+ * @author Thales Gao
+ */
+class OutputFormatTest {
+
+     /* The text toString built by concatenation before sessions could be written to an Appendable. */
+     private static String concatenated(Session s) {
+          if (s.getLogoutTime() == null)
+               return s.getUsername() + ", terminal " + s.getTerminal() + ", duration " + "active session" + "\n logged in: " + s.getLoginTime().toString() + "\n logged out: " + "still logged in";
+          long seconds = s.getDuration() / 1000;
+          long minutes = seconds / 60;
+          seconds %= 60;
+          long hours = minutes / 60;
+          minutes %= 60;
+          long days = hours / 24;
+          hours %= 24;
+          String duration = days + " days, " + hours + " hours, " + minutes + " minutes, " + seconds + " seconds";
+          return s.getUsername() + ", terminal " + s.getTerminal() + ", duration " + duration + "\n logged in: " + s.getLoginTime().toString() + "\n logged out: " + s.getLogoutTime().toString();
+     }
+
+     private static Session session(String user, int terminal, long login, Long logout) {
+          Record in = new Record(terminal, true, user, new Date(login));
+          return new Session(in, logout == null ? null : new Record(terminal, false, user, new Date(logout)));
+     }
+
+     @Test
+     void sessionTextIsTheConcatenatedText() throws IOException {
+          Random random = new Random(23);
+          List<Session> sessions = new ArrayList<>();
+          for (int i = 0; i < 2000; i++) {
+               //from before 1970 to after 2100, with sessions of up to a few years
+               long login = (long) ((random.nextDouble() - 0.3) * 4e12);
+               Long logout = random.nextInt(4) == 0 ? null : login + 1 + (long) (random.nextDouble() * Math.pow(10, 1 + random.nextInt(11)));
+               sessions.add(session("u" + i, 1 + random.nextInt(1000), login, logout));
+          }
+          SortedLinkedList<Session> list = new SortedLinkedList<>();
+          for (Session s : sessions) {
+               assertEquals(concatenated(s), s.toString());
+               //a writer takes the path that does not append numbers to a StringBuilder
+               StringWriter writer = new StringWriter();
+               s.writeTo(writer);
+               assertEquals(concatenated(s), writer.toString());
+               list.add(s);
+          }
+          StringBuilder expected = new StringBuilder("[");
+          for (Session s : list) {
+               expected.append(expected.length() > 1 ? ", " : "").append(concatenated(s));
+          }
+          assertEquals(expected.append(']').toString(), list.toString());
+          StringWriter writer = new StringWriter();
+          list.writeTo(writer, Session::writeTo);
+          assertEquals(expected.toString(), writer.toString());
+     }
+
+     @Test
+     void numbersAreWrittenLikeLongToString() throws IOException {
+          Random random = new Random(24);
+          List<Long> values = new ArrayList<>(List.of(0L, 1L, -1L, 9L, 10L, Long.MAX_VALUE, Long.MIN_VALUE, 1000000000000000000L));
+          for (int i = 0; i < 1000; i++) {
+               values.add(random.nextLong() >> random.nextInt(64));
+          }
+          for (long value : values) {
+               StringWriter writer = new StringWriter();
+               TextFormat.appendLong(writer, value);
+               assertEquals(Long.toString(value), writer.toString());
+          }
+     }
+
+     @Test
+     void csvAndJsonWriteMillisecondsAndEscapeNames() throws IOException {
+          Session closed = session("a,\"b\"", 2, 1000, 3500L);
+          Session active = session("c\\\n", 3, 2000, null);
+          List<Session> both = List.of(closed, active);
+
+          StringBuilder csv = new StringBuilder();
+          OutputFormat.CSV.writeSessions(both, csv);
+          assertEquals("username,terminal,login,logout,duration\n\"a,\"\"b\"\"\",2,1000,3500,2500\n\"c\\\n\",3,2000,,\n\n", csv.toString());
+
+          StringBuilder json = new StringBuilder();
+          OutputFormat.JSON.writeSessions(both, json);
+          assertEquals("[{\"username\":\"a,\\\"b\\\"\",\"terminal\":2,\"login\":1000,\"logout\":3500,\"duration\":2500},"
+                    + "{\"username\":\"c\\\\\\u000a\",\"terminal\":3,\"login\":2000,\"logout\":null,\"duration\":null}]\n", json.toString());
+
+          StringBuilder top = new StringBuilder();
+          OutputFormat.JSON.writeTop(List.of(new UserTotal("x", 5), new UserTotal("y", 4)), top);
+          assertEquals("[{\"username\":\"x\",\"total\":5},{\"username\":\"y\",\"total\":4}]\n", top.toString());
+
+          StringBuilder total = new StringBuilder();
+          OutputFormat.TEXT.writeTotal("x", 90061000, total);
+          assertEquals("x , total duration 1 days, 1 hours, 1 minutes, 1 seconds\n", total.toString());
+     }
+
+     @Test
+     void formatsAreFoundByNameInAnyCase() {
+          assertEquals(OutputFormat.JSON, OutputFormat.of("Json"));
+          assertEquals(OutputFormat.TEXT, OutputFormat.of("text"));
+          assertThrows(IllegalArgumentException.class, () -> OutputFormat.of("xml"));
+          assertThrows(IllegalArgumentException.class, () -> OutputFormat.of(null));
+     }
+}
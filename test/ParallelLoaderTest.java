@@ -0,0 +1,105 @@
+package project3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Tests that ParallelLoader builds the same list as adding the parsed records one by one
+ *
+ * @author Thales Gao
+ */
+class ParallelLoaderTest {
+     private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+     @TempDir
+     Path dir;
+
+     @AfterAll
+     static void shutdown() {
+          POOL.shutdown();
+     }
+
+     /* Writes a log with a malformed line now and then and no newline at the end. */
+     private Path writeLog(int count) throws IOException {
+          Random random = new Random(count);
+          StringBuilder text = new StringBuilder();
+          //few distinct times, so the chunks share many equal times
+          for (Record r : TestLogs.records(random, count, 50, 200)) {
+               if (random.nextInt(500) == 0) {
+                    text.append("bad line\n");
+               }
+               text.append(TestLogs.line(r)).append('\n');
+          }
+          if (text.length() > 0) {
+               text.setLength(text.length() - 1);
+          }
+          Path file = dir.resolve("log" + count + ".txt");
+          Files.write(file, text.toString().getBytes(StandardCharsets.US_ASCII));
+          return file;
+     }
+
+     /* Adds the records one at a time in file order, the way the loader promises to match. */
+     private static RecordList addSequentially(LogParser parser) throws IOException {
+          RecordList list = new RecordList();
+          parser.parse(list::add);
+          return list;
+     }
+
+     //200000 lines are a few megabytes, enough for several chunks
+     @ParameterizedTest
+     @ValueSource(ints = {0, 1, 1000, 200000})
+     void loadIsTheSameAsAddingInFileOrder(int count) throws IOException {
+          Path file = writeLog(count);
+          LogParser parser = new LogParser(file);
+          RecordList expected = addSequentially(parser);
+
+          ParallelLoader loader = new ParallelLoader(file, POOL);
+          RecordList loaded = new RecordList();
+          loader.load(loaded);
+
+          assertEquals(TestLogs.lines(expected), TestLogs.lines(loaded));
+          assertEquals(parser.getMalformedOffsets(), loader.getMalformedOffsets());
+          assertEquals(Files.size(file), loader.getEndOffset());
+          for (int u = 0; u < 50; u += 7) {
+               assertEquals(TestLogs.answers(expected, "u" + u), TestLogs.answers(loaded, "u" + u));
+          }
+     }
+
+     @Test
+     void severalChunksAreParsed() throws IOException {
+          Path file = writeLog(200000);
+          assertTrue(Files.size(file) > 3 << 20, "the log should be larger than three chunks");
+          ParallelLoader loader = new ParallelLoader(file, POOL);
+          RecordList loaded = new RecordList();
+          loader.load(loaded);
+          assertEquals(200000, loaded.size());
+     }
+
+     @Test
+     void loadIntoAShardedListAnswersLikeAddingInFileOrder() throws IOException {
+          Path file = writeLog(20000);
+          RecordList expected = addSequentially(new LogParser(file));
+          ShardedRecordList sharded = new ShardedRecordList(3, POOL);
+          new ParallelLoader(file, POOL).load(sharded);
+          assertEquals(expected.size(), sharded.size());
+          for (int u = 0; u < 50; u++) {
+               assertEquals(TestLogs.answers(expected, "u" + u), TestLogs.answers(sharded, "u" + u));
+          }
+          List<Session> at = expected.getSessionIndex().at(TestLogs.EPOCH + 100000);
+          assertEquals(TestLogs.text(at), TestLogs.text(sharded.getSessionIndex().at(TestLogs.EPOCH + 100000)));
+     }
+}
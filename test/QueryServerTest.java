@@ -0,0 +1,120 @@
+package project3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that QueryServer answers its clients like the interactive program and sees records added later
+ *
+ * @author Thales Gao
+ */
+class QueryServerTest {
+
+     /* One connection to the server, sending a command and reading its answer up to the "--" line. */
+     private static class Client implements AutoCloseable {
+          private final Socket socket;
+          private final BufferedReader in;
+          private final Writer out;
+
+          Client(int port) throws IOException {
+               socket = new Socket(InetAddress.getLoopbackAddress(), port);
+               in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+               out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+          }
+
+          String ask(String command) throws IOException {
+               out.write(command + "\n");
+               out.flush();
+               StringBuilder answer = new StringBuilder();
+               String line;
+               while ((line = in.readLine()) != null && !line.startsWith("-- ")) {
+                    answer.append(line).append('\n');
+               }
+               return answer.toString();
+          }
+
+          @Override
+          public void close() throws IOException {
+               socket.close();
+          }
+     }
+
+     private static String expected(RecordList list, String command) {
+          return LoginStats.answer(list, command.split(" "));
+     }
+
+     @Test
+     void clientsGetTheAnswersOfTheInteractiveProgram() throws Exception {
+          RecordList list = new RecordList();
+          list.addAll(TestLogs.records(new Random(13), 300, 6, 20));
+          try (QueryServer server = new QueryServer(list, 0)) {
+               server.start();
+               ExecutorService threads = Executors.newFixedThreadPool(3);
+               try {
+                    List<Future<?>> clients = new ArrayList<>();
+                    for (int c = 0; c < 3; c++) {
+                         int seed = c;
+                         clients.add(threads.submit(() -> {
+                              Random random = new Random(seed);
+                              try (Client client = new Client(server.getPort())) {
+                                   for (int i = 0; i < 30; i++) {
+                                        String command = random.nextBoolean() ? "all u" + random.nextInt(7) : "at " + (TestLogs.EPOCH + 1000L * random.nextInt(20));
+                                        assertEquals(expected(list, command), client.ask(command));
+                                   }
+                              }
+                              return null;
+                         }));
+                    }
+                    for (Future<?> client : clients) {
+                         client.get();
+                    }
+               } finally {
+                    threads.shutdown();
+               }
+          }
+     }
+
+     @Test
+     void recordsAddedLaterAreAnsweredAfterARefresh() throws Exception {
+          RecordList list = new RecordList();
+          list.addAll(TestLogs.records(new Random(14), 50, 3, 10));
+          try (QueryServer server = new QueryServer(list, 0); Client client = new Client(server.getPort())) {
+               server.start();
+               assertEquals(expected(list, "total u9"), client.ask("total u9"));
+               synchronized (list) {
+                    list.add(new Record(1, true, "u9", new Date(TestLogs.EPOCH)));
+                    list.add(new Record(1, false, "u9", new Date(TestLogs.EPOCH + 60000)));
+               }
+               String want = expected(list, "total u9");
+               String answer = client.ask("total u9");
+               //the snapshot is replaced shortly after the change
+               for (int tries = 0; tries < 100 && !answer.equals(want); tries++) {
+                    Thread.sleep(20);
+                    answer = client.ask("total u9");
+               }
+               assertEquals(want, answer);
+               assertTrue(answer.contains("1 minutes"));
+               client.ask("quit");
+               assertNull(client.in.readLine());
+          }
+     }
+}
@@ -0,0 +1,167 @@
+package project3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the per-user queries of RecordList against a scan of the whole list
+ *
+ * @author Thales Gao
+ */
+class RecordListTest {
+     private static final int USERS = 6;
+
+     /**
+      * Returns the sessions of a user found by scanning the whole list: every login of the user in
+      * list order, ended by the first later logout of the user on the same terminal
+      */
+     static List<Session> scan(RecordList list, String user) {
+          List<Record> records = new ArrayList<>();
+          for (Record r : list) {
+               records.add(r);
+          }
+          List<Session> sessions = new ArrayList<>();
+          for (int i = 0; i < records.size(); i++) {
+               Record login = records.get(i);
+               if (login.isLogin() && login.getUsername().equals(user)) {
+                    Record logout = null;
+                    for (int j = i + 1; j < records.size() && logout == null; j++) {
+                         Record r = records.get(j);
+                         if (r.isLogout() && r.getUsername().equals(user) && r.getTerminal() == login.getTerminal()
+                                   && r.getTime().after(login.getTime())) {
+                              logout = r;
+                         }
+                    }
+                    sessions.add(new Session(login, logout));
+               }
+          }
+          return sessions;
+     }
+
+     /**
+      * Returns the answers the queries should give for a user, from a scan of the whole list
+      */
+     static String expected(RecordList list, String user) {
+          List<Session> sessions = scan(list, user);
+          if (sessions.isEmpty()) {
+               return "none";
+          }
+          long total = 0;
+          SortedLinkedList<Session> all = new SortedLinkedList<>();
+          for (Session s : sessions) {
+               total += Math.max(0, s.getDuration());
+               all.add(s);
+          }
+          return sessions.get(0) + "|" + sessions.get(sessions.size() - 1) + "|" + total + "|" + TestLogs.text(all);
+     }
+
+     @Test
+     void queriesMatchAScanOfTheList() {
+          Random random = new Random(21);
+          for (int round = 0; round < 40; round++) {
+               RecordList list = new RecordList();
+               list.addAll(TestLogs.records(random, 1 + random.nextInt(150), USERS - 1, 15));
+               for (int u = 0; u < USERS; u++) {
+                    String user = "u" + u;
+                    //first and last before the sessions are paired, then after
+                    String lazy = TestLogs.answers(list, user);
+                    assertEquals(expected(list, user), lazy);
+                    assertEquals(lazy, TestLogs.answers(list, user));
+               }
+          }
+     }
+
+     @Test
+     void cachedAnswersFollowAddsAndRemoves() {
+          Random random = new Random(17);
+          RecordList list = new RecordList();
+          List<Record> added = new ArrayList<>();
+          for (int step = 0; step < 60; step++) {
+               int change = random.nextInt(3);
+               if (change == 0 && !added.isEmpty()) {
+                    assertTrue(list.remove(added.remove(random.nextInt(added.size()))));
+               } else {
+                    List<Record> records = TestLogs.records(random, 1 + random.nextInt(10), USERS, 15);
+                    if (change == 1) {
+                         list.addAll(records);
+                    } else {
+                         for (Record r : records) {
+                              list.add(r);
+                         }
+                    }
+                    added.addAll(records);
+               }
+               //every answer is cached after the first check, so the next change has to drop it
+               for (int u = 0; u < USERS; u++) {
+                    assertEquals(expected(list, "u" + u), TestLogs.answers(list, "u" + u));
+               }
+          }
+     }
+
+     @Test
+     void removingThroughAnIteratorUpdatesTheQueries() {
+          Random random = new Random(8);
+          RecordList list = new RecordList();
+          list.addAll(TestLogs.records(random, 200, USERS, 15));
+          for (int u = 0; u < USERS; u++) {
+               TestLogs.answers(list, "u" + u);
+          }
+          ListIterator<Record> itr = list.listIterator(list.size());
+          while (itr.hasPrevious()) {
+               itr.previous();
+               if (random.nextInt(3) == 0) {
+                    itr.remove();
+               }
+          }
+          for (int u = 0; u < USERS; u++) {
+               assertEquals(expected(list, "u" + u), TestLogs.answers(list, "u" + u));
+          }
+     }
+
+     @Test
+     void sessionsAreIteratedAndStreamedInTheOrderOfGetAllSessions() {
+          Random random = new Random(24);
+          RecordList list = new RecordList();
+          list.addAll(TestLogs.records(random, 400, USERS, 30));
+          for (int pass = 0; pass < 2; pass++) {
+               //paired as the iteration goes first, from the cache the second time
+               for (int u = 0; u < USERS; u++) {
+                    String user = "u" + u;
+                    if (expected(list, user).equals("none")) {
+                         continue;
+                    }
+                    List<String> firstTwo = TestLogs.text(list.streamSessions(user).limit(2).collect(Collectors.toList()));
+                    List<String> iterated = TestLogs.text(list.iterateSessions(user));
+                    List<String> streamed = TestLogs.text(list.streamSessions(user).collect(Collectors.toList()));
+                    List<String> all = TestLogs.text(list.getAllSessions(user));
+                    assertEquals(all.subList(0, Math.min(2, all.size())), firstTwo);
+                    assertEquals(all, iterated);
+                    assertEquals(all, streamed);
+               }
+          }
+          assertThrows(NoSuchElementException.class, () -> list.iterateSessions("nobody"));
+          assertThrows(IllegalArgumentException.class, () -> list.streamSessions(""));
+     }
+
+     @Test
+     void invalidUsernamesAreRejected() {
+          RecordList list = new RecordList();
+          list.addAll(TestLogs.records(new Random(1), 20, 2, 5));
+          assertThrows(IllegalArgumentException.class, () -> list.getFirstSession(""));
+          assertThrows(IllegalArgumentException.class, () -> list.getLastSession(null));
+          assertThrows(IllegalArgumentException.class, () -> list.getTotalTime(""));
+          assertThrows(IllegalArgumentException.class, () -> list.getAllSessions(null));
+          assertThrows(NoSuchElementException.class, () -> list.getFirstSession("nobody"));
+          assertThrows(NoSuchElementException.class, () -> list.getTotalTime("nobody"));
+     }
+}
@@ -0,0 +1,90 @@
+package project3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Tests that a RecordSnapshot gives back the list it saved and rejects corrupt files
+ *
+ * @author Thales Gao
+ */
+class RecordSnapshotTest {
+     private static final int TIMES = 30;
+
+     @TempDir
+     Path dir;
+
+     @ParameterizedTest
+     @ValueSource(booleans = {true, false})
+     void roundTripAnswersLikeTheLoadedLog(boolean mapped) throws IOException {
+          Path log = dir.resolve("log.txt");
+          TestLogs.write(log, TestLogs.records(new Random(11), 3000, 12, TIMES));
+          RecordList loaded = new RecordList();
+          new ParallelLoader(log).load(loaded);
+
+          RecordSnapshot snapshot = new RecordSnapshot(dir.resolve("log.snap"));
+          snapshot.write(loaded);
+          RecordList read = snapshot.read(mapped);
+
+          assertEquals(TestLogs.lines(loaded), TestLogs.lines(read));
+          for (int u = 0; u < 12; u++) {
+               assertEquals(TestLogs.answers(loaded, "u" + u), TestLogs.answers(read, "u" + u));
+          }
+          SessionIndex expected = loaded.getSessionIndex();
+          SessionIndex actual = read.getSessionIndex();
+          for (int t = 0; t < TIMES; t++) {
+               long time = TestLogs.EPOCH + 1000L * t;
+               assertEquals(TestLogs.text(expected.at(time)), TestLogs.text(actual.at(time)));
+               assertEquals(TestLogs.text(expected.during(time, time + 5000)), TestLogs.text(actual.during(time, time + 5000)));
+               assertEquals(TestLogs.text(expected.terminal(1 + t % 3).at(time)), TestLogs.text(actual.terminal(1 + t % 3).at(time)));
+          }
+     }
+
+     @ParameterizedTest
+     @ValueSource(booleans = {true, false})
+     void nameLongerThanTheFileIsRejected(boolean mapped) throws IOException {
+          ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+          DataOutputStream out = new DataOutputStream(bytes);
+          out.writeInt(0x4c53534e);
+          out.writeByte(1);
+          //one record, one user whose name claims to be about 2 GB long
+          out.write(new byte[] {1, 1, (byte) 0xfe, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x07});
+          Path file = dir.resolve("corrupt.snap");
+          Files.write(file, bytes.toByteArray());
+          assertThrows(IOException.class, () -> new RecordSnapshot(file).read(mapped));
+     }
+
+     @ParameterizedTest
+     @ValueSource(booleans = {true, false})
+     void truncatedFileIsRejected(boolean mapped) throws IOException {
+          RecordList list = new RecordList();
+          list.addAll(TestLogs.records(new Random(3), 100, 4, 10));
+          Path file = dir.resolve("full.snap");
+          new RecordSnapshot(file).write(list);
+          byte[] content = Files.readAllBytes(file);
+          Path truncated = dir.resolve("truncated.snap");
+          Files.write(truncated, Arrays.copyOf(content, content.length - 3));
+          assertThrows(IOException.class, () -> new RecordSnapshot(truncated).read(mapped));
+     }
+
+     @Test
+     void emptyListRoundTrips() throws IOException {
+          RecordSnapshot snapshot = new RecordSnapshot(dir.resolve("empty.snap"));
+          snapshot.write(new RecordList());
+          assertEquals(List.of(), TestLogs.lines(snapshot.read()));
+     }
+}
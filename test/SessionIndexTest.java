@@ -0,0 +1,100 @@
+package project3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the time range queries of SessionIndex against a check of every session
+ *
+ * @author Thales Gao
+ */
+class SessionIndexTest {
+
+     /* Sessions with few distinct times, many starting or ending together and some still active. */
+     private static List<Session> sessions(Random random, int count) {
+          List<Session> sessions = new ArrayList<>();
+          for (int i = 0; i < count; i++) {
+               int terminal = 1 + random.nextInt(4);
+               String user = "u" + random.nextInt(5);
+               long login = random.nextInt(100);
+               Record in = new Record(terminal, true, user, new Date(login));
+               Record out = random.nextInt(5) == 0 ? null
+                         : new Record(terminal, false, user, new Date(login + 1 + random.nextInt(30)));
+               sessions.add(new Session(in, out));
+          }
+          return sessions;
+     }
+
+     /* The sessions overlapping [from, to], kept in the order of a stable sort by login time. */
+     private static List<Session> overlapping(List<Session> sessions, long from, long to) {
+          List<Session> sorted = new ArrayList<>(sessions);
+          sorted.sort((a, b) -> Long.compare(a.getLoginTime().getTime(), b.getLoginTime().getTime()));
+          List<Session> found = new ArrayList<>();
+          for (Session s : sorted) {
+               long end = s.getLogoutTime() == null ? Long.MAX_VALUE : s.getLogoutTime().getTime();
+               if (s.getLoginTime().getTime() <= to && end > from) {
+                    found.add(s);
+               }
+          }
+          return found;
+     }
+
+     private static List<Session> ofTerminal(List<Session> sessions, int terminal) {
+          List<Session> found = new ArrayList<>();
+          for (Session s : sessions) {
+               if (s.getTerminal() == terminal) {
+                    found.add(s);
+               }
+          }
+          return found;
+     }
+
+     @Test
+     void atAndDuringMatchACheckOfEverySession() {
+          Random random = new Random(15);
+          for (int round = 0; round < 30; round++) {
+               List<Session> sessions = sessions(random, random.nextInt(300));
+               SessionIndex index = new SessionIndex(sessions);
+               assertEquals(sessions.size(), index.size());
+               for (long time = -1; time <= 131; time++) {
+                    assertEquals(overlapping(sessions, time, time), index.at(time));
+                    long to = time + random.nextInt(20);
+                    assertEquals(overlapping(sessions, time, to), index.during(time, to));
+               }
+          }
+     }
+
+     @Test
+     void terminalIndexHoldsOnlyThatTerminal() {
+          Random random = new Random(16);
+          List<Session> sessions = sessions(random, 400);
+          SessionIndex index = new SessionIndex(sessions);
+          for (int terminal = 1; terminal <= 5; terminal++) {
+               List<Session> own = ofTerminal(sessions, terminal);
+               SessionIndex byTerminal = index.terminal(terminal);
+               assertEquals(own.size(), byTerminal.size());
+               for (long time = 0; time < 130; time += 3) {
+                    assertEquals(overlapping(own, time, time), byTerminal.at(time));
+                    assertEquals(overlapping(own, time, time + 10), byTerminal.during(time, time + 10));
+               }
+          }
+     }
+
+     @Test
+     void invalidArgumentsAreRejected() {
+          List<Session> sessions = new ArrayList<>();
+          sessions.add(null);
+          assertThrows(IllegalArgumentException.class, () -> new SessionIndex(sessions));
+          assertThrows(IllegalArgumentException.class, () -> new SessionIndex(null));
+          SessionIndex index = new SessionIndex(new ArrayList<>());
+          assertThrows(IllegalArgumentException.class, () -> index.during(2, 1));
+          assertEquals(List.of(), index.at(0));
+     }
+}
@@ -0,0 +1,109 @@
+package project3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the pairing of logins and logouts into sessions
+ *
+ * @author Thales Gao
+ */
+class SessionTrackerTest {
+
+     @Test
+     void logoutInTheSameMillisecondLeavesTheLoginOpen() {
+          List<Session> sessions = new ArrayList<>();
+          SessionTracker tracker = new SessionTracker((s, n) -> sessions.add(s));
+          tracker.accept(record(1, true, 5));
+          tracker.accept(record(1, false, 5));
+          assertEquals(List.of(), sessions);
+          assertEquals(1, tracker.getOpenCount());
+          tracker.accept(record(1, false, 9));
+          assertEquals(1, sessions.size());
+          assertEquals(4000, sessions.get(0).getDuration());
+          assertEquals(0, tracker.getOpenCount());
+     }
+
+     @Test
+     void loginWithOnlyASameMillisecondLogoutIsActive() {
+          RecordList list = new RecordList();
+          list.add(record(1, true, 5));
+          list.add(record(1, false, 5));
+          Session first = list.getFirstSession("x");
+          assertNull(first.getLogoutTime());
+          assertEquals(-1, first.getDuration());
+          assertEquals(1, list.getAllSessions("x").size());
+          assertEquals(0, list.getTotalTime("x"));
+     }
+
+     @Test
+     void logoutClosesEveryEarlierLoginOfItsTerminalOnly() {
+          List<Session> sessions = new ArrayList<>();
+          List<Long> numbers = new ArrayList<>();
+          SessionTracker tracker = new SessionTracker((s, n) -> {
+               sessions.add(s);
+               numbers.add(n);
+          });
+          tracker.accept(record(1, true, 1));
+          tracker.accept(record(2, true, 2));
+          tracker.accept(record(1, true, 3));
+          tracker.accept(record(1, false, 4));
+          assertEquals(2, sessions.size());
+          assertEquals(List.of(0L, 2L), numbers);
+          tracker.finish();
+          assertEquals(3, sessions.size());
+          assertEquals(2, sessions.get(2).getTerminal());
+          assertNull(sessions.get(2).getLogoutTime());
+          assertEquals(0, tracker.getOpenCount());
+     }
+
+     @Test
+     void pairsLikeTheFirstLaterLogoutOfEachLogin() {
+          Random random = new Random(5);
+          for (int round = 0; round < 100; round++) {
+               RecordList list = new RecordList();
+               list.addAll(TestLogs.records(random, 1 + random.nextInt(100), 2, 10));
+               List<Record> records = new ArrayList<>();
+               for (Record r : list) {
+                    records.add(r);
+               }
+               List<String> expected = new ArrayList<>();
+               for (int i = 0; i < records.size(); i++) {
+                    Record login = records.get(i);
+                    if (login.isLogin()) {
+                         Record logout = null;
+                         for (int j = i + 1; j < records.size() && logout == null; j++) {
+                              Record r = records.get(j);
+                              if (!r.isLogin() && r.getUsername().equals(login.getUsername()) && r.getTerminal() == login.getTerminal()
+                                        && r.getTime().getTime() > login.getTime().getTime()) {
+                                   logout = r;
+                              }
+                         }
+                         expected.add(new Session(login, logout).toString());
+                    }
+               }
+               //each session goes to the position of its login among all logins
+               List<Session> byNumber = new ArrayList<>();
+               for (int i = 0; i < expected.size(); i++) {
+                    byNumber.add(null);
+               }
+               SessionTracker tracker = new SessionTracker((s, n) -> byNumber.set((int) n, s));
+               for (Record r : records) {
+                    tracker.accept(r);
+               }
+               tracker.finish();
+               assertEquals(expected, TestLogs.text(byNumber));
+          }
+     }
+
+     private static Record record(int terminal, boolean login, long seconds) {
+          return new Record(terminal, login, "x", new Date(TestLogs.EPOCH + 1000 * seconds));
+     }
+}
@@ -0,0 +1,104 @@
+package project3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Tests that a ShardedRecordList answers like a single RecordList holding the same records
+ *
+ * @author Thales Gao
+ */
+class ShardedRecordListTest {
+     private static final int USERS = 20;
+     private static final int TIMES = 40;
+
+     private static void assertSameAnswers(RecordList expected, ShardedRecordList sharded) {
+          assertEquals(expected.size(), sharded.size());
+          for (int u = 0; u < USERS; u++) {
+               String user = "u" + u;
+               assertEquals(TestLogs.answers(expected, user), TestLogs.answers(sharded, user));
+          }
+          SessionIndex expectedIndex = expected.getSessionIndex();
+          SessionIndex index = sharded.getSessionIndex();
+          for (int t = 0; t < TIMES; t += 3) {
+               long time = TestLogs.EPOCH + 1000L * t;
+               assertEquals(TestLogs.text(expectedIndex.at(time)), TestLogs.text(index.at(time)));
+               assertEquals(TestLogs.text(expectedIndex.during(time, time + 4000)), TestLogs.text(index.during(time, time + 4000)));
+          }
+          long from = TestLogs.EPOCH + 5000;
+          long to = TestLogs.EPOCH + 30000;
+          assertEquals(expected.topUsers(5, from, to).toString(), sharded.topUsers(5, from, to).toString());
+          assertEquals(TestLogs.summary(expected.analyzeConcurrency(null)), TestLogs.summary(sharded.analyzeConcurrency(null)));
+     }
+
+     @ParameterizedTest
+     @ValueSource(ints = {1, 3, 8})
+     void answersLikeOneRecordListWhileRecordsArrive(int shards) {
+          Random random = new Random(shards);
+          RecordList expected = new RecordList();
+          ShardedRecordList sharded = new ShardedRecordList(shards);
+          for (int batch = 0; batch < 8; batch++) {
+               List<Record> records = TestLogs.records(random, 1 + random.nextInt(300), USERS, TIMES);
+               if (random.nextBoolean()) {
+                    expected.addAll(records);
+                    sharded.addAll(records);
+               } else {
+                    for (Record r : records) {
+                         expected.add(r);
+                         sharded.add(r);
+                    }
+               }
+               //the answers of the shards that did not change are reused
+               assertSameAnswers(expected, sharded);
+          }
+     }
+
+     @Test
+     void totalsAndSessionsOfEveryUserMatch() {
+          RecordList expected = new RecordList();
+          ShardedRecordList sharded = new ShardedRecordList(4);
+          List<Record> records = TestLogs.records(new Random(25), 2000, USERS, TIMES);
+          expected.addAll(records);
+          sharded.addAll(records);
+          Map<String, Long> totals = sharded.getTotalTimes();
+          Map<String, SortedLinkedList<Session>> sessions = sharded.getSessionsByUser();
+          List<String> withLogins = new ArrayList<>();
+          for (int u = 0; u < USERS; u++) {
+               String user = "u" + u;
+               if (!TestLogs.answers(expected, user).equals("none")) {
+                    withLogins.add(user);
+                    assertEquals(expected.getTotalTime(user), totals.get(user));
+                    assertEquals(TestLogs.text(expected.getAllSessions(user)), TestLogs.text(sessions.get(user)));
+               }
+          }
+          assertEquals(withLogins.size(), totals.size());
+          assertEquals(withLogins.size(), sessions.size());
+     }
+
+     @Test
+     void clearEmptiesEveryShard() {
+          ShardedRecordList sharded = new ShardedRecordList(3);
+          sharded.addAll(TestLogs.records(new Random(2), 100, USERS, TIMES));
+          sharded.getSessionIndex();
+          sharded.clear();
+          assertSameAnswers(new RecordList(), sharded);
+     }
+
+     @Test
+     void invalidArgumentsAreRejected() {
+          assertThrows(IllegalArgumentException.class, () -> new ShardedRecordList(0));
+          ShardedRecordList sharded = new ShardedRecordList(2);
+          assertThrows(IllegalArgumentException.class, () -> sharded.getFirstSession(""));
+          assertThrows(IllegalArgumentException.class, () -> sharded.topUsers(0, 0, 1));
+          assertThrows(IllegalArgumentException.class, () -> sharded.topUsers(1, 2, 1));
+     }
+}
@@ -0,0 +1,380 @@
+package project3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Tests SortedLinkedList against a plain ArrayList kept in the order the list promises
+ *
+ * @author Thales Gao
+ */
+class SortedLinkedListTest {
+
+     /* Element ordered by its key only, and equal to itself only, so equal keys can be told apart. */
+     static class Item implements Comparable<Item> {
+          final int key;
+          final int id;
+
+          Item(int key, int id) {
+               this.key = key;
+               this.id = id;
+          }
+
+          @Override
+          public int compareTo(Item o) {
+               return Integer.compare(key, o.key);
+          }
+
+          @Override
+          public String toString() {
+               return key + "#" + id;
+          }
+     }
+
+     static SortedLinkedList<Item> newList(boolean concurrent) {
+          return concurrent ? new ConcurrentSortedList<>() : new SortedLinkedList<>();
+     }
+
+     /* Inserts into the model before the items with the same key, as add does. */
+     static void addToModel(List<Item> model, Item item) {
+          int i = 0;
+          while (i < model.size() && model.get(i).key < item.key) {
+               i++;
+          }
+          model.add(i, item);
+     }
+
+     /* Checks every position, so a wrong span on any level of the skip list shows up. */
+     static void assertSameAs(List<Item> model, SortedLinkedList<Item> list) {
+          assertEquals(model.size(), list.size());
+          List<Item> iterated = new ArrayList<>();
+          for (Item item : list) {
+               iterated.add(item);
+          }
+          assertEquals(model, iterated);
+          for (int i = 0; i < model.size(); i++) {
+               assertEquals(model.get(i), list.get(i));
+               assertEquals(i, list.indexOf(model.get(i)));
+          }
+     }
+
+     @Test
+     void addPlacesAnElementBeforeEqualOnes() {
+          SortedLinkedList<Item> list = new SortedLinkedList<>();
+          Item first = new Item(1, 0);
+          Item second = new Item(1, 1);
+          Item third = new Item(1, 2);
+          list.add(first);
+          list.add(new Item(2, 3));
+          list.add(new Item(0, 4));
+          list.add(second);
+          list.add(third);
+          assertEquals("[0#4, 1#2, 1#1, 1#0, 2#3]", list.toString());
+          assertFalse(list.add(null));
+     }
+
+     @ParameterizedTest
+     @ValueSource(booleans = {false, true})
+     void randomAddsAndRemovesMatchTheModel(boolean concurrent) {
+          Random random = new Random(1);
+          SortedLinkedList<Item> list = newList(concurrent);
+          List<Item> model = new ArrayList<>();
+          for (int step = 0; step < 3000; step++) {
+               if (model.isEmpty() || random.nextInt(3) > 0) {
+                    Item item = new Item(random.nextInt(50), step);
+                    assertTrue(list.add(item));
+                    addToModel(model, item);
+               } else {
+                    Item item = model.remove(random.nextInt(model.size()));
+                    assertTrue(list.remove(item));
+                    assertFalse(list.contains(item));
+               }
+               if (step % 250 == 0) {
+                    assertSameAs(model, list);
+               }
+          }
+          assertSameAs(model, list);
+          assertFalse(list.remove(new Item(1, -1)));
+          assertEquals(-1, list.indexOf(new Item(1, -1)));
+     }
+
+     @ParameterizedTest
+     @ValueSource(ints = {1, 100, 20000})
+     void addAllIsTheSameAsAddingOneAtATime(int batchSize) {
+          Random random = new Random(batchSize);
+          SortedLinkedList<Item> list = new SortedLinkedList<>();
+          List<Item> model = new ArrayList<>();
+          for (int i = 0; i < 500; i++) {
+               Item item = new Item(random.nextInt(40), i);
+               list.add(item);
+               addToModel(model, item);
+          }
+          List<Item> batch = new ArrayList<>();
+          for (int i = 0; i < batchSize; i++) {
+               batch.add(random.nextInt(10) == 0 ? null : new Item(random.nextInt(40), 500 + i));
+          }
+          assertTrue(list.addAll(batch));
+          for (Item item : batch) {
+               if (item != null) {
+                    addToModel(model, item);
+               }
+          }
+          assertSameAs(model, list);
+          assertFalse(list.addAll(new ArrayList<>()));
+     }
+
+     @ParameterizedTest
+     @ValueSource(booleans = {false, true})
+     void addSortedKeepsTheBatchOrderBeforeEqualElements(boolean concurrent) {
+          Random random = new Random(9);
+          SortedLinkedList<Item> list = newList(concurrent);
+          List<Item> existing = new ArrayList<>();
+          for (int i = 0; i < 300; i++) {
+               Item item = new Item(random.nextInt(30), i);
+               list.add(item);
+               addToModel(existing, item);
+          }
+          //a batch in list order: ascending keys, equal keys in any fixed order
+          List<Item> batch = new ArrayList<>();
+          for (int i = 0; i < 300; i++) {
+               batch.add(new Item(random.nextInt(30), 300 + i));
+          }
+          batch.sort(null);
+          assertTrue(list.addSorted(batch));
+          //merged, with the batch's equal elements before the ones already in the list
+          List<Item> model = new ArrayList<>();
+          int i = 0;
+          int j = 0;
+          while (i < existing.size() || j < batch.size()) {
+               if (j < batch.size() && (i == existing.size() || batch.get(j).key <= existing.get(i).key)) {
+                    model.add(batch.get(j++));
+               } else {
+                    model.add(existing.get(i++));
+               }
+          }
+          assertSameAs(model, list);
+     }
+
+     @ParameterizedTest
+     @ValueSource(booleans = {false, true})
+     void listIteratorMovesAndRemovesLikeAnArrayListIterator(boolean concurrent) {
+          Random random = new Random(4);
+          SortedLinkedList<Item> list = newList(concurrent);
+          List<Item> model = new ArrayList<>();
+          for (int i = 0; i < 400; i++) {
+               Item item = new Item(random.nextInt(60), i);
+               list.add(item);
+               addToModel(model, item);
+          }
+          for (int walk = 0; walk < 20; walk++) {
+               int start = random.nextInt(model.size() + 1);
+               ListIterator<Item> actual = list.listIterator(start);
+               ListIterator<Item> expected = model.listIterator(start);
+               boolean canRemove = false;
+               for (int step = 0; step < 100; step++) {
+                    int move = random.nextInt(5);
+                    if (move < 2 && expected.hasNext()) {
+                         assertEquals(expected.next(), actual.next());
+                         canRemove = true;
+                    } else if (move < 4 && expected.hasPrevious()) {
+                         assertEquals(expected.previous(), actual.previous());
+                         canRemove = true;
+                    } else if (canRemove) {
+                         expected.remove();
+                         actual.remove();
+                         canRemove = false;
+                    }
+                    assertEquals(expected.hasNext(), actual.hasNext());
+                    assertEquals(expected.hasPrevious(), actual.hasPrevious());
+                    assertEquals(expected.nextIndex(), actual.nextIndex());
+                    assertEquals(expected.previousIndex(), actual.previousIndex());
+               }
+          }
+          assertSameAs(model, list);
+     }
+
+     @Test
+     void listIteratorRejectsInvalidCalls() {
+          SortedLinkedList<Item> list = new SortedLinkedList<>();
+          list.add(new Item(1, 0));
+          assertThrows(IndexOutOfBoundsException.class, () -> list.listIterator(2));
+          ListIterator<Item> itr = list.listIterator(1);
+          assertThrows(NoSuchElementException.class, itr::next);
+          assertThrows(IllegalStateException.class, itr::remove);
+          Item item = itr.previous();
+          assertThrows(UnsupportedOperationException.class, () -> itr.set(item));
+          assertThrows(UnsupportedOperationException.class, () -> itr.add(item));
+          assertThrows(NoSuchElementException.class, itr::previous);
+     }
+
+     /* Splits a spliterator at random down to single elements or less, collecting the parts in order. */
+     private static void splitAndCollect(Spliterator<Item> spliterator, Random random, List<Item> out) {
+          long size = spliterator.estimateSize();
+          Spliterator<Item> first = random.nextInt(4) > 0 ? spliterator.trySplit() : null;
+          if (first == null) {
+               int before = out.size();
+               if (random.nextBoolean()) {
+                    spliterator.forEachRemaining(out::add);
+               } else {
+                    while (spliterator.tryAdvance(out::add)) {
+                         //one at a time
+                    }
+               }
+               assertEquals(size, out.size() - before);
+               return;
+          }
+          assertEquals(size, first.estimateSize() + spliterator.estimateSize());
+          splitAndCollect(first, random, out);
+          splitAndCollect(spliterator, random, out);
+     }
+
+     @Test
+     void spliteratorSplitsIntoPartsInListOrder() {
+          Random random = new Random(24);
+          SortedLinkedList<Item> list = new SortedLinkedList<>();
+          List<Item> model = new ArrayList<>();
+          for (int i = 0; i < 1000; i++) {
+               Item item = new Item(random.nextInt(100), i);
+               list.add(item);
+               addToModel(model, item);
+          }
+          for (int round = 0; round < 20; round++) {
+               List<Item> collected = new ArrayList<>();
+               Spliterator<Item> spliterator = list.spliterator();
+               assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.SORTED));
+               splitAndCollect(spliterator, random, collected);
+               assertEquals(model, collected);
+          }
+          assertEquals(model, list.parallelStream().collect(Collectors.toList()));
+          assertEquals(model.subList(10, 20), list.stream().skip(10).limit(10).collect(Collectors.toList()));
+     }
+
+     @Test
+     void concurrentListStreamsInListOrder() {
+          SortedLinkedList<Item> list = newList(true);
+          List<Item> model = new ArrayList<>();
+          for (int i = 0; i < 500; i++) {
+               Item item = new Item(i % 37, i);
+               list.add(item);
+               addToModel(model, item);
+          }
+          assertTrue(list.spliterator().hasCharacteristics(Spliterator.CONCURRENT));
+          assertEquals(model, list.parallelStream().collect(Collectors.toList()));
+          assertEquals(model, list.stream().collect(Collectors.toList()));
+     }
+
+     /* Element equal to other values with the same key and id, as the hash index requires. */
+     static class Value implements Comparable<Value> {
+          final int key;
+          final int id;
+
+          Value(int key, int id) {
+               this.key = key;
+               this.id = id;
+          }
+
+          @Override
+          public int compareTo(Value o) {
+               return Integer.compare(key, o.key);
+          }
+
+          @Override
+          public boolean equals(Object o) {
+               return o instanceof Value && ((Value) o).key == key && ((Value) o).id == id;
+          }
+
+          @Override
+          public int hashCode() {
+               return 31 * key + id;
+          }
+     }
+
+     /* Checks that both lists hold the very same objects in the same order. */
+     private static void assertSameObjects(SortedLinkedList<Value> expected, SortedLinkedList<Value> actual) {
+          assertEquals(expected.size(), actual.size());
+          for (int i = 0; i < expected.size(); i++) {
+               assertSame(expected.get(i), actual.get(i));
+          }
+     }
+
+     @ParameterizedTest
+     @ValueSource(booleans = {false, true})
+     void hashIndexedListFindsAndRemovesLikeThePlainList(boolean concurrent) {
+          Random random = new Random(22);
+          SortedLinkedList<Value> plain = new SortedLinkedList<>();
+          SortedLinkedList<Value> hashed = concurrent ? new ConcurrentSortedList<>() : new SortedLinkedList<>();
+          hashed.setHashIndexed(true);
+          for (int step = 0; step < 4000; step++) {
+               //few distinct values, so most of them occur several times
+               Value value = new Value(random.nextInt(20), random.nextInt(5));
+               int change = random.nextInt(10);
+               if (change < 5) {
+                    plain.add(value);
+                    hashed.add(value);
+               } else if (change < 8) {
+                    assertEquals(plain.remove(value), hashed.remove(value));
+               } else if (change == 8) {
+                    ListIterator<Value> expected = plain.listIterator();
+                    ListIterator<Value> actual = hashed.listIterator();
+                    while (expected.hasNext()) {
+                         Value v = expected.next();
+                         assertSame(v, actual.next());
+                         if (v.equals(value)) {
+                              expected.remove();
+                              actual.remove();
+                         }
+                    }
+               } else if (step % 1000 == 999) {
+                    //the index is dropped and built again from the list
+                    hashed.setHashIndexed(false);
+                    hashed.setHashIndexed(true);
+               }
+               assertEquals(plain.contains(value), hashed.contains(value));
+               assertEquals(plain.indexOf(value), hashed.indexOf(value));
+          }
+          assertTrue(hashed.isHashIndexed());
+          assertSameObjects(plain, hashed);
+          for (Value v : plain) {
+               assertEquals(plain.indexOf(v), hashed.indexOf(v));
+          }
+          hashed.clear();
+          assertFalse(hashed.contains(plain.get(0)));
+     }
+
+     @Test
+     void getOutsideTheListThrows() {
+          SortedLinkedList<Item> list = new SortedLinkedList<>();
+          list.add(new Item(1, 0));
+          assertThrows(IndexOutOfBoundsException.class, () -> list.get(1));
+          assertThrows(IndexOutOfBoundsException.class, () -> list.get(-1));
+     }
+
+     @Test
+     void clearEmptiesTheList() {
+          SortedLinkedList<Item> list = new SortedLinkedList<>();
+          for (int i = 0; i < 100; i++) {
+               list.add(new Item(i % 7, i));
+          }
+          list.clear();
+          assertEquals(0, list.size());
+          assertFalse(list.iterator().hasNext());
+          Item item = new Item(3, 100);
+          list.add(item);
+          assertEquals(item, list.get(0));
+     }
+}
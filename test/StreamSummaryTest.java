@@ -0,0 +1,86 @@
+package project3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that a StreamSummary of a log answers like a RecordList holding the whole log
+ *
+ * @author Thales Gao
+ */
+class StreamSummaryTest {
+     private static final int USERS = 12;
+
+     @TempDir
+     Path dir;
+
+     /* The first, last and total of a user, the answers a summary keeps. */
+     private static String summaryAnswers(SessionQueries queries, String user) {
+          try {
+               return queries.getFirstSession(user) + "|" + queries.getLastSession(user) + "|" + queries.getTotalTime(user);
+          } catch (NoSuchElementException e) {
+               return "none";
+          }
+     }
+
+     @Test
+     void answersLikeARecordListOfTheLog() throws IOException {
+          Random random = new Random(20);
+          for (int round = 0; round < 10; round++) {
+               //in time order, with many records at the same time in the order they were drawn
+               List<Record> records = TestLogs.records(random, 1 + random.nextInt(800), USERS, 40);
+               records.sort(Comparator.comparingLong(r -> r.getTime().getTime()));
+               Path file = dir.resolve("log" + round + ".txt");
+               TestLogs.write(file, records);
+               RecordList list = new RecordList();
+               new ParallelLoader(file).load(list);
+
+               UserDictionary users = new UserDictionary();
+               StreamSummary summary = new StreamSummary(users);
+               SessionStream stream = new SessionStream(file, users);
+               stream.addSink(summary);
+               stream.addRecordSink(summary);
+               assertEquals(records.size(), stream.run());
+               assertEquals(records.size(), summary.getRecordCount());
+
+               for (int u = 0; u < USERS; u++) {
+                    assertEquals(summaryAnswers(list, "u" + u), summaryAnswers(summary, "u" + u));
+               }
+               assertEquals(list.topUsers(5, Long.MIN_VALUE, Long.MAX_VALUE).toString(),
+                         summary.topUsers(5, Long.MIN_VALUE, Long.MAX_VALUE).toString());
+               assertEquals(TestLogs.summary(list.analyzeConcurrency(null)), TestLogs.summary(summary.analyzeConcurrency(null)));
+          }
+     }
+
+     @Test
+     void logOutOfTimeOrderIsRejected() throws IOException {
+          Path file = dir.resolve("unordered.txt");
+          Files.write(file, "1 1600000001000 a\n-1 1600000000000 a\n".getBytes(StandardCharsets.US_ASCII));
+          UserDictionary users = new UserDictionary();
+          SessionStream stream = new SessionStream(file, users);
+          stream.addSink(new StreamSummary(users));
+          assertThrows(IllegalStateException.class, stream::run);
+     }
+
+     @Test
+     void sessionListsAreNotSupported() {
+          StreamSummary summary = new StreamSummary(new UserDictionary());
+          assertThrows(UnsupportedOperationException.class, () -> summary.getAllSessions("a"));
+          assertThrows(UnsupportedOperationException.class, summary::getSessionIndex);
+          assertThrows(UnsupportedOperationException.class, () -> summary.topUsers(1, 0, 10));
+          assertThrows(UnsupportedOperationException.class, () -> summary.analyzeConcurrency((time, level) -> { }));
+          assertThrows(NoSuchElementException.class, () -> summary.getFirstSession("a"));
+     }
+}
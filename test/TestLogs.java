@@ -0,0 +1,125 @@
+package project3;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * The TestLogs class generates the random logs the tests compare implementations on
+ * The times are drawn from a small range, so many records share the same millisecond
+ *
+ * @author Thales Gao
+ */
+final class TestLogs {
+     static final long EPOCH = 1600000000000L;
+
+     private TestLogs() {
+     }
+
+     /**
+      * Generates records in random order
+      * @param random The source of the records
+      * @param count The number of records
+      * @param users The number of distinct usernames
+      * @param times The number of distinct times, in seconds after EPOCH
+      * @return the records in the order they were drawn
+      */
+     static List<Record> records(Random random, int count, int users, int times) {
+          List<Record> records = new ArrayList<>(count);
+          for (int i = 0; i < count; i++) {
+               records.add(new Record(1 + random.nextInt(3), random.nextBoolean(), "u" + random.nextInt(users),
+                         new Date(EPOCH + 1000L * random.nextInt(times))));
+          }
+          return records;
+     }
+
+     /**
+      * Writes records as the lines of a log file, in their order
+      * @param file The file
+      * @param records The records
+      * @throws IOException if the file cannot be written
+      */
+     static void write(Path file, List<Record> records) throws IOException {
+          StringBuilder text = new StringBuilder();
+          for (Record r : records) {
+               text.append(line(r)).append('\n');
+          }
+          Files.write(file, text.toString().getBytes(StandardCharsets.UTF_8));
+     }
+
+     /**
+      * Returns a record as the line of a log file holding it
+      * @param r The record
+      * @return the line, without its end
+      */
+     static String line(Record r) {
+          return (r.isLogin() ? r.getTerminal() : -r.getTerminal()) + " " + r.getTime().getTime() + " " + r.getUsername();
+     }
+
+     /**
+      * Returns the lines of records, in their order, so two lists can be compared with their order
+      * @param records The records
+      * @return one line per record
+      */
+     static List<String> lines(Iterable<Record> records) {
+          List<String> lines = new ArrayList<>();
+          for (Record r : records) {
+               lines.add(line(r));
+          }
+          return lines;
+     }
+
+     /**
+      * Returns the text of sessions, in their order
+      * @param sessions The sessions
+      * @return one string per session
+      */
+     static List<String> text(Iterable<Session> sessions) {
+          List<String> text = new ArrayList<>();
+          for (Session s : sessions) {
+               text.add(s.toString());
+          }
+          return text;
+     }
+
+     /**
+      * Returns the answers of the per-user queries: the first and last sessions, the total and all sessions
+      * @param queries The store queried
+      * @param user The username
+      * @return the answers joined by |, or none if the user has no login
+      */
+     static String answers(SessionQueries queries, String user) {
+          try {
+               Session first = queries.getFirstSession(user);
+               Session last = queries.getLastSession(user);
+               return first + "|" + last + "|" + queries.getTotalTime(user) + "|" + text(queries.getAllSessions(user));
+          } catch (NoSuchElementException e) {
+               return "none";
+          }
+     }
+
+     /**
+      * Returns everything an analyzer measured as text, so two analyzers can be compared at once
+      * @param analyzer The analyzer
+      * @return the peak, the time range, the time at each level and the statistics of each terminal
+      */
+     static String summary(ConcurrencyAnalyzer analyzer) {
+          StringBuilder text = new StringBuilder();
+          text.append(analyzer.getPeak()).append('@').append(analyzer.getPeakTime());
+          text.append(' ').append(analyzer.getStart()).append('-').append(analyzer.getEnd());
+          for (int level = 0; level <= analyzer.getPeak(); level++) {
+               text.append(' ').append(analyzer.getTimeAtLevel(level));
+          }
+          for (int t : analyzer.getTerminals()) {
+               text.append(" t").append(t).append(':').append(analyzer.getTerminalPeak(t)).append('@')
+                         .append(analyzer.getTerminalPeakTime(t)).append('/').append(analyzer.getTerminalBusyTime(t));
+          }
+          return text.toString();
+     }
+}
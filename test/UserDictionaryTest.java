@@ -0,0 +1,86 @@
+package project3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that UserDictionary gives every username one dense id, also when threads share it
+ *
+ * @author Thales Gao
+ */
+class UserDictionaryTest {
+
+     @Test
+     void idsFollowTheOrderOfFirstAppearance() {
+          UserDictionary users = new UserDictionary();
+          assertEquals(0, users.intern("b"));
+          assertEquals(1, users.intern("a"));
+          assertEquals(0, users.intern(new String("b")));
+          assertEquals(2, users.size());
+          assertEquals(1, users.idOf("a"));
+          assertEquals(-1, users.idOf("c"));
+          assertEquals(-1, users.idOf((String) null));
+          assertThrows(IllegalArgumentException.class, () -> users.intern(null));
+          assertThrows(IndexOutOfBoundsException.class, () -> users.name(2));
+     }
+
+     @Test
+     void recordIdsFromAnotherDictionaryAreNotTrusted() {
+          UserDictionary other = new UserDictionary();
+          other.intern("x");
+          String y = new String("y");
+          Record r = new Record(1, true, y, other.intern(y), new Date(0));
+          UserDictionary users = new UserDictionary();
+          users.intern("z");
+          users.intern("w");
+          //the record's id 1 belongs to another name here
+          assertEquals(2, users.idOf(r));
+          assertEquals(2, users.idOf(new Record(1, true, "y", new Date(0))));
+          assertSame(y, users.name(2));
+     }
+
+     @Test
+     void threadsInterningTogetherGetOneIdPerName() throws Exception {
+          UserDictionary users = new UserDictionary();
+          ExecutorService threads = Executors.newFixedThreadPool(4);
+          try {
+               List<Future<int[]>> results = new ArrayList<>();
+               for (int t = 0; t < 4; t++) {
+                    int offset = t;
+                    results.add(threads.submit(() -> {
+                         int[] ids = new int[5000];
+                         for (int i = 0; i < ids.length; i++) {
+                              String name = "user" + ((i * 7 + offset * 1000) % ids.length);
+                              ids[i] = users.intern(name);
+                              assertEquals(name, users.name(ids[i]));
+                         }
+                         return ids;
+                    }));
+               }
+               for (Future<int[]> result : results) {
+                    result.get();
+               }
+          } finally {
+               threads.shutdown();
+          }
+          assertEquals(5000, users.size());
+          Set<String> names = new HashSet<>();
+          for (int id = 0; id < users.size(); id++) {
+               names.add(users.name(id));
+               assertEquals(id, users.idOf(users.name(id)));
+          }
+          assertEquals(5000, names.size());
+     }
+}
@@ -0,0 +1,73 @@
+package project3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the ranking of users by login time in a window against the sessions of every user
+ *
+ * @author Thales Gao
+ */
+class UserTotalsTest {
+     private static final int USERS = 15;
+
+     /* The users with the largest part of their completed sessions inside [from, to]. */
+     private static List<UserTotal> expected(RecordList list, int k, long from, long to) {
+          List<UserTotal> all = new ArrayList<>();
+          for (int u = 0; u < USERS; u++) {
+               long total = 0;
+               for (Session s : RecordListTest.scan(list, "u" + u)) {
+                    if (s.getLogoutTime() != null) {
+                         total += Math.max(0, Math.min(s.getLogoutTime().getTime(), to) - Math.max(s.getLoginTime().getTime(), from));
+                    }
+               }
+               if (total > 0) {
+                    all.add(new UserTotal("u" + u, total));
+               }
+          }
+          Collections.sort(all);
+          return all.subList(0, Math.min(k, all.size()));
+     }
+
+     @Test
+     void topUsersMatchTheClippedSessions() {
+          Random random = new Random(19);
+          for (int round = 0; round < 30; round++) {
+               RecordList list = new RecordList();
+               list.addAll(TestLogs.records(random, random.nextInt(400), USERS, 60));
+               for (int query = 0; query < 10; query++) {
+                    int k = 1 + random.nextInt(USERS + 2);
+                    long from = TestLogs.EPOCH + 1000L * (random.nextInt(70) - 5);
+                    long to = from + 1000L * random.nextInt(40) + random.nextInt(1000);
+                    assertEquals(expected(list, k, from, to).toString(), list.topUsers(k, from, to).toString());
+               }
+               assertEquals(expected(list, 3, Long.MIN_VALUE, Long.MAX_VALUE).toString(),
+                         list.topUsers(3, Long.MIN_VALUE, Long.MAX_VALUE).toString());
+          }
+     }
+
+     @Test
+     void equalTotalsAreRankedByName() {
+          UserDictionary users = new UserDictionary();
+          long[] totals = new long[4];
+          for (String name : List.of("d", "b", "c", "a")) {
+               totals[users.intern(name)] = name.equals("c") ? 10 : 5;
+          }
+          assertEquals("[c: 10, a: 5, b: 5]", UserTotals.top(totals, users, 3).toString());
+     }
+
+     @Test
+     void invalidArgumentsAreRejected() {
+          RecordList list = new RecordList();
+          assertThrows(IllegalArgumentException.class, () -> list.topUsers(0, 0, 1));
+          assertThrows(IllegalArgumentException.class, () -> list.topUsers(1, 2, 1));
+          assertThrows(IllegalArgumentException.class, () -> new UserTotals(null));
+     }
+}